@@ -0,0 +1,255 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Attributes.java
+ *
+ * The attributes of the tag a {@link ContentHandler} is being told about. The tag is
+ * only split into attributes when one is first asked for, and the positions are kept in
+ * arrays that are reused for every tag, so a handler that ignores attributes costs
+ * nothing and one that reads them allocates nothing.
+ *
+ * <p>Names and values are positions in the handler's buffer. Values are returned as
+ * written, without their quotes; entity references are not replaced. An attribute
+ * without '=' has an empty value.</p>
+ */
+public final class Attributes {
+    private final ByteSequence name = new ByteSequence();
+    private final ByteSequence value = new ByteSequence();
+    private ByteBuffer buffer;
+    private int start;
+    private boolean parsed;
+
+    private int[] nameOffsets = new int[8];
+    private int[] nameLengths = new int[8];
+    private int[] valueOffsets = new int[8];
+    private int[] valueLengths = new int[8];
+    private int length;
+
+    /**
+     * Points the accessor at the attributes of another tag.
+     *
+     * @param buffer the buffer holding the tag
+     * @param start the index just past the tag name
+     */
+    void set(ByteBuffer buffer, int start) {
+        this.buffer = buffer;
+        this.start = start;
+        this.parsed = false;
+    }
+
+    /**
+     * Returns the number of attributes.
+     *
+     * @return the number of attributes of the tag
+     */
+    public int getLength() {
+        parse();
+        return length;
+    }
+
+    /**
+     * Returns the position of an attribute's name in the buffer.
+     *
+     * @param index the index of the attribute
+     * @return the index of the first byte of the name
+     * @throws IndexOutOfBoundsException if there is no attribute at that index
+     */
+    public int getNameOffset(int index) {
+        return nameOffsets[checkIndex(index)];
+    }
+
+    /**
+     * Returns the length of an attribute's name.
+     *
+     * @param index the index of the attribute
+     * @return the length of the name in bytes
+     * @throws IndexOutOfBoundsException if there is no attribute at that index
+     */
+    public int getNameLength(int index) {
+        return nameLengths[checkIndex(index)];
+    }
+
+    /**
+     * Returns the position of an attribute's value in the buffer.
+     *
+     * @param index the index of the attribute
+     * @return the index of the first byte of the value, after any opening quote
+     * @throws IndexOutOfBoundsException if there is no attribute at that index
+     */
+    public int getValueOffset(int index) {
+        return valueOffsets[checkIndex(index)];
+    }
+
+    /**
+     * Returns the length of an attribute's value.
+     *
+     * @param index the index of the attribute
+     * @return the length of the value in bytes, without quotes
+     * @throws IndexOutOfBoundsException if there is no attribute at that index
+     */
+    public int getValueLength(int index) {
+        return valueLengths[checkIndex(index)];
+    }
+
+    /**
+     * Returns an attribute's name. The same view is returned by every call.
+     *
+     * @param index the index of the attribute
+     * @return the name
+     * @throws IndexOutOfBoundsException if there is no attribute at that index
+     */
+    public CharSequence getName(int index) {
+        name.set(buffer, nameOffsets[checkIndex(index)], nameLengths[index]);
+        return name;
+    }
+
+    /**
+     * Returns an attribute's value. The same view is returned by every call.
+     *
+     * @param index the index of the attribute
+     * @return the value
+     * @throws IndexOutOfBoundsException if there is no attribute at that index
+     */
+    public CharSequence getValue(int index) {
+        value.set(buffer, valueOffsets[checkIndex(index)], valueLengths[index]);
+        return value;
+    }
+
+    /**
+     * Finds an attribute by name.
+     *
+     * @param attributeName the name to look for
+     * @return the index of the first attribute with that name, or -1 if there is none
+     */
+    public int getIndex(CharSequence attributeName) {
+        parse();
+        for (int i = 0; i < length; i++) {
+            if (Utf8.equals(buffer, nameOffsets[i], nameLengths[i], attributeName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value of an attribute found by name. The same view is returned by every
+     * call.
+     *
+     * @param attributeName the name to look for
+     * @return the value, or null if the tag has no attribute with that name
+     */
+    public CharSequence getValue(CharSequence attributeName) {
+        int index = getIndex(attributeName);
+        return index < 0 ? null : getValue(index);
+    }
+
+    /**
+     * Splits the tag into attributes, once per tag. The tag ends at its first '&gt;',
+     * and a '/' just before it is not part of any attribute.
+     */
+    private void parse() {
+        if (parsed) {
+            return;
+        }
+        parsed = true;
+        length = 0;
+        int index = start;
+        while (true) {
+            byte b = buffer.get(index);
+            while (isWhitespace(b) || b == '/') {
+                b = buffer.get(++index);
+            }
+            if (b == '>') {
+                return;
+            }
+
+            int nameStart = index;
+            while (!isWhitespace(b) && b != '=' && b != '>' && b != '/') {
+                b = buffer.get(++index);
+            }
+            int nameEnd = index;
+            while (isWhitespace(b)) {
+                b = buffer.get(++index);
+            }
+
+            int valueStart = index;
+            int valueEnd = index;
+            if (b == '=') {
+                b = buffer.get(++index);
+                while (isWhitespace(b)) {
+                    b = buffer.get(++index);
+                }
+                if (b == '"' || b == '\'') {
+                    byte quote = b;
+                    valueStart = ++index;
+                    b = buffer.get(index);
+                    while (b != quote && b != '>') {
+                        b = buffer.get(++index);
+                    }
+                    valueEnd = index;
+                    if (b == quote) {
+                        index++;
+                    }
+                } else {
+                    valueStart = index;
+                    while (!isWhitespace(b) && b != '>') {
+                        b = buffer.get(++index);
+                    }
+                    valueEnd = b == '>' && index > valueStart && buffer.get(index - 1) == '/' ? index - 1 : index;
+                }
+            }
+            add(nameStart, nameEnd - nameStart, valueStart, valueEnd - valueStart);
+        }
+    }
+
+    /**
+     * Records an attribute.
+     *
+     * @param nameOffset the index of the name
+     * @param nameLength the length of the name
+     * @param valueOffset the index of the value
+     * @param valueLength the length of the value
+     */
+    private void add(int nameOffset, int nameLength, int valueOffset, int valueLength) {
+        if (length == nameOffsets.length) {
+            int capacity = length * 2;
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+            nameLengths = Arrays.copyOf(nameLengths, capacity);
+            valueOffsets = Arrays.copyOf(valueOffsets, capacity);
+            valueLengths = Arrays.copyOf(valueLengths, capacity);
+        }
+        nameOffsets[length] = nameOffset;
+        nameLengths[length] = nameLength;
+        valueOffsets[length] = valueOffset;
+        valueLengths[length] = valueLength;
+        length++;
+    }
+
+    /**
+     * Checks that an index refers to an attribute.
+     *
+     * @param index the index of the attribute
+     * @return the index
+     * @throws IndexOutOfBoundsException if there is no attribute at that index
+     */
+    private int checkIndex(int index) {
+        parse();
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        return index;
+    }
+
+    /**
+     * Tests for the characters String.trim() removes.
+     *
+     * @param b the byte to test
+     * @return true if the byte is a space or a control character
+     */
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+}
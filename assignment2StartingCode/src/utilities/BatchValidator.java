@@ -0,0 +1,242 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * BatchValidator.java
+ *
+ * Validates many files in one run. The files are checked concurrently, each one streamed
+ * through a pooled {@link XMLValidator}, and the report of every file is buffered
+ * until all the files before it have been printed, so the combined report is always in
+ * input order no matter which files finish first.
+ *
+ * <p>Only a limited number of files are in flight at once, which bounds both the number
+ * of open files and the number of buffered reports. When the runtime supports virtual
+ * threads and no thread count is given, every file gets its own virtual thread;
+ * otherwise a fixed pool of platform threads is used.</p>
+ */
+public class BatchValidator {
+    /** Files in flight per pool thread, so a thread that finishes early can take another. */
+    private static final int FILES_PER_THREAD = 4;
+
+    /** Files in flight when every file has its own virtual thread. */
+    private static final int MAX_OPEN_FILES = 256;
+
+    private static final int WELL_FORMED = 0;
+    private static final int HAS_ERRORS = 1;
+    private static final int UNREADABLE = 2;
+
+    private final int threads;
+    private final ConcurrentLinkedQueue<XMLValidator> validators = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a validator that runs every file on its own virtual thread if the runtime
+     * supports them, and otherwise uses one thread per available processor.
+     */
+    public BatchValidator() {
+        this.threads = 0;
+    }
+
+    /**
+     * Creates a validator that uses a fixed pool of the given number of threads.
+     *
+     * @param threads the number of threads to validate with
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public BatchValidator(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Expands the inputs into the list of files to validate, in order. A directory
+     * stands for every file below it whose name ends in ".xml", in sorted order, and an
+     * argument starting with '@' names a file that lists one input per line. Any other
+     * input is taken as a file; if it cannot be read, that is reported when it is
+     * validated.
+     *
+     * @param inputs the paths, directories and list files given on the command line
+     * @return the files to validate
+     * @throws IOException if a directory or list file cannot be read
+     */
+    public static List<Path> expand(List<String> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs) {
+            if (input.startsWith("@")) {
+                for (String line : Files.readAllLines(Paths.get(input.substring(1)))) {
+                    if (!line.trim().isEmpty()) {
+                        addInput(line.trim(), files);
+                    }
+                }
+            } else {
+                addInput(input, files);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Validates the files and writes a report for each one, in the order given,
+     * followed by a summary.
+     *
+     * @param files the files to validate
+     * @param out the writer to write the reports to; it is not flushed
+     * @param format the format of the reports
+     * @return the number of files that are not well-formed or could not be read
+     * @throws IOException if the reports cannot be written
+     * @throws InterruptedException if the thread is interrupted while waiting for a file
+     */
+    public int validate(List<Path> files, Writer out, ReportFormat format)
+            throws IOException, InterruptedException {
+        ExecutorService executor = newExecutor();
+        int inFlight = threads > 0 ? threads * FILES_PER_THREAD : MAX_OPEN_FILES;
+        ArrayDeque<Future<Report>> pending = new ArrayDeque<>();
+        int[] counts = new int[3];
+        try {
+            int next = 0;
+            while (next < files.size() || !pending.isEmpty()) {
+                while (next < files.size() && pending.size() < inFlight) {
+                    Path file = files.get(next++);
+                    pending.add(executor.submit(() -> check(file, format)));
+                }
+                Report report = await(pending.remove());
+                out.write(report.text);
+                counts[report.status]++;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        format.newSink(out, true).summary(files.size(), counts[WELL_FORMED], counts[HAS_ERRORS],
+                counts[UNREADABLE]);
+        return counts[HAS_ERRORS] + counts[UNREADABLE];
+    }
+
+    /**
+     * Adds one input to the list of files, expanding it if it is a directory.
+     *
+     * @param input the path of a file or directory
+     * @param files the list to add to
+     * @throws IOException if the directory cannot be read
+     */
+    private static void addInput(String input, List<Path> files) throws IOException {
+        Path path;
+        try {
+            path = Paths.get(input);
+        } catch (InvalidPathException e) {
+            throw new IOException("Invalid path: " + input, e);
+        }
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return;
+        }
+        try (Stream<Path> tree = Files.walk(path)) {
+            files.addAll(tree
+                    .filter(file -> file.getFileName().toString().toLowerCase().endsWith(".xml"))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Validates one file with a validator taken from the pool of idle validators and
+     * writes its report into a buffer.
+     *
+     * @param file the file to validate
+     * @param format the format of the report
+     * @return the report of the file
+     */
+    private Report check(Path file, ReportFormat format) {
+        XMLValidator validator = validators.poll();
+        if (validator == null) {
+            validator = new XMLValidator();
+        }
+        StringWriter text = new StringWriter();
+        ErrorSink sink = format.newSink(text, true);
+        try {
+            sink.startDocument(file.toString());
+            ValidationResult result;
+            try {
+                result = validator.validate(file);
+            } catch (IOException e) {
+                sink.unreadable(Parser.reason(e));
+                return new Report(text.toString(), UNREADABLE);
+            }
+            result.getErrors().writeTo(sink);
+            sink.endDocument(result.getErrorCount());
+            return new Report(text.toString(), result.isWellFormed() ? WELL_FORMED : HAS_ERRORS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            validators.offer(validator);
+        }
+    }
+
+    /**
+     * Creates the executor the files are validated on.
+     *
+     * @return a virtual-thread-per-task executor, or a fixed thread pool
+     */
+    private ExecutorService newExecutor() {
+        ExecutorService executor = threads > 0 ? null : VirtualThreads.newExecutor();
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        }
+        return executor;
+    }
+
+    /**
+     * Waits for a file's report.
+     *
+     * @param future the task validating the file
+     * @return the report of the file
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private static Report await(Future<Report> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * The buffered report of one file.
+     */
+    private static class Report {
+        final String text;
+        final int status;
+
+        Report(String text, int status) {
+            this.text = text;
+            this.status = status;
+        }
+    }
+}
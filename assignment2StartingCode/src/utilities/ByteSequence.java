@@ -0,0 +1,135 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ByteSequence.java
+ *
+ * A CharSequence view of a range of UTF-8 bytes in a buffer. The view can be pointed at
+ * another range at any time, so a reader can hand out the same view for every name or
+ * text it reports instead of creating a String for each. The buffer's position and
+ * limit are ignored, so the view works on direct and mapped buffers too.
+ *
+ * <p>While the range is ASCII, each byte is a character and is read in place. The first
+ * time a range with other bytes is read as characters, it is decoded into a String that
+ * is used until the view is moved.</p>
+ */
+final class ByteSequence implements CharSequence {
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+    private int start;
+    private int length;
+    private boolean checked;  // whether the range has been checked for ASCII
+    private String decoded;   // the characters of a range that is not ASCII
+
+    /**
+     * Creates an empty view.
+     */
+    ByteSequence() {
+    }
+
+    /**
+     * Creates a view of a range of a buffer.
+     *
+     * @param buffer the buffer
+     * @param start the index of the first byte of the range
+     * @param length the length of the range
+     */
+    ByteSequence(ByteBuffer buffer, int start, int length) {
+        set(buffer, start, length);
+    }
+
+    /**
+     * Points the view at a range of a buffer.
+     *
+     * @param buffer the buffer
+     * @param start the index of the first byte of the range
+     * @param length the length of the range
+     */
+    void set(ByteBuffer buffer, int start, int length) {
+        this.buffer = buffer;
+        this.start = start;
+        this.length = length;
+        this.checked = false;
+        this.decoded = null;
+    }
+
+    /**
+     * Returns the number of bytes in the range.
+     *
+     * @return the length of the range in bytes
+     */
+    int byteLength() {
+        return length;
+    }
+
+    @Override
+    public int length() {
+        return decoded() == null ? length : decoded.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (decoded() != null) {
+            return decoded.charAt(index);
+        }
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        return (char) buffer.get(start + index);
+    }
+
+    /**
+     * Returns a new view of part of this range. The new view is not moved when this one
+     * is pointed elsewhere; if the range is ASCII it still reads the same buffer.
+     *
+     * @param from the index of the first character, inclusive
+     * @param to the index of the last character, exclusive
+     * @return the view of the part
+     * @throws IndexOutOfBoundsException if the part is not within the range
+     */
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (decoded() != null) {
+            return decoded.subSequence(from, to);
+        }
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        return new ByteSequence(buffer, start + from, to - from);
+    }
+
+    /**
+     * Copies the bytes of the range into an array.
+     *
+     * @param destination the array to copy to
+     * @param offset the index in the array of the first byte
+     */
+    void copyTo(byte[] destination, int offset) {
+        buffer.get(start, destination, offset, length);
+    }
+
+    /**
+     * Copies the range into a String.
+     *
+     * @return the characters of the range
+     */
+    @Override
+    public String toString() {
+        return decoded() != null ? decoded : Utf8.decode(buffer, start, length);
+    }
+
+    /**
+     * Decodes the range if it is not ASCII, checking it the first time it is asked for.
+     *
+     * @return the characters of the range, or null if the range is ASCII
+     */
+    private String decoded() {
+        if (!checked) {
+            checked = true;
+            if (!Utf8.isAscii(buffer, start, length)) {
+                decoded = Utf8.decode(buffer, start, length);
+            }
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,495 @@
+package utilities;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ChannelReader.java
+ *
+ * Reads files through a FileChannel in large blocks. A single direct ByteBuffer is
+ * kept for the lifetime of the reader and reused for every block, so reading a file
+ * costs one copy per block and no per-character objects. The same buffer serves as
+ * the window when a file is streamed through an {@link XMLTokenizer}.
+ *
+ * <p>Very large files can instead be memory-mapped, in which case the tokenizer scans
+ * the mapped pages directly and nothing is copied onto the heap.</p>
+ *
+ * <p>Every way of reading detects the {@link DocumentEncoding} of the file from its
+ * first bytes and gives the tokenizer UTF-8. Files in UTF-8 are read exactly as before,
+ * less any byte order mark; files in UTF-16 or ISO-8859-1 are read into a second buffer
+ * and converted into the block one block at a time.</p>
+ *
+ * <p>A ChannelReader is not thread-safe; each thread should use its own instance.</p>
+ */
+public class ChannelReader {
+    /** Size of the reusable block buffer in bytes. */
+    public static final int BLOCK_SIZE = 1 << 18;
+
+    /** Size of each mapped window; files larger than this are mapped one window at a time. */
+    public static final int MAP_WINDOW_SIZE = 1 << 30;
+
+    private ByteBuffer block;
+    private ByteBuffer encoded;
+
+    /**
+     * Creates a reader with a block buffer of {@link #BLOCK_SIZE} bytes.
+     */
+    public ChannelReader() {
+        this(BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a reader with a block buffer of the given size.
+     *
+     * @param blockSize the size of the block buffer in bytes
+     * @throws IllegalArgumentException if blockSize is not positive
+     */
+    public ChannelReader(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        block = ByteBuffer.allocateDirect(blockSize);
+    }
+
+    /**
+     * Reads the whole file into a byte array.
+     *
+     * @param file the file to read
+     * @return the contents of the file, converted to UTF-8 if it was in another encoding
+     * @throws IOException if the file cannot be read or is larger than an array can hold
+     */
+    public byte[] readFully(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long expected = channel.size();
+            if (expected > Integer.MAX_VALUE - 8) {
+                throw new IOException("File is too large to read into memory: " + file);
+            }
+
+            byte[] document = new byte[(int) expected];
+            int length = 0;
+            while (true) {
+                block.clear();
+                int read = channel.read(block);
+                if (read == -1) {
+                    break;
+                }
+                if (length + read > document.length) {
+                    document = grow(document, length + read);
+                }
+                block.flip();
+                block.get(document, length, read);
+                length += read;
+            }
+
+            if (length != document.length) {
+                document = shrink(document, length);
+            }
+            return toUtf8(document);
+        }
+    }
+
+    /**
+     * Converts a whole document to UTF-8 in the encoding detected from its first bytes,
+     * leaving out any byte order mark.
+     *
+     * @param document the document
+     * @return the document in UTF-8, which is the same array if it already was
+     */
+    private static byte[] toUtf8(byte[] document) {
+        ByteBuffer source = ByteBuffer.wrap(document);
+        DocumentEncoding encoding = DocumentEncoding.detect(source);
+        int skip = encoding.byteOrderMarkLength(source);
+        if (encoding == DocumentEncoding.UTF_8) {
+            return skip == 0 ? document : Arrays.copyOfRange(document, skip, document.length);
+        }
+        source.position(skip);
+        // One input byte never becomes more than two output bytes.
+        ByteBuffer target = ByteBuffer.allocate((int) Math.min((long) document.length * 2, Integer.MAX_VALUE - 8));
+        encoding.decode(source, target, true);
+        return Arrays.copyOf(target.array(), target.position());
+    }
+
+    /**
+     * Streams the file through the tokenizer one block at a time without holding the
+     * whole document in memory. The unfinished tag or text at the end of each block is
+     * moved to the front of the buffer and completed by the next read. Text is held back
+     * for at most {@link XMLTokenizer#MAX_KEPT_LENGTH} bytes, so the buffer only grows if
+     * it is smaller than that or a single tag does not fit in it.
+     *
+     * @param file the file to read
+     * @param tokenizer the tokenizer to feed
+     * @throws IOException if the file cannot be read
+     */
+    public void stream(Path file, XMLTokenizer tokenizer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            stream(channel, Long.MAX_VALUE, false, tokenizer);
+        }
+    }
+
+    /**
+     * Streams exactly the given number of bytes from a channel through the tokenizer, the
+     * same way a file is streamed. No byte past the document is read, so the channel can
+     * carry more data after it, such as the next request on a socket; if the tokenizer
+     * stops early, the rest of the document is read and discarded.
+     *
+     * @param channel the channel to read from
+     * @param length the length of the document in bytes
+     * @param tokenizer the tokenizer to feed
+     * @throws EOFException if the channel ends before length bytes have been read
+     * @throws IOException if the channel cannot be read
+     */
+    public void stream(ReadableByteChannel channel, long length, XMLTokenizer tokenizer) throws IOException {
+        stream(channel, length, true, tokenizer);
+    }
+
+    /**
+     * Feeds the tokenizer block by block until the channel ends, length bytes have been
+     * read, or the tokenizer stops. The encoding is detected from the first block, which
+     * is made large enough to hold {@link DocumentEncoding#DETECT_LENGTH} bytes; a
+     * document in UTF-8 is fed as it is read, and any other is read into a second buffer
+     * and converted into the block.
+     *
+     * @param channel the channel to read from
+     * @param length the most bytes to read
+     * @param exact true if the channel must hold length bytes
+     * @param tokenizer the tokenizer to feed
+     * @throws IOException if the channel cannot be read, or ends early when exact is true
+     */
+    private void stream(ReadableByteChannel channel, long length, boolean exact, XMLTokenizer tokenizer)
+            throws IOException {
+        if (block.capacity() < DocumentEncoding.DETECT_LENGTH) {
+            block = ByteBuffer.allocateDirect(DocumentEncoding.DETECT_LENGTH);
+        }
+        block.clear();
+        long remaining = length;
+        int read = 0;
+        while (block.position() < DocumentEncoding.DETECT_LENGTH && read != -1) {
+            read = read(channel, block, remaining);
+            if (read > 0) {
+                remaining -= read;
+            }
+        }
+        block.flip();
+        DocumentEncoding encoding = DocumentEncoding.detect(block);
+        block.position(encoding.byteOrderMarkLength(block));
+        boolean converting = encoding != DocumentEncoding.UTF_8;
+        ByteBuffer source = null;
+        if (converting) {
+            source = encodedBlock();
+            source.put(block);
+            block.clear();
+        } else {
+            block.compact();
+        }
+
+        boolean endOfInput = read == -1;
+        while (true) {
+            if (endOfInput && exact && remaining > 0) {
+                throw new EOFException("Input ended " + remaining + " bytes before the end of the document.");
+            }
+            boolean lastBlock = endOfInput;
+            if (converting) {
+                source.flip();
+                encoding.decode(source, block, endOfInput);
+                lastBlock = endOfInput && !source.hasRemaining();
+                source.compact();
+            }
+            block.flip();
+            tokenizer.feed(block, lastBlock);
+            if (tokenizer.isStopped()) {
+                if (exact) {
+                    skip(channel, remaining);
+                }
+                return;
+            }
+            if (lastBlock) {
+                return;
+            }
+
+            int room = converting ? DocumentEncoding.MAX_CHAR_LENGTH : 1;
+            if (block.position() == 0 && block.capacity() - block.limit() < room) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(block.capacity() * 2);
+                larger.put(block);
+                block = larger;
+            } else {
+                block.compact();
+            }
+
+            read = read(channel, converting ? source : block, remaining);
+            if (read > 0) {
+                remaining -= read;
+            }
+            endOfInput = read == -1;
+        }
+    }
+
+    /**
+     * Reads from the channel into the free space of a buffer, but no more than the given
+     * number of bytes.
+     *
+     * @param channel the channel to read from
+     * @param buffer the buffer to read into
+     * @param remaining the most bytes to read
+     * @return the number of bytes read, or -1 if the channel has ended or remaining is 0
+     * @throws IOException if the channel cannot be read
+     */
+    private static int read(ReadableByteChannel channel, ByteBuffer buffer, long remaining) throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int limit = buffer.limit();
+        if (remaining < buffer.remaining()) {
+            buffer.limit(buffer.position() + (int) remaining);
+        }
+        int read = channel.read(buffer);
+        buffer.limit(limit);
+        return read;
+    }
+
+    /**
+     * Returns the buffer that documents in other encodings than UTF-8 are read into
+     * before they are converted, creating it the first time one is read. It is never
+     * smaller than the block, and always holds at least a whole character.
+     *
+     * @return the cleared buffer
+     */
+    private ByteBuffer encodedBlock() {
+        int capacity = Math.max(block.capacity(), DocumentEncoding.MAX_CHAR_LENGTH);
+        if (encoded == null || encoded.capacity() < capacity) {
+            encoded = ByteBuffer.allocateDirect(capacity);
+        }
+        encoded.clear();
+        return encoded;
+    }
+
+    /**
+     * Wraps a channel so that it delivers the document it carries in UTF-8, for readers
+     * that pull blocks themselves rather than being fed. The encoding is detected from
+     * the first {@link DocumentEncoding#DETECT_LENGTH} bytes the same way as when a file
+     * is streamed, and any byte order mark is left out. Closing the returned channel
+     * closes the wrapped one.
+     *
+     * @param channel the channel to read the document from
+     * @return a channel that delivers the document in UTF-8
+     */
+    public static ReadableByteChannel decoding(ReadableByteChannel channel) {
+        return new DecodingChannel(channel);
+    }
+
+    /**
+     * Memory-maps the file and feeds the mapped bytes to the tokenizer. Files up to
+     * {@link #MAP_WINDOW_SIZE} bytes are mapped as a single window; larger files are
+     * mapped one window at a time, each new window starting at the first byte the
+     * tokenizer has not consumed, so a line is never split between windows.
+     *
+     * @param file the file to read
+     * @param tokenizer the tokenizer to feed
+     * @throws IOException if the file cannot be mapped
+     */
+    public void map(Path file, XMLTokenizer tokenizer) throws IOException {
+        map(file, tokenizer, MAP_WINDOW_SIZE);
+    }
+
+    /**
+     * Memory-maps the file one window of the given size at a time and feeds the mapped
+     * bytes to the tokenizer. A window is doubled if a single tag does not fit in it.
+     * Only UTF-8 can be tokenized where it is mapped, so a file in another encoding is
+     * streamed instead.
+     *
+     * @param file the file to read
+     * @param tokenizer the tokenizer to feed
+     * @param windowSize the size of each mapped window in bytes
+     * @throws IOException if the file cannot be mapped
+     */
+    public void map(Path file, XMLTokenizer tokenizer, int windowSize) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive.");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer first = ByteBuffer.allocate(DocumentEncoding.DETECT_LENGTH);
+            channel.read(first, 0);
+            first.flip();
+            DocumentEncoding encoding = DocumentEncoding.detect(first);
+            if (encoding != DocumentEncoding.UTF_8) {
+                stream(channel, Long.MAX_VALUE, false, tokenizer);
+                return;
+            }
+
+            long size = channel.size();
+            long position = encoding.byteOrderMarkLength(first);
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                long length = Math.min(windowSize, size - position);
+                endOfInput = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                tokenizer.feed(window, endOfInput);
+                if (tokenizer.isStopped()) {
+                    return;
+                }
+
+                if (window.position() == 0 && !endOfInput) {
+                    windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+                }
+                position += window.position();
+            }
+        }
+    }
+
+    /**
+     * Reads and discards the given number of bytes, using the block buffer.
+     *
+     * @param channel the channel to read from
+     * @param length the number of bytes to discard
+     * @throws EOFException if the channel ends first
+     * @throws IOException if the channel cannot be read
+     */
+    private void skip(ReadableByteChannel channel, long length) throws IOException {
+        while (length > 0) {
+            block.clear();
+            if (length < block.capacity()) {
+                block.limit((int) length);
+            }
+            int read = channel.read(block);
+            if (read == -1) {
+                throw new EOFException("Input ended " + length + " bytes before the end of the document.");
+            }
+            length -= read;
+        }
+    }
+
+    /**
+     * A channel that converts the document read from another channel to UTF-8. A UTF-8
+     * document is passed through as it is read, once the bytes read to detect the
+     * encoding have been delivered; any other is read into a buffer and converted into
+     * a second one, whose bytes are then copied out as far as the reader has room, so a
+     * reader may ask for any number of bytes.
+     */
+    private static class DecodingChannel implements ReadableByteChannel {
+        private static final int BUFFER_SIZE = 1 << 13;
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer source = ByteBuffer.allocate(BUFFER_SIZE);
+        private final ByteBuffer decoded = ByteBuffer.allocate(BUFFER_SIZE);
+        private DocumentEncoding encoding;
+        private boolean endOfInput;
+
+        /**
+         * Creates a channel that converts what the given channel delivers.
+         *
+         * @param channel the channel to read from
+         */
+        DecodingChannel(ReadableByteChannel channel) {
+            this.channel = channel;
+            decoded.limit(0);
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            if (encoding == null) {
+                detect();
+            }
+            if (!target.hasRemaining()) {
+                return 0;
+            }
+            if (encoding == DocumentEncoding.UTF_8) {
+                if (source.hasRemaining()) {
+                    return copy(source, target);
+                }
+                return endOfInput ? -1 : channel.read(target);
+            }
+            while (!decoded.hasRemaining()) {
+                if (endOfInput && !source.hasRemaining()) {
+                    return -1;
+                }
+                if (!endOfInput) {
+                    source.compact();
+                    endOfInput = channel.read(source) == -1;
+                    source.flip();
+                }
+                decoded.clear();
+                encoding.decode(source, decoded, endOfInput);
+                decoded.flip();
+            }
+            return copy(decoded, target);
+        }
+
+        /**
+         * Reads the first bytes of the document, detects its encoding and skips any byte
+         * order mark.
+         *
+         * @throws IOException if the channel cannot be read
+         */
+        private void detect() throws IOException {
+            while (source.position() < DocumentEncoding.DETECT_LENGTH && !endOfInput) {
+                endOfInput = channel.read(source) == -1;
+            }
+            source.flip();
+            encoding = DocumentEncoding.detect(source);
+            source.position(encoding.byteOrderMarkLength(source));
+        }
+
+        /**
+         * Copies as many bytes as fit from one buffer into another.
+         *
+         * @param from the buffer to copy from
+         * @param to the buffer to copy into
+         * @return the number of bytes copied
+         */
+        private static int copy(ByteBuffer from, ByteBuffer to) {
+            int length = Math.min(from.remaining(), to.remaining());
+            int limit = from.limit();
+            from.limit(from.position() + length);
+            to.put(from);
+            from.limit(limit);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Grows the document array when the file turned out larger than its reported size.
+     *
+     * @param document the current document array
+     * @param minimum the minimum capacity required
+     * @return a larger array holding the same contents
+     * @throws IOException if the required capacity exceeds the maximum array size
+     */
+    private static byte[] grow(byte[] document, int minimum) throws IOException {
+        if (minimum < 0 || minimum > Integer.MAX_VALUE - 8) {
+            throw new IOException("File is too large to read into memory.");
+        }
+        long capacity = Math.max((long) document.length * 2, minimum);
+        byte[] larger = new byte[(int) Math.min(capacity, Integer.MAX_VALUE - 8)];
+        System.arraycopy(document, 0, larger, 0, document.length);
+        return larger;
+    }
+
+    /**
+     * Trims the document array when the file turned out smaller than its reported size.
+     *
+     * @param document the current document array
+     * @param length the number of bytes actually read
+     * @return an array of exactly length bytes
+     */
+    private static byte[] shrink(byte[] document, int length) {
+        byte[] exact = new byte[length];
+        System.arraycopy(document, 0, exact, 0, length);
+        return exact;
+    }
+}
@@ -0,0 +1,111 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ContentDispatcher.java
+ *
+ * Passes the tokens of a document to a {@link TagChecker} and, when one is set, to a
+ * {@link ContentHandler}, so a document is validated and handed to the caller in the
+ * same pass. Without a content handler it only adds a null check to each token.
+ */
+class ContentDispatcher implements TokenHandler {
+    private final TagChecker checker;
+    private final Attributes attributes = new Attributes();
+    private ContentHandler handler;
+
+    /**
+     * Creates a dispatcher that validates with the given checker.
+     *
+     * @param checker the checker to pass every tag and error to
+     */
+    ContentDispatcher(TagChecker checker) {
+        this.checker = checker;
+    }
+
+    /**
+     * Sets the handler the content is passed to.
+     *
+     * @param handler the content handler, or null to only validate
+     */
+    void setHandler(ContentHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void openTag(ByteBuffer window, int nameStart, int nameLength, int line, int column) {
+        checker.openTag(window, nameStart, nameLength, line, column);
+        if (handler != null) {
+            attributes.set(window, nameStart + nameLength);
+            handler.startElement(window, nameStart, nameLength, attributes);
+        }
+    }
+
+    @Override
+    public void closeTag(ByteBuffer window, int nameStart, int nameLength, int line, int column) {
+        checker.closeTag(window, nameStart, nameLength, line, column);
+        if (handler != null) {
+            handler.endElement(window, nameStart, nameLength);
+        }
+    }
+
+    @Override
+    public void malformedTag(ByteBuffer window, int textStart, int textLength, int line) {
+        checker.malformedTag(window, textStart, textLength, line);
+    }
+
+    @Override
+    public void invalidCloseTag(ByteBuffer window, int textStart, int textLength, int line) {
+        checker.invalidCloseTag(window, textStart, textLength, line);
+    }
+
+    @Override
+    public void emptyTag(ByteBuffer window, int nameStart, int nameLength, int line, int column) {
+        if (handler != null) {
+            attributes.set(window, nameStart + nameLength);
+            handler.startElement(window, nameStart, nameLength, attributes);
+            handler.endElement(window, nameStart, nameLength);
+        }
+    }
+
+    @Override
+    public void comment(ByteBuffer window, int textStart, int textLength, int line, int column) {
+        if (handler != null) {
+            if (column == 0) {
+                handler.continueComment(window, textStart, textLength);
+            } else {
+                handler.comment(window, textStart, textLength);
+            }
+        }
+    }
+
+    @Override
+    public void processingInstruction(ByteBuffer window, int textStart, int textLength, int line, int column) {
+        if (handler != null) {
+            if (column == 0) {
+                handler.continueProcessingInstruction(window, textStart, textLength);
+            } else {
+                handler.processingInstruction(window, textStart, textLength);
+            }
+        }
+    }
+
+    @Override
+    public void text(ByteBuffer window, int textStart, int textLength, int line) {
+        if (handler != null) {
+            handler.text(window, textStart, textLength);
+        }
+    }
+
+    @Override
+    public void continueText(ByteBuffer window, int textStart, int textLength, int line) {
+        if (handler != null) {
+            handler.continueText(window, textStart, textLength);
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return checker.isFinished();
+    }
+}
@@ -0,0 +1,112 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ContentHandler.java
+ *
+ * Receives the content of a document as it is validated, in document order, the way a
+ * SAX handler does. Names and text are passed as an offset and length into the shared
+ * input buffer, and attributes through an {@link Attributes} object that is reused for
+ * every element, so no object is created per event. The buffer, the ranges and the
+ * attributes are only valid for the duration of the call; read absolute positions of
+ * the buffer and leave its position and limit alone.
+ *
+ * <p>Every method does nothing by default, so a handler implements only what it needs.
+ * A self-closing tag is passed as a start and an end of the same element.</p>
+ *
+ * <p>The content follows the validator's line rules: text never spans lines and does
+ * not include line breaks, CDATA sections are passed as text, comments and processing
+ * instructions that span lines are passed a line at a time, and a tag that is reported
+ * as an error passes no content. When a document is streamed, text or a line of a
+ * comment or instruction longer than {@link XMLTokenizer#MAX_KEPT_LENGTH} may be passed
+ * in pieces, the later ones to the continue methods.</p>
+ */
+public interface ContentHandler {
+
+    /**
+     * Called for an opening or self-closing tag.
+     *
+     * @param buffer the buffer holding the tag
+     * @param nameOffset the index of the first byte of the tag name
+     * @param nameLength the length of the tag name in bytes
+     * @param attributes the attributes of the tag
+     */
+    default void startElement(ByteBuffer buffer, int nameOffset, int nameLength, Attributes attributes) {
+    }
+
+    /**
+     * Called for a closing tag, and after the start of a self-closing tag.
+     *
+     * @param buffer the buffer holding the tag
+     * @param nameOffset the index of the first byte of the tag name
+     * @param nameLength the length of the tag name in bytes
+     */
+    default void endElement(ByteBuffer buffer, int nameOffset, int nameLength) {
+    }
+
+    /**
+     * Called for the text between two tags, or between a tag and the end of its line.
+     *
+     * @param buffer the buffer holding the text
+     * @param offset the index of the first byte of the text
+     * @param length the length of the text in bytes
+     */
+    default void text(ByteBuffer buffer, int offset, int length) {
+    }
+
+    /**
+     * Called for the next piece of a text passed in pieces, after
+     * {@link #text(ByteBuffer, int, int)} was called for the piece before it. By default
+     * the piece is passed to text().
+     *
+     * @param buffer the buffer holding the piece
+     * @param offset the index of the first byte of the piece
+     * @param length the length of the piece in bytes
+     */
+    default void continueText(ByteBuffer buffer, int offset, int length) {
+        text(buffer, offset, length);
+    }
+
+    /**
+     * Called for a comment.
+     *
+     * @param buffer the buffer holding the comment
+     * @param offset the index of the first byte after "&lt;!--"
+     * @param length the length of the comment text, without a closing "--", in bytes
+     */
+    default void comment(ByteBuffer buffer, int offset, int length) {
+    }
+
+    /**
+     * Called for each further line or piece of a comment, after
+     * {@link #comment(ByteBuffer, int, int)} was called for its first part.
+     *
+     * @param buffer the buffer holding the comment
+     * @param offset the index of the first byte of the part
+     * @param length the length of the part, without a closing "--", in bytes
+     */
+    default void continueComment(ByteBuffer buffer, int offset, int length) {
+    }
+
+    /**
+     * Called for a processing instruction.
+     *
+     * @param buffer the buffer holding the instruction
+     * @param offset the index of the first byte after "&lt;?"
+     * @param length the length of the instruction, without a closing '?', in bytes
+     */
+    default void processingInstruction(ByteBuffer buffer, int offset, int length) {
+    }
+
+    /**
+     * Called for each further line or piece of a processing instruction, after
+     * {@link #processingInstruction(ByteBuffer, int, int)} was called for its first part.
+     *
+     * @param buffer the buffer holding the instruction
+     * @param offset the index of the first byte of the part
+     * @param length the length of the part, without a closing '?', in bytes
+     */
+    default void continueProcessingInstruction(ByteBuffer buffer, int offset, int length) {
+    }
+}
@@ -0,0 +1,97 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * DelimiterScanner.java
+ *
+ * Finds the next byte the tokenizer has to look at: '&lt;', '&gt;', '\n' or '\r'.
+ * Everything else (names, attribute values and text) only needs to be skipped, so the
+ * bytes are tested eight at a time as a long, using the SWAR ("SIMD within a register")
+ * trick of turning each byte that equals a delimiter into a set high bit. The test is
+ * exact, with no carries between bytes, so the first set bit is the first delimiter.
+ *
+ * <p>The scalar loop finishes the last few bytes of a window and serves as a fallback:
+ * setting the system property {@code utilities.scalarScan} to true makes
+ * every scan use it. Both give the same results.</p>
+ */
+public final class DelimiterScanner {
+    /** True to test one byte at a time, for comparison or on platforms where it is faster. */
+    private static final boolean SCALAR = Boolean.getBoolean("utilities.scalarScan");
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long ANGLE_BRACKETS = 0x3E * ONES; // '>' matches '<' once bit 1 is set
+    private static final long BIT_ONE = 0x02 * ONES;
+    private static final long LINE_FEEDS = '\n' * ONES;
+    private static final long CARRIAGE_RETURNS = '\r' * ONES;
+
+    /**
+     * Prevents instantiation; the scanner only has static methods.
+     */
+    private DelimiterScanner() {
+    }
+
+    /**
+     * Finds the first delimiter at or after an index.
+     *
+     * @param window the bytes to scan, by absolute index
+     * @param from the index to start at
+     * @param limit the index to stop at
+     * @return the index of the first '&lt;', '&gt;', '\n' or '\r', or limit if there is none
+     */
+    public static int indexOfDelimiter(ByteBuffer window, int from, int limit) {
+        if (SCALAR) {
+            return indexOfDelimiterScalar(window, from, limit);
+        }
+        int index = from;
+        // Bytes are read most significant first, so the first byte in memory is the
+        // highest byte of the long whatever the buffer's byte order.
+        boolean bigEndian = window.order() == ByteOrder.BIG_ENDIAN;
+        while (index + Long.BYTES <= limit) {
+            long word = window.getLong(index);
+            if (!bigEndian) {
+                word = Long.reverseBytes(word);
+            }
+            long found = zeroBytes((word | BIT_ONE) ^ ANGLE_BRACKETS)
+                    | zeroBytes(word ^ LINE_FEEDS)
+                    | zeroBytes(word ^ CARRIAGE_RETURNS);
+            if (found != 0) {
+                return index + (Long.numberOfLeadingZeros(found) >>> 3);
+            }
+            index += Long.BYTES;
+        }
+        return indexOfDelimiterScalar(window, index, limit);
+    }
+
+    /**
+     * Finds the first delimiter at or after an index, one byte at a time.
+     *
+     * @param window the bytes to scan, by absolute index
+     * @param from the index to start at
+     * @param limit the index to stop at
+     * @return the index of the first '&lt;', '&gt;', '\n' or '\r', or limit if there is none
+     */
+    public static int indexOfDelimiterScalar(ByteBuffer window, int from, int limit) {
+        int index = from;
+        while (index < limit) {
+            byte b = window.get(index);
+            if (b == '<' || b == '>' || b == '\n' || b == '\r') {
+                return index;
+            }
+            index++;
+        }
+        return limit;
+    }
+
+    /**
+     * Marks the bytes of a long that are zero.
+     *
+     * @param x the bytes
+     * @return a long with the high bit of every zero byte set and every other bit clear
+     */
+    private static long zeroBytes(long x) {
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+}
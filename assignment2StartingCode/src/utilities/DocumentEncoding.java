@@ -0,0 +1,418 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+
+/**
+ * DocumentEncoding.java
+ *
+ * The encodings a document can be read in, and the conversion of each to the UTF-8 the
+ * tokenizer works on. The encoding is found from the first bytes of the document: a
+ * byte order mark, the zero bytes of a tag written in UTF-16, or the encoding named by the
+ * XML declaration. Documents in UTF-8 are passed through untouched; the others are
+ * converted a block at a time, with runs of ASCII copied a word at a time.
+ *
+ * <p>Line and column numbers are those of the converted document, so columns count
+ * UTF-8 bytes whatever the encoding of the file.</p>
+ */
+public enum DocumentEncoding {
+    /** UTF-8, or any encoding whose bytes are read as UTF-8, such as ASCII. */
+    UTF_8,
+    /** UTF-16, least significant byte first. */
+    UTF_16LE,
+    /** UTF-16, most significant byte first. */
+    UTF_16BE,
+    /** ISO-8859-1, where every byte is the character of the same value. */
+    ISO_8859_1;
+
+    /** The number of bytes at the start of a document that are searched for its encoding. */
+    public static final int DETECT_LENGTH = 256;
+
+    /** The most bytes one step of a conversion writes: a character outside the BMP. */
+    static final int MAX_CHAR_LENGTH = 4;
+
+    /** The high bit of every byte of a long; a byte with it set is not ASCII. */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    /** The bits of four big-endian UTF-16 units that are clear when all four are ASCII. */
+    private static final long NON_ASCII_UNITS = 0xFF80FF80FF80FF80L;
+
+    private static final byte[] DECLARATION = { '<', '?', 'x', 'm', 'l' };
+    private static final byte[] ENCODING = { 'e', 'n', 'c', 'o', 'd', 'i', 'n', 'g' };
+
+    /**
+     * Finds the encoding of a document from its first bytes, between the buffer's
+     * position and limit. The buffer's position is not changed. A byte order mark
+     * decides the encoding; without one, a document that starts with a tag in UTF-16 is
+     * read as UTF-16, and any other is read in the encoding its XML declaration
+     * names, as long as that is ISO-8859-1. Everything else is read as UTF-8.
+     *
+     * @param document the document, or at least its first {@link #DETECT_LENGTH} bytes
+     * @return the encoding to read the document in
+     */
+    public static DocumentEncoding detect(ByteBuffer document) {
+        int start = document.position();
+        int available = document.remaining();
+        int first = available > 0 ? document.get(start) & 0xFF : -1;
+        int second = available > 1 ? document.get(start + 1) & 0xFF : -1;
+        if (first == 0xFE && second == 0xFF) {
+            return UTF_16BE;
+        }
+        if (first == 0xFF && second == 0xFE) {
+            return UTF_16LE;
+        }
+        if (available >= 4 && first == '<' && second == 0
+                && document.get(start + 2) != 0 && document.get(start + 3) == 0) {
+            return UTF_16LE;
+        }
+        if (available >= 4 && first == 0 && second == '<'
+                && document.get(start + 2) == 0 && document.get(start + 3) != 0) {
+            return UTF_16BE;
+        }
+        return declaredEncoding(document, start + UTF_8.byteOrderMarkLength(document),
+                start + Math.min(available, DETECT_LENGTH));
+    }
+
+    /**
+     * Returns the length of the byte order mark of this encoding at the buffer's
+     * position, so the caller can skip it.
+     *
+     * @param document the document
+     * @return the length of the byte order mark, or 0 if the document does not start
+     *         with one
+     */
+    public int byteOrderMarkLength(ByteBuffer document) {
+        int start = document.position();
+        int available = document.remaining();
+        switch (this) {
+            case UTF_8:
+                return available >= 3 && document.get(start) == (byte) 0xEF
+                        && document.get(start + 1) == (byte) 0xBB && document.get(start + 2) == (byte) 0xBF ? 3 : 0;
+            case UTF_16LE:
+                return available >= 2 && document.get(start) == (byte) 0xFF && document.get(start + 1) == (byte) 0xFE
+                        ? 2 : 0;
+            case UTF_16BE:
+                return available >= 2 && document.get(start) == (byte) 0xFE && document.get(start + 1) == (byte) 0xFF
+                        ? 2 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Converts bytes in this encoding to UTF-8, from the source's position up to its
+     * limit, into the target from its position up to its limit. Conversion stops when
+     * the source is used up or the next character does not fit in the target, and both
+     * positions are moved past what was converted. A character split at the end of the
+     * source is left there to be completed by the next block, unless it is the end of
+     * the input; bytes that are not a character become U+FFFD.
+     *
+     * @param source the bytes to convert
+     * @param target the buffer to write the UTF-8 bytes to
+     * @param endOfInput true if no more bytes follow the source
+     * @throws IllegalStateException if this is UTF-8, which needs no conversion
+     */
+    public void decode(ByteBuffer source, ByteBuffer target, boolean endOfInput) {
+        switch (this) {
+            case ISO_8859_1:
+                decodeLatin1(source, target);
+                break;
+            case UTF_16LE:
+            case UTF_16BE:
+                decodeUtf16(source, target, endOfInput, this == UTF_16LE);
+                break;
+            default:
+                throw new IllegalStateException("UTF-8 is read without conversion.");
+        }
+    }
+
+    /**
+     * Reads the encoding named by the XML declaration at the start of a document.
+     *
+     * @param document the document
+     * @param start the index of the first byte after any byte order mark
+     * @param limit the index to stop searching at
+     * @return ISO_8859_1 if the declaration names it, and UTF_8 otherwise
+     */
+    private static DocumentEncoding declaredEncoding(ByteBuffer document, int start, int limit) {
+        if (!startsWith(document, start, limit, DECLARATION)) {
+            return UTF_8;
+        }
+        for (int index = start + DECLARATION.length; index < limit; index++) {
+            byte b = document.get(index);
+            if (b == '>') {
+                return UTF_8;
+            }
+            if (b == 'e' && startsWith(document, index, limit, ENCODING)) {
+                return byName(declaredName(document, index + ENCODING.length, limit));
+            }
+        }
+        return UTF_8;
+    }
+
+    /**
+     * Reads the quoted value after the name of an attribute of the declaration.
+     *
+     * @param document the document
+     * @param index the index just past the attribute's name
+     * @param limit the index to stop at
+     * @return the value, or null if it is not complete before the limit
+     */
+    private static String declaredName(ByteBuffer document, int index, int limit) {
+        index = skipSpaces(document, index, limit);
+        if (index >= limit || document.get(index) != '=') {
+            return null;
+        }
+        index = skipSpaces(document, index + 1, limit);
+        if (index >= limit || (document.get(index) != '"' && document.get(index) != '\'')) {
+            return null;
+        }
+        byte quote = document.get(index);
+        int valueStart = index + 1;
+        for (int end = valueStart; end < limit; end++) {
+            if (document.get(end) == quote) {
+                byte[] value = new byte[end - valueStart];
+                document.get(valueStart, value);
+                return new String(value, StandardCharsets.ISO_8859_1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps the name of a declared encoding, or any of its aliases, to an encoding.
+     *
+     * @param name the declared name, or null
+     * @return ISO_8859_1 for that encoding, and UTF_8 for any other
+     */
+    private static DocumentEncoding byName(String name) {
+        if (name == null) {
+            return UTF_8;
+        }
+        try {
+            return StandardCharsets.ISO_8859_1.equals(Charset.forName(name)) ? ISO_8859_1 : UTF_8;
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return UTF_8;
+        }
+    }
+
+    /**
+     * Tests if the bytes at an index are the given bytes.
+     *
+     * @param document the document
+     * @param index the index to compare at
+     * @param limit the index to stop at
+     * @param prefix the bytes to compare with
+     * @return true if all of prefix is found before the limit
+     */
+    private static boolean startsWith(ByteBuffer document, int index, int limit, byte[] prefix) {
+        if (limit - index < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (document.get(index + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips the white space the declaration allows around '='.
+     *
+     * @param document the document
+     * @param index the index to start at
+     * @param limit the index to stop at
+     * @return the index of the first byte that is not white space, or limit
+     */
+    private static int skipSpaces(ByteBuffer document, int index, int limit) {
+        while (index < limit) {
+            byte b = document.get(index);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Converts ISO-8859-1 to UTF-8. Eight bytes that are all ASCII are copied as one
+     * long; a byte of 0x80 or more becomes two.
+     *
+     * @param source the bytes to convert
+     * @param target the buffer to write to
+     */
+    private static void decodeLatin1(ByteBuffer source, ByteBuffer target) {
+        int in = source.position();
+        int inEnd = source.limit();
+        int out = target.position();
+        int outEnd = target.limit();
+        while (in < inEnd) {
+            if (in + Long.BYTES <= inEnd && out + Long.BYTES <= outEnd) {
+                long word = source.getLong(in);
+                if ((word & HIGH_BITS) == 0) {
+                    target.putLong(out, inOrder(word, source, target));
+                    in += Long.BYTES;
+                    out += Long.BYTES;
+                    continue;
+                }
+            }
+            int c = source.get(in) & 0xFF;
+            if (c < 0x80) {
+                if (out == outEnd) {
+                    break;
+                }
+                target.put(out++, (byte) c);
+            } else {
+                if (out + 2 > outEnd) {
+                    break;
+                }
+                target.put(out++, (byte) (0xC0 | c >>> 6));
+                target.put(out++, (byte) (0x80 | c & 0x3F));
+            }
+            in++;
+        }
+        source.position(in);
+        target.position(out);
+    }
+
+    /**
+     * Converts UTF-16 to UTF-8. Four units that are all ASCII are turned into four bytes
+     * at once; surrogate pairs become one four-byte character.
+     *
+     * @param source the bytes to convert
+     * @param target the buffer to write to
+     * @param endOfInput true if no more bytes follow the source
+     * @param littleEndian true for UTF-16LE
+     */
+    private static void decodeUtf16(ByteBuffer source, ByteBuffer target, boolean endOfInput, boolean littleEndian) {
+        int in = source.position();
+        int inEnd = source.limit();
+        int out = target.position();
+        int outEnd = target.limit();
+        while (in + 2 <= inEnd) {
+            if (in + Long.BYTES <= inEnd && out + Integer.BYTES <= outEnd) {
+                long word = source.order() == ByteOrder.BIG_ENDIAN
+                        ? source.getLong(in) : Long.reverseBytes(source.getLong(in));
+                if (littleEndian) {
+                    // Moving each unit's low byte up makes it read as big-endian.
+                    word = word >>> 8 | word << 56;
+                }
+                if ((word & NON_ASCII_UNITS) == 0) {
+                    int ascii = (int) ((word >>> 24 & 0xFF000000L) | (word >>> 16 & 0xFF0000L)
+                            | (word >>> 8 & 0xFF00L) | (word & 0xFFL));
+                    target.putInt(out, target.order() == ByteOrder.BIG_ENDIAN ? ascii : Integer.reverseBytes(ascii));
+                    in += Long.BYTES;
+                    out += Integer.BYTES;
+                    continue;
+                }
+            }
+            int c = unit(source, in, littleEndian);
+            int units = 1;
+            if (Character.isHighSurrogate((char) c)) {
+                if (in + 4 > inEnd && !endOfInput) {
+                    break;
+                }
+                int low = in + 4 <= inEnd ? unit(source, in + 2, littleEndian) : -1;
+                if (Character.isLowSurrogate((char) low)) {
+                    c = Character.toCodePoint((char) c, (char) low);
+                    units = 2;
+                } else {
+                    c = 0xFFFD;
+                }
+            } else if (Character.isLowSurrogate((char) c)) {
+                c = 0xFFFD;
+            }
+            int written = encode(c, target, out, outEnd);
+            if (written == 0) {
+                break;
+            }
+            in += units * 2;
+            out += written;
+        }
+        if (endOfInput && in + 1 == inEnd) {
+            int written = encode(0xFFFD, target, out, outEnd);
+            if (written > 0) {
+                in++;
+                out += written;
+            }
+        }
+        source.position(in);
+        target.position(out);
+    }
+
+    /**
+     * Reads one UTF-16 unit.
+     *
+     * @param source the bytes
+     * @param index the index of the unit's first byte
+     * @param littleEndian true for UTF-16LE
+     * @return the unit
+     */
+    private static int unit(ByteBuffer source, int index, boolean littleEndian) {
+        int first = source.get(index) & 0xFF;
+        int second = source.get(index + 1) & 0xFF;
+        return littleEndian ? second << 8 | first : first << 8 | second;
+    }
+
+    /**
+     * Writes the UTF-8 bytes of a code point.
+     *
+     * @param c the code point
+     * @param target the buffer to write to
+     * @param out the index to write at
+     * @param outEnd the index to stop at
+     * @return the number of bytes written, or 0 if they do not fit
+     */
+    private static int encode(int c, ByteBuffer target, int out, int outEnd) {
+        if (c < 0x80) {
+            if (out + 1 > outEnd) {
+                return 0;
+            }
+            target.put(out, (byte) c);
+            return 1;
+        }
+        if (c < 0x800) {
+            if (out + 2 > outEnd) {
+                return 0;
+            }
+            target.put(out, (byte) (0xC0 | c >>> 6));
+            target.put(out + 1, (byte) (0x80 | c & 0x3F));
+            return 2;
+        }
+        if (c < 0x10000) {
+            if (out + 3 > outEnd) {
+                return 0;
+            }
+            target.put(out, (byte) (0xE0 | c >>> 12));
+            target.put(out + 1, (byte) (0x80 | c >>> 6 & 0x3F));
+            target.put(out + 2, (byte) (0x80 | c & 0x3F));
+            return 3;
+        }
+        if (out + 4 > outEnd) {
+            return 0;
+        }
+        target.put(out, (byte) (0xF0 | c >>> 18));
+        target.put(out + 1, (byte) (0x80 | c >>> 12 & 0x3F));
+        target.put(out + 2, (byte) (0x80 | c >>> 6 & 0x3F));
+        target.put(out + 3, (byte) (0x80 | c & 0x3F));
+        return 4;
+    }
+
+    /**
+     * Reorders a long read from one buffer so that writing it to another gives the same
+     * bytes, whatever the byte orders of the two buffers.
+     *
+     * @param word the long as read from the source
+     * @param source the buffer it was read from
+     * @param target the buffer it will be written to
+     * @return the long to write
+     */
+    private static long inOrder(long word, ByteBuffer source, ByteBuffer target) {
+        return source.order() == target.order() ? word : Long.reverseBytes(word);
+    }
+}
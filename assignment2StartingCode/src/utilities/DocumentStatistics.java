@@ -0,0 +1,183 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * DocumentStatistics.java
+ *
+ * Counts the structure of a document while it is validated: elements, their depth,
+ * attributes, bytes of text, comments and processing instructions, and the number of
+ * elements with each tag name. Every count is a primitive; the per-name counts are an
+ * int array indexed by the name's id in the statistics' own {@link SymbolTable}, so
+ * counting an element costs one table lookup and no allocation once every name has
+ * been seen.
+ *
+ * <p>Depth follows the checker: a top-level element has depth 1, and a closing tag ends
+ * the innermost open element whatever its name. If the validation stopped early, the
+ * counts cover only the part of the document that was read.</p>
+ */
+public class DocumentStatistics implements ContentHandler {
+    private final SymbolTable symbols = new SymbolTable();
+    private int[] tagCounts = new int[64];
+    private long elements;
+    private long depthTotal;
+    private int depth;
+    private int maxDepth;
+    private long attributes;
+    private long textBytes;
+    private long comments;
+    private long processingInstructions;
+
+    /**
+     * Clears every count so the statistics can be used for another document. The tag
+     * names are kept, so their ids stay the same.
+     */
+    public void reset() {
+        Arrays.fill(tagCounts, 0);
+        elements = 0;
+        depthTotal = 0;
+        depth = 0;
+        maxDepth = 0;
+        attributes = 0;
+        textBytes = 0;
+        comments = 0;
+        processingInstructions = 0;
+    }
+
+    @Override
+    public void startElement(ByteBuffer buffer, int nameOffset, int nameLength, Attributes tagAttributes) {
+        int id = symbols.intern(buffer, nameOffset, nameLength);
+        if (id >= tagCounts.length) {
+            tagCounts = Arrays.copyOf(tagCounts, Math.max(tagCounts.length * 2, id + 1));
+        }
+        tagCounts[id]++;
+        elements++;
+        depth++;
+        depthTotal += depth;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        attributes += tagAttributes.getLength();
+    }
+
+    @Override
+    public void endElement(ByteBuffer buffer, int nameOffset, int nameLength) {
+        if (depth > 0) {
+            depth--;
+        }
+    }
+
+    @Override
+    public void text(ByteBuffer buffer, int offset, int length) {
+        textBytes += length;
+    }
+
+    @Override
+    public void comment(ByteBuffer buffer, int offset, int length) {
+        comments++;
+    }
+
+    @Override
+    public void processingInstruction(ByteBuffer buffer, int offset, int length) {
+        processingInstructions++;
+    }
+
+    /**
+     * Returns the number of elements, counting self-closing tags.
+     *
+     * @return the number of elements
+     */
+    public long getElementCount() {
+        return elements;
+    }
+
+    /**
+     * Returns the depth of the most deeply nested element.
+     *
+     * @return the largest depth, or 0 if there are no elements
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the average depth of the elements.
+     *
+     * @return the average depth, or 0 if there are no elements
+     */
+    public double getAverageDepth() {
+        return elements == 0 ? 0 : (double) depthTotal / elements;
+    }
+
+    /**
+     * Returns the number of attributes of all elements.
+     *
+     * @return the number of attributes
+     */
+    public long getAttributeCount() {
+        return attributes;
+    }
+
+    /**
+     * Returns the number of bytes of text between tags, not counting line breaks.
+     *
+     * @return the number of bytes of text
+     */
+    public long getTextBytes() {
+        return textBytes;
+    }
+
+    /**
+     * Returns the number of comments.
+     *
+     * @return the number of comments
+     */
+    public long getCommentCount() {
+        return comments;
+    }
+
+    /**
+     * Returns the number of processing instructions, including the XML declaration.
+     *
+     * @return the number of processing instructions
+     */
+    public long getProcessingInstructionCount() {
+        return processingInstructions;
+    }
+
+    /**
+     * Returns the table of tag names. Ids run from 0 to its size; a name seen in an
+     * earlier document may have a count of 0.
+     *
+     * @return the symbol table of tag names
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Returns the number of elements with a tag name.
+     *
+     * @param id the id of the name in {@link #getSymbols()}
+     * @return the number of elements with that name
+     * @throws IndexOutOfBoundsException if no name has that id
+     */
+    public int getTagCount(int id) {
+        if (id < 0 || id >= symbols.size()) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        return tagCounts[id];
+    }
+
+    /**
+     * Returns the number of elements with a tag name.
+     *
+     * @param name the tag name
+     * @return the number of elements with that name, or 0 if there are none
+     */
+    public int getTagCount(String name) {
+        int id = symbols.lookup(name);
+        return id < 0 ? 0 : getTagCount(id);
+    }
+}
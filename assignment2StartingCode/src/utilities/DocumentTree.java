@@ -0,0 +1,463 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * DocumentTree.java
+ *
+ * A read-only tree of a document for callers that need to move around its structure
+ * after it has been validated. Every node is a record in parallel int arrays: its kind,
+ * parent, first child, next sibling, name id, and the position of its name or text in
+ * the document, which the tree keeps and refers to rather than copying. A node costs
+ * about 25 bytes however many attributes or how much text it has, so the tree takes a
+ * small multiple of the node count on top of the document itself.
+ *
+ * <p>Node 0 is the document; its children are the top-level elements, text, comments
+ * and processing instructions. Links that lead nowhere are -1. Element names are ids in
+ * the tree's {@link SymbolTable}.</p>
+ *
+ * <p>The tree is built with the validator's line rules, and its shape follows the
+ * checker's: a closing tag ends the innermost open element even when the names differ,
+ * a closing tag with no element open is ignored, and elements still open at the end of
+ * the document keep their children. Text never spans lines, and a tag reported as an
+ * error adds no nodes.</p>
+ */
+public class DocumentTree {
+    /** The document itself, node 0. */
+    public static final int DOCUMENT = 0;
+
+    /** An element, from an opening or self-closing tag. */
+    public static final int ELEMENT = 1;
+
+    /** Text between tags, or between a tag and the end of its line. */
+    public static final int TEXT = 2;
+
+    /** A comment; its text excludes the "&lt;!--" and "--&gt;". */
+    public static final int COMMENT = 3;
+
+    /** A processing instruction; its text excludes the "&lt;?" and "?&gt;". */
+    public static final int PROCESSING_INSTRUCTION = 4;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final ByteBuffer document;
+    private final SymbolTable symbols = new SymbolTable();
+    private final Attributes attributes = new Attributes();
+    private byte[] kinds = new byte[DEFAULT_CAPACITY];
+    private int[] parents = new int[DEFAULT_CAPACITY];
+    private int[] firstChildren = new int[DEFAULT_CAPACITY];
+    private int[] nextSiblings = new int[DEFAULT_CAPACITY];
+    private int[] names = new int[DEFAULT_CAPACITY];
+    private int[] offsets = new int[DEFAULT_CAPACITY];
+    private int[] lengths = new int[DEFAULT_CAPACITY];
+    private int size;
+    private int errorCount;
+
+    /**
+     * Creates an empty tree over a document.
+     *
+     * @param document the document the nodes refer to
+     */
+    private DocumentTree(ByteBuffer document) {
+        this.document = document;
+    }
+
+    /**
+     * Validates a document held in memory and builds its tree with a new validator.
+     *
+     * @param document the document; the tree refers to it, so it must not be changed
+     * @return the tree
+     */
+    public static DocumentTree build(byte[] document) {
+        return build(document, new XMLValidator());
+    }
+
+    /**
+     * Validates a document held in memory and builds its tree.
+     *
+     * @param document the document; the tree refers to it, so it must not be changed
+     * @param validator the validator to check the document with
+     * @return the tree
+     */
+    public static DocumentTree build(byte[] document, XMLValidator validator) {
+        DocumentTree tree = new DocumentTree(ByteBuffer.wrap(document));
+        Builder builder = tree.new Builder();
+        tree.errorCount = validator.validate(tree.document, builder).getErrorCount();
+        tree.trim();
+        return tree;
+    }
+
+    /**
+     * Reads a file into memory, validates it and builds its tree.
+     *
+     * @param file the file to read
+     * @return the tree
+     * @throws IOException if the file cannot be read
+     */
+    public static DocumentTree build(Path file) throws IOException {
+        return build(new ChannelReader().readFully(file));
+    }
+
+    /**
+     * Returns the number of nodes, including the document node.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tests if the document the tree was built from has no errors.
+     *
+     * @return true if the validator found no errors
+     */
+    public boolean isWellFormed() {
+        return errorCount == 0;
+    }
+
+    /**
+     * Returns the number of errors the validator found in the document.
+     *
+     * @return the number of errors
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Returns the kind of a node.
+     *
+     * @param node the node
+     * @return one of {@link #DOCUMENT}, {@link #ELEMENT}, {@link #TEXT}, {@link #COMMENT}
+     *         and {@link #PROCESSING_INSTRUCTION}
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public int kind(int node) {
+        return kinds[checkNode(node)];
+    }
+
+    /**
+     * Returns the parent of a node.
+     *
+     * @param node the node
+     * @return the parent, or -1 for the document
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public int parent(int node) {
+        return parents[checkNode(node)];
+    }
+
+    /**
+     * Returns the first child of a node.
+     *
+     * @param node the node
+     * @return the first child, or -1 if the node has none
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public int firstChild(int node) {
+        return firstChildren[checkNode(node)];
+    }
+
+    /**
+     * Returns the next sibling of a node.
+     *
+     * @param node the node
+     * @return the next child of the node's parent, or -1 if the node is the last
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public int nextSibling(int node) {
+        return nextSiblings[checkNode(node)];
+    }
+
+    /**
+     * Returns the first child of a node that is an element.
+     *
+     * @param node the node
+     * @return the first element child, or -1 if the node has none
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public int firstElement(int node) {
+        return skipToElement(firstChild(node));
+    }
+
+    /**
+     * Returns the next sibling of a node that is an element.
+     *
+     * @param node the node
+     * @return the next element sibling, or -1 if there is none
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public int nextElement(int node) {
+        return skipToElement(nextSibling(node));
+    }
+
+    /**
+     * Returns the name id of an element.
+     *
+     * @param node the node
+     * @return the id of the element's name in {@link #getSymbols()}, or -1 for other nodes
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public int nameId(int node) {
+        return names[checkNode(node)];
+    }
+
+    /**
+     * Returns the name of an element.
+     *
+     * @param node the node
+     * @return the tag name, or null for other nodes
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public String name(int node) {
+        int name = names[checkNode(node)];
+        return name < 0 ? null : symbols.name(name);
+    }
+
+    /**
+     * Returns the text of a text, comment or processing instruction node as a view of
+     * the document.
+     *
+     * @param node the node
+     * @return the text, or null for the document and elements
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public CharSequence text(int node) {
+        if (kinds[checkNode(node)] <= ELEMENT) {
+            return null;
+        }
+        return new ByteSequence(document, offsets[node], lengths[node]);
+    }
+
+    /**
+     * Returns the attributes of an element. The same accessor is returned for every
+     * element, so it is only valid until the next call; the tree is otherwise safe to
+     * read from several threads.
+     *
+     * @param node the node
+     * @return the attributes, or null for other nodes
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public Attributes attributes(int node) {
+        if (kinds[checkNode(node)] != ELEMENT) {
+            return null;
+        }
+        attributes.set(document, offsets[node] + lengths[node]);
+        return attributes;
+    }
+
+    /**
+     * Returns the value of an attribute of an element.
+     *
+     * @param node the node
+     * @param attributeName the name of the attribute
+     * @return the value, or null if the node is not an element or has no such attribute
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    public CharSequence attribute(int node, CharSequence attributeName) {
+        Attributes nodeAttributes = attributes(node);
+        if (nodeAttributes == null) {
+            return null;
+        }
+        int index = nodeAttributes.getIndex(attributeName);
+        if (index < 0) {
+            return null;
+        }
+        return new ByteSequence(document, nodeAttributes.getValueOffset(index), nodeAttributes.getValueLength(index));
+    }
+
+    /**
+     * Returns the table of element names.
+     *
+     * @return the symbol table the name ids refer to
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Returns the document the tree refers to.
+     *
+     * @return a read-only view of the document
+     */
+    public ByteBuffer getDocument() {
+        return document.asReadOnlyBuffer();
+    }
+
+    /**
+     * Skips ahead from a node to the first element among it and its next siblings.
+     *
+     * @param node the node to start from, or -1
+     * @return the element, or -1 if there is none
+     */
+    private int skipToElement(int node) {
+        while (node >= 0 && kinds[node] != ELEMENT) {
+            node = nextSiblings[node];
+        }
+        return node;
+    }
+
+    /**
+     * Adds a node with no children or siblings yet.
+     *
+     * @param kind the kind of node
+     * @param parent the parent of the node
+     * @param name the name id, or -1
+     * @param offset the position of the name or text in the document
+     * @param length the length of the name or text
+     * @return the new node
+     */
+    private int add(int kind, int parent, int name, int offset, int length) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            names = Arrays.copyOf(names, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        kinds[size] = (byte) kind;
+        parents[size] = parent;
+        firstChildren[size] = -1;
+        nextSiblings[size] = -1;
+        names[size] = name;
+        offsets[size] = offset;
+        lengths[size] = length;
+        return size++;
+    }
+
+    /**
+     * Shrinks the arrays to the number of nodes once the tree is complete.
+     */
+    private void trim() {
+        kinds = Arrays.copyOf(kinds, size);
+        parents = Arrays.copyOf(parents, size);
+        firstChildren = Arrays.copyOf(firstChildren, size);
+        nextSiblings = Arrays.copyOf(nextSiblings, size);
+        names = Arrays.copyOf(names, size);
+        offsets = Arrays.copyOf(offsets, size);
+        lengths = Arrays.copyOf(lengths, size);
+    }
+
+    /**
+     * Checks that a node exists.
+     *
+     * @param node the node
+     * @return the node
+     * @throws IndexOutOfBoundsException if there is no such node
+     */
+    private int checkNode(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        return node;
+    }
+
+    /**
+     * Adds a node for every piece of content, keeping a stack of the open elements and
+     * the last child of each so new nodes can be linked in constant time.
+     */
+    private class Builder implements ContentHandler {
+        private int[] open = new int[16];
+        private int[] lastChildren = new int[16];
+        private int depth;
+
+        /**
+         * Creates a builder whose only open node is the document.
+         */
+        Builder() {
+            add(DOCUMENT, -1, -1, 0, 0);
+            open[0] = 0;
+            lastChildren[0] = -1;
+            depth = 1;
+        }
+
+        @Override
+        public void startElement(ByteBuffer buffer, int nameOffset, int nameLength, Attributes tagAttributes) {
+            int node = append(ELEMENT, symbols.intern(buffer, nameOffset, nameLength), nameOffset, nameLength);
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+                lastChildren = Arrays.copyOf(lastChildren, depth * 2);
+            }
+            open[depth] = node;
+            lastChildren[depth] = -1;
+            depth++;
+        }
+
+        @Override
+        public void endElement(ByteBuffer buffer, int nameOffset, int nameLength) {
+            if (depth > 1) {
+                depth--;
+            }
+        }
+
+        @Override
+        public void text(ByteBuffer buffer, int offset, int length) {
+            append(TEXT, -1, offset, length);
+        }
+
+        @Override
+        public void comment(ByteBuffer buffer, int offset, int length) {
+            append(COMMENT, -1, offset, length);
+        }
+
+        @Override
+        public void processingInstruction(ByteBuffer buffer, int offset, int length) {
+            append(PROCESSING_INSTRUCTION, -1, offset, length);
+        }
+
+        @Override
+        public void continueText(ByteBuffer buffer, int offset, int length) {
+            extend(offset + length);
+        }
+
+        @Override
+        public void continueComment(ByteBuffer buffer, int offset, int length) {
+            extend(offset + length);
+        }
+
+        @Override
+        public void continueProcessingInstruction(ByteBuffer buffer, int offset, int length) {
+            extend(offset + length);
+        }
+
+        /**
+         * Stretches the last node added, the text, comment or instruction being
+         * continued, so it runs to the end of its next part.
+         *
+         * @param end the position just past the node's text
+         */
+        private void extend(int end) {
+            int node = lastChildren[depth - 1];
+            lengths[node] = end - offsets[node];
+        }
+
+        /**
+         * Adds a node as the last child of the innermost open node.
+         *
+         * @param kind the kind of node
+         * @param name the name id, or -1
+         * @param offset the position of the name or text
+         * @param length the length of the name or text
+         * @return the new node
+         */
+        private int append(int kind, int name, int offset, int length) {
+            int parent = open[depth - 1];
+            int node = add(kind, parent, name, offset, length);
+            int previous = lastChildren[depth - 1];
+            if (previous < 0) {
+                firstChildren[parent] = node;
+            } else {
+                nextSiblings[previous] = node;
+            }
+            lastChildren[depth - 1] = node;
+            return node;
+        }
+    }
+}
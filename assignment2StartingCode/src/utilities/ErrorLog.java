@@ -0,0 +1,313 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * ErrorLog.java
+ *
+ * The errors found in a document, in the order they were found. Each error is a small
+ * record kept in parallel primitive arrays: its kind, line and column, the id of the tag
+ * name it concerns, and, for errors that quote markup, the position of the quoted text
+ * in a shared byte array. Recording an error therefore allocates nothing beyond the
+ * occasional growth of the arrays, and the message text is only built when the log is
+ * printed.
+ *
+ * <p>Tag names are ids in the {@link SymbolTable} the log was created with, so the
+ * table must not be cleared while the log is in use.</p>
+ */
+public class ErrorLog {
+    /** A tag followed straight away by a second '&gt;'; the error quotes both. */
+    public static final int INVALID_CLOSE_TAG = 0;
+
+    /**
+     * Markup not closed before the '&lt;' of the next tag or the end of the document; the
+     * error quotes it from its '&lt;' to the end of its first line, cut to
+     * {@link XMLTokenizer#MAX_QUOTE_LENGTH} bytes.
+     */
+    public static final int MALFORMED_TAG = 1;
+
+    /** A closing tag that does not match the innermost open tag, or finds none open. */
+    public static final int UNEXPECTED_CLOSE_TAG = 2;
+
+    /** An opening tag that is still open at the end of the document. */
+    public static final int UNCLOSED_TAG = 3;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final SymbolTable symbols;
+    private byte[] kinds = new byte[DEFAULT_CAPACITY];
+    private int[] lines = new int[DEFAULT_CAPACITY];
+    private int[] columns = new int[DEFAULT_CAPACITY];
+    private int[] names = new int[DEFAULT_CAPACITY];
+    private int[] textStarts = new int[DEFAULT_CAPACITY];
+    private int[] textLengths = new int[DEFAULT_CAPACITY];
+    private int size;
+
+    private byte[] text = new byte[256];
+    private int textLength;
+
+    /**
+     * Creates an empty log whose tag name ids refer to the given table.
+     *
+     * @param symbols the table holding the tag names
+     */
+    public ErrorLog(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Records an error about a tag.
+     *
+     * @param kind {@link #UNEXPECTED_CLOSE_TAG} or {@link #UNCLOSED_TAG}
+     * @param line the 1-based line of the tag
+     * @param column the 1-based column of the tag's '&lt;'
+     * @param name the id of the tag name
+     */
+    void addTagError(int kind, int line, int column, int name) {
+        int index = add(kind, line, column);
+        names[index] = name;
+        textStarts[index] = 0;
+        textLengths[index] = 0;
+    }
+
+    /**
+     * Records an error that quotes markup. The text is copied out of the window.
+     *
+     * @param kind {@link #INVALID_CLOSE_TAG} or {@link #MALFORMED_TAG}
+     * @param line the 1-based line the markup starts on
+     * @param window the window holding the quoted text
+     * @param start the index of the markup's '&lt;'
+     * @param length the length of the quoted text in bytes
+     */
+    void addLineError(int kind, int line, ByteBuffer window, int start, int length) {
+        int index = add(kind, line, 0);
+        names[index] = -1;
+        textStarts[index] = reserveText(length);
+        textLengths[index] = length;
+        window.get(start, text, textStarts[index], length);
+    }
+
+    /**
+     * Copies an error from another log, moving it down by a number of lines and mapping
+     * its tag name to this log's symbol table.
+     *
+     * @param other the log holding the error
+     * @param index the index of the error in the other log
+     * @param lineOffset the number of lines to add to the error's line
+     * @param nameIds the id in this log's table of every id in the other log's table
+     */
+    void addFrom(ErrorLog other, int index, int lineOffset, int[] nameIds) {
+        int copy = add(other.kinds[index], other.lines[index] + lineOffset, other.columns[index]);
+        int name = other.names[index];
+        names[copy] = name < 0 ? -1 : nameIds[name];
+        textLengths[copy] = other.textLengths[index];
+        textStarts[copy] = reserveText(textLengths[copy]);
+        System.arraycopy(other.text, other.textStarts[index], text, textStarts[copy], textLengths[copy]);
+    }
+
+    /**
+     * Returns the number of errors in the log.
+     *
+     * @return the number of errors
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tests if the log holds no errors.
+     *
+     * @return true if no errors have been recorded
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the kind of an error.
+     *
+     * @param index the index of the error
+     * @return one of {@link #INVALID_CLOSE_TAG}, {@link #MALFORMED_TAG},
+     *         {@link #UNEXPECTED_CLOSE_TAG} and {@link #UNCLOSED_TAG}
+     * @throws IndexOutOfBoundsException if there is no error at that index
+     */
+    public int kind(int index) {
+        return kinds[checkIndex(index)];
+    }
+
+    /**
+     * Returns the line of an error.
+     *
+     * @param index the index of the error
+     * @return the 1-based line number
+     * @throws IndexOutOfBoundsException if there is no error at that index
+     */
+    public int line(int index) {
+        return lines[checkIndex(index)];
+    }
+
+    /**
+     * Returns the column of the tag an error concerns.
+     *
+     * @param index the index of the error
+     * @return the 1-based column of the tag's '&lt;', or 0 for an error that quotes markup
+     * @throws IndexOutOfBoundsException if there is no error at that index
+     */
+    public int column(int index) {
+        return columns[checkIndex(index)];
+    }
+
+    /**
+     * Returns the name of the tag an error concerns.
+     *
+     * @param index the index of the error
+     * @return the tag name, or null for an error that quotes markup
+     * @throws IndexOutOfBoundsException if there is no error at that index
+     */
+    public String name(int index) {
+        int name = names[checkIndex(index)];
+        return name < 0 ? null : symbols.name(name);
+    }
+
+    /**
+     * Returns the markup an error quotes.
+     *
+     * @param index the index of the error
+     * @return the quoted markup, or null for an error about a tag
+     * @throws IndexOutOfBoundsException if there is no error at that index
+     */
+    public String text(int index) {
+        if (names[checkIndex(index)] >= 0) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(textLengths[index]);
+        appendText(index, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Returns the message of an error, as it appears in the printed error log.
+     *
+     * @param index the index of the error
+     * @return the error message
+     * @throws IndexOutOfBoundsException if there is no error at that index
+     */
+    public String message(int index) {
+        StringBuilder builder = new StringBuilder();
+        appendMessage(index, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the message of an error to a builder without creating intermediate Strings.
+     *
+     * @param index the index of the error
+     * @param builder the builder to append to
+     * @throws IndexOutOfBoundsException if there is no error at that index
+     */
+    public void appendMessage(int index, StringBuilder builder) {
+        switch (kind(index)) {
+            case INVALID_CLOSE_TAG:
+                builder.append("Invalid close tag at line ").append(lines[index]).append('\n');
+                appendText(index, builder);
+                break;
+            case MALFORMED_TAG:
+                builder.append("Error at line ").append(lines[index]).append(": Malformed tag\n");
+                appendText(index, builder);
+                break;
+            case UNEXPECTED_CLOSE_TAG:
+                builder.append("Error at line ").append(lines[index]).append(": </")
+                        .append(symbols.name(names[index])).append('>');
+                break;
+            default:
+                builder.append("Error at line ").append(lines[index]).append(": <")
+                        .append(symbols.name(names[index])).append('>');
+                break;
+        }
+    }
+
+    /**
+     * Passes every error in the log to a sink, in order.
+     *
+     * @param sink the sink to write the errors to
+     * @throws IOException if the sink cannot be written to
+     */
+    public void writeTo(ErrorSink sink) throws IOException {
+        for (int i = 0; i < size; i++) {
+            sink.error(this, i);
+        }
+    }
+
+    /**
+     * Removes every error. The arrays keep their capacity.
+     */
+    public void clear() {
+        size = 0;
+        textLength = 0;
+    }
+
+    /**
+     * Adds a record and fills in the fields every error has.
+     *
+     * @param kind the kind of error
+     * @param line the line of the error
+     * @param column the column of the error
+     * @return the index of the new record
+     */
+    private int add(int kind, int line, int column) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            names = Arrays.copyOf(names, capacity);
+            textStarts = Arrays.copyOf(textStarts, capacity);
+            textLengths = Arrays.copyOf(textLengths, capacity);
+        }
+        kinds[size] = (byte) kind;
+        lines[size] = line;
+        columns[size] = column;
+        return size++;
+    }
+
+    /**
+     * Makes room for quoted text at the end of the text array.
+     *
+     * @param length the length of the text in bytes
+     * @return the index the text is to be copied to
+     */
+    private int reserveText(int length) {
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+        }
+        int start = textLength;
+        textLength += length;
+        return start;
+    }
+
+    /**
+     * Appends the quoted markup of an error, decoded from UTF-8.
+     *
+     * @param index the index of the error
+     * @param builder the builder to append to
+     */
+    private void appendText(int index, StringBuilder builder) {
+        Utf8.append(text, textStarts[index], textLengths[index], builder);
+    }
+
+    /**
+     * Checks that an index refers to an error in the log.
+     *
+     * @param index the index of the error
+     * @return the index
+     * @throws IndexOutOfBoundsException if there is no error at that index
+     */
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,71 @@
+package utilities;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * ErrorSink.java
+ *
+ * Receives the results of validation as they are produced and writes them out in some
+ * format. For every document a sink is told where the document starts, then about each
+ * error in the order it was found, and finally how the document ended; a run over many
+ * documents may end with a summary. When statistics were gathered, they follow the end
+ * of the document. Implementations are expected to buffer their output and only write
+ * it through when flushed or when the buffer fills.
+ */
+public interface ErrorSink extends Flushable {
+
+    /**
+     * Called before the errors of a document.
+     *
+     * @param name the name of the document, such as its path, or null if it has none
+     * @throws IOException if the output cannot be written
+     */
+    void startDocument(String name) throws IOException;
+
+    /**
+     * Called for each error of the current document, in the order found.
+     *
+     * @param log the log holding the error; the record is only valid during the call
+     * @param index the index of the error in the log
+     * @throws IOException if the output cannot be written
+     */
+    void error(ErrorLog log, int index) throws IOException;
+
+    /**
+     * Called after the last error of a document that was read completely.
+     *
+     * @param errorCount the number of errors the document had
+     * @throws IOException if the output cannot be written
+     */
+    void endDocument(int errorCount) throws IOException;
+
+    /**
+     * Called instead of {@link #endDocument(int)} when the document could not be read.
+     *
+     * @param message the reason the document could not be read
+     * @throws IOException if the output cannot be written
+     */
+    void unreadable(String message) throws IOException;
+
+    /**
+     * Called once after many documents have been validated together.
+     *
+     * @param documents the number of documents
+     * @param wellFormed the number of documents without errors
+     * @param withErrors the number of documents with errors
+     * @param unreadable the number of documents that could not be read
+     * @throws IOException if the output cannot be written
+     */
+    void summary(int documents, int wellFormed, int withErrors, int unreadable) throws IOException;
+
+    /**
+     * Called after {@link #endDocument(int)} with the structure of the document, when
+     * statistics were asked for. Sinks that have no way to show them ignore them.
+     *
+     * @param statistics the statistics of the document
+     * @throws IOException if the output cannot be written
+     */
+    default void statistics(DocumentStatistics statistics) throws IOException {
+    }
+}
@@ -0,0 +1,198 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * JsonLinesErrorSink.java
+ *
+ * Writes results as JSON Lines: one JSON object per line, so a log pipeline can read
+ * each error as a record instead of parsing the text report. Every object has a "type"
+ * field:
+ *
+ * <ul>
+ * <li>{@code error}: one error, with its kind, line and column, and the tag name or the
+ * quoted line, plus the message of the text report.</li>
+ * <li>{@code document}: the end of a document, with its number of errors.</li>
+ * <li>{@code unreadable}: a document that could not be read, with the reason.</li>
+ * <li>{@code summary}: the totals of a run over many documents.</li>
+ * <li>{@code statistics}: the structure of a document, with a "tags" object of the
+ * number of elements with each name.</li>
+ * </ul>
+ *
+ * <p>Objects are built in a reused StringBuilder, so writing an error allocates little
+ * beyond the message text.</p>
+ */
+public class JsonLinesErrorSink implements ErrorSink {
+    private static final String[] KIND_NAMES = {
+        "invalid-close-tag", "malformed-tag", "unexpected-close-tag", "unclosed-tag"
+    };
+
+    private final Writer out;
+    private final StringBuilder record = new StringBuilder();
+    private final StringBuilder message = new StringBuilder();
+    private char[] chars = new char[256];
+    private String name;
+
+    /**
+     * Creates a sink that writes to the given writer.
+     *
+     * @param out the writer to write to; it should be buffered
+     */
+    public JsonLinesErrorSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void startDocument(String name) throws IOException {
+        this.name = name;
+    }
+
+    @Override
+    public void error(ErrorLog log, int index) throws IOException {
+        startRecord("error");
+        record.append(",\"kind\":\"").append(KIND_NAMES[log.kind(index)]).append('"');
+        record.append(",\"line\":").append(log.line(index));
+        record.append(",\"column\":").append(log.column(index));
+        String tag = log.name(index);
+        if (tag != null) {
+            record.append(",\"tag\":");
+            appendString(tag);
+        } else {
+            record.append(",\"text\":");
+            appendString(log.text(index));
+        }
+        message.setLength(0);
+        log.appendMessage(index, message);
+        record.append(",\"message\":");
+        appendString(message);
+        endRecord();
+    }
+
+    @Override
+    public void endDocument(int errorCount) throws IOException {
+        startRecord("document");
+        record.append(",\"errors\":").append(errorCount);
+        record.append(",\"wellFormed\":").append(errorCount == 0);
+        endRecord();
+    }
+
+    @Override
+    public void unreadable(String message) throws IOException {
+        startRecord("unreadable");
+        record.append(",\"message\":");
+        appendString(message);
+        endRecord();
+    }
+
+    @Override
+    public void summary(int documents, int wellFormed, int withErrors, int unreadable) throws IOException {
+        record.setLength(0);
+        record.append("{\"type\":\"summary\"");
+        record.append(",\"documents\":").append(documents);
+        record.append(",\"wellFormed\":").append(wellFormed);
+        record.append(",\"withErrors\":").append(withErrors);
+        record.append(",\"unreadable\":").append(unreadable);
+        endRecord();
+    }
+
+    @Override
+    public void statistics(DocumentStatistics statistics) throws IOException {
+        startRecord("statistics");
+        record.append(",\"elements\":").append(statistics.getElementCount());
+        record.append(",\"maxDepth\":").append(statistics.getMaxDepth());
+        record.append(",\"averageDepth\":").append(statistics.getAverageDepth());
+        record.append(",\"attributes\":").append(statistics.getAttributeCount());
+        record.append(",\"textBytes\":").append(statistics.getTextBytes());
+        record.append(",\"comments\":").append(statistics.getCommentCount());
+        record.append(",\"processingInstructions\":").append(statistics.getProcessingInstructionCount());
+        record.append(",\"tags\":{");
+        SymbolTable names = statistics.getSymbols();
+        boolean first = true;
+        for (int id = 0; id < names.size(); id++) {
+            int count = statistics.getTagCount(id);
+            if (count > 0) {
+                if (!first) {
+                    record.append(',');
+                }
+                appendString(names.name(id));
+                record.append(':').append(count);
+                first = false;
+            }
+        }
+        record.append('}');
+        endRecord();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Starts an object about the current document.
+     *
+     * @param type the type of the object
+     */
+    private void startRecord(String type) {
+        record.setLength(0);
+        record.append("{\"type\":\"").append(type).append("\",\"file\":");
+        if (name == null) {
+            record.append("null");
+        } else {
+            appendString(name);
+        }
+    }
+
+    /**
+     * Closes the object and writes it as one line.
+     *
+     * @throws IOException if the output cannot be written
+     */
+    private void endRecord() throws IOException {
+        record.append("}\n");
+        int length = record.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        record.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+    }
+
+    /**
+     * Appends a JSON string, escaping quotes, backslashes and control characters.
+     *
+     * @param text the text of the string
+     */
+    private void appendString(CharSequence text) {
+        record.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    record.append("\\\"");
+                    break;
+                case '\\':
+                    record.append("\\\\");
+                    break;
+                case '\n':
+                    record.append("\\n");
+                    break;
+                case '\r':
+                    record.append("\\r");
+                    break;
+                case '\t':
+                    record.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        record.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        record.append(c);
+                    }
+                    break;
+            }
+        }
+        record.append('"');
+    }
+}
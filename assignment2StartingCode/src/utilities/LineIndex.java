@@ -0,0 +1,137 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * LineIndex.java
+ *
+ * The offset of the first byte of every line of a document, recorded by the
+ * {@link XMLTokenizer} as it scans. Offsets count from the first byte the tokenizer was
+ * fed. They are kept in an int array, and only moved to a long array once a document
+ * passes 2 GB, so a line costs four bytes rather than a String.
+ *
+ * <p>With the index, the text of any line can be sliced out of the document held in
+ * memory when it is needed, such as to show the context of an error, and the line of
+ * any offset can be found by a binary search.</p>
+ */
+public class LineIndex {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int[] starts = new int[DEFAULT_CAPACITY];
+    private long[] longStarts; // replaces starts once an offset no longer fits in an int
+    private int size;
+
+    /**
+     * Removes every line, keeping the arrays for the next document.
+     */
+    void clear() {
+        size = 0;
+        if (longStarts != null) {
+            longStarts = null;
+            starts = new int[DEFAULT_CAPACITY];
+        }
+    }
+
+    /**
+     * Records the start of the next line. Lines are added in order.
+     *
+     * @param start the offset of the line's first byte
+     */
+    void add(long start) {
+        if (longStarts == null && start > Integer.MAX_VALUE) {
+            longStarts = new long[starts.length];
+            for (int i = 0; i < size; i++) {
+                longStarts[i] = starts[i];
+            }
+            starts = null;
+        }
+        if (longStarts != null) {
+            if (size == longStarts.length) {
+                longStarts = Arrays.copyOf(longStarts, size * 2);
+            }
+            longStarts[size++] = start;
+        } else {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+            }
+            starts[size++] = (int) start;
+        }
+    }
+
+    /**
+     * Returns the number of lines indexed.
+     *
+     * @return the number of lines
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the first byte of a line.
+     *
+     * @param line the 1-based line number
+     * @return the offset of the line
+     * @throws IndexOutOfBoundsException if the line is not in the index
+     */
+    public long start(int line) {
+        if (line < 1 || line > size) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        return longStarts != null ? longStarts[line - 1] : starts[line - 1];
+    }
+
+    /**
+     * Finds the line holding a byte.
+     *
+     * @param offset the offset of the byte
+     * @return the 1-based number of the last line that starts at or before the offset,
+     *         or 0 if there is none
+     */
+    public int lineOf(long offset) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (start(middle + 1) <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Slices the text of a line out of the document it indexes, without its line break.
+     *
+     * @param document the document, starting at its position as it did when it was fed
+     * @param line the 1-based line number
+     * @return the text of the line, decoded from UTF-8
+     * @throws IndexOutOfBoundsException if the line is not in the index or not in the document
+     */
+    public String text(ByteBuffer document, int line) {
+        long start = document.position() + start(line);
+        if (start > document.limit()) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        int end = (int) start;
+        while (end < document.limit() && document.get(end) != '\n' && document.get(end) != '\r') {
+            end++;
+        }
+        return Utf8.decode(document, (int) start, end - (int) start);
+    }
+
+    /**
+     * Slices the text of a line out of the document it indexes, without its line break.
+     *
+     * @param document the document
+     * @param line the 1-based line number
+     * @return the text of the line, decoded from UTF-8
+     * @throws IndexOutOfBoundsException if the line is not in the index or not in the document
+     */
+    public String text(byte[] document, int line) {
+        return text(ByteBuffer.wrap(document), line);
+    }
+}
@@ -0,0 +1,438 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParallelValidator.java
+ *
+ * Validates a single large file on several threads. The file is split into byte ranges
+ * that start at the beginning of a line, and each range is memory-mapped and tokenized
+ * by its own {@link XMLTokenizer} and {@link TagChecker}. Apart from nesting, a range can
+ * be checked without knowing the others; closing tags that find the range's stack empty
+ * are deferred, and the tags still open at the end of the range are kept.
+ *
+ * <p>Tags, comments and CDATA sections may span lines, so a range can end inside one.
+ * The next range's own result then started mid-markup and is dropped; instead the
+ * earlier range's tokenizer and checker go on through the next range, from where the
+ * earlier range's tokenizer stopped. Each byte is therefore still checked once more at
+ * most. A tag that runs on past {@link ChannelReader#MAP_WINDOW_SIZE} makes the file be
+ * validated on one thread.</p>
+ *
+ * <p>The ranges are then merged in order: deferred closing tags are matched against the
+ * tags left open by the earlier ranges, and the remaining open tags are pushed on top.
+ * The result is exactly the error log the serial parser produces.</p>
+ *
+ * <p>Only UTF-8 can be split at any line, so a file the {@link DocumentEncoding}
+ * detection finds to be in another encoding is validated on one thread.</p>
+ *
+ * <p>Every range is tokenized as if it started at line 1. Errors are kept as records
+ * rather than text, so the merge moves each range's errors and open tags down by the
+ * number of lines in the ranges before it, and the file is read only once.</p>
+ */
+public class ParallelValidator {
+    /** Ranges are not made smaller than this, so small files are not split needlessly. */
+    public static final long MIN_RANGE_SIZE = 16L * 1024 * 1024;
+
+    /** Ranges per thread, so a thread that finishes early can take another range. */
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final int threads;
+    private final long minRangeSize;
+
+    /**
+     * Creates a validator that uses the given number of threads.
+     *
+     * @param threads the number of threads to validate with
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public ParallelValidator(int threads) {
+        this(threads, MIN_RANGE_SIZE);
+    }
+
+    /**
+     * Creates a validator that uses the given number of threads and never splits the file
+     * into ranges smaller than the given size.
+     *
+     * @param threads the number of threads to validate with
+     * @param minRangeSize the smallest range size in bytes
+     * @throws IllegalArgumentException if threads or minRangeSize is not positive
+     */
+    public ParallelValidator(int threads, long minRangeSize) {
+        if (threads <= 0 || minRangeSize <= 0) {
+            throw new IllegalArgumentException("Thread count and range size must be positive.");
+        }
+        this.threads = threads;
+        this.minRangeSize = minRangeSize;
+    }
+
+    /**
+     * Validates a file and returns its error log.
+     *
+     * @param file the file to validate
+     * @return the errors found, in the order the serial parser reports them
+     * @throws IOException if the file cannot be read
+     */
+    public ErrorLog validate(Path file) throws IOException {
+        return validate(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Validates a file and returns the first errors of its error log. Each range stops
+     * at its own limit. Once the merged log is full, ranges that have not started are
+     * cancelled and the ones still running are waited for before the file is closed.
+     *
+     * @param file the file to validate
+     * @param maxErrors the most errors to report
+     * @return the first maxErrors errors, in the order the serial parser reports them
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if maxErrors is not positive
+     */
+    public ErrorLog validate(Path file, int maxErrors) throws IOException {
+        if (maxErrors <= 0) {
+            throw new IllegalArgumentException("Error limit must be positive.");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer first = ByteBuffer.allocate(DocumentEncoding.DETECT_LENGTH);
+            channel.read(first, 0);
+            first.flip();
+            DocumentEncoding encoding = DocumentEncoding.detect(first);
+            if (encoding != DocumentEncoding.UTF_8) {
+                return validateSerially(file, maxErrors);
+            }
+
+            long[] bounds = splitAtLines(channel, encoding.byteOrderMarkLength(first));
+            int ranges = bounds.length - 1;
+
+            // Stopped before the channel is closed, so no range is left reading it.
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<RangeResult>> results = new ArrayList<>();
+            try {
+                for (int i = 0; i < ranges; i++) {
+                    long start = bounds[i];
+                    long end = bounds[i + 1];
+                    boolean last = i == ranges - 1;
+                    results.add(executor.submit(() -> checkRange(channel, start, end, maxErrors, last)));
+                }
+
+                Merger merger = new Merger(maxErrors);
+                for (int i = 0; i < ranges && !merger.isFull(); ) {
+                    RangeResult result = await(results.get(i++));
+                    while (result.isInMarkup() && i < ranges) {
+                        // Not interrupted: that would close the channel every range shares.
+                        results.get(i++).cancel(false);
+                        if (bounds[i] - result.resume > ChannelReader.MAP_WINDOW_SIZE) {
+                            stop(executor, results);
+                            return validateSerially(file, maxErrors);
+                        }
+                        result.continueTo(channel, bounds[i], i == ranges);
+                    }
+                    merger.add(result);
+                }
+                return merger.finish();
+            } finally {
+                stop(executor, results);
+            }
+        }
+    }
+
+    /**
+     * Cancels the ranges that have not started and waits for the ones that are running
+     * to finish. Running ranges are not interrupted, since that would close the channel
+     * every range shares.
+     *
+     * @param executor the executor the ranges run on
+     * @param results the ranges submitted so far
+     */
+    private static void stop(ExecutorService executor, List<Future<RangeResult>> results) {
+        for (Future<RangeResult> result : results) {
+            result.cancel(false);
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Validates a file on the calling thread.
+     *
+     * @param file the file to validate
+     * @param maxErrors the most errors to report
+     * @return the first maxErrors errors
+     * @throws IOException if the file cannot be read
+     */
+    private static ErrorLog validateSerially(Path file, int maxErrors) throws IOException {
+        XMLValidator validator = new XMLValidator();
+        validator.setMaxErrors(maxErrors);
+        return validator.validate(file).getErrors();
+    }
+
+    /**
+     * Splits the file into ranges that each start at the beginning of a line.
+     *
+     * @param channel the channel of the file
+     * @param start the index of the first byte of the document, past any byte order mark
+     * @return the range boundaries: range i covers bounds[i] up to bounds[i + 1]
+     * @throws IOException if the file cannot be read
+     */
+    private long[] splitAtLines(FileChannel channel, long start) throws IOException {
+        long size = channel.size();
+        long rangeSize = Math.max(minRangeSize, size / ((long) threads * RANGES_PER_THREAD));
+        rangeSize = Math.min(rangeSize, ChannelReader.MAP_WINDOW_SIZE);
+
+        long[] bounds = new long[(int) Math.min(Integer.MAX_VALUE - 8, size / rangeSize + 2)];
+        bounds[0] = start;
+        int count = 1;
+        while (start < size) {
+            long end = start + rangeSize >= size ? size : nextLineStart(channel, start + rangeSize);
+            if (end - start > ChannelReader.MAP_WINDOW_SIZE) {
+                throw new IOException("Line too long to validate in parallel near byte " + start);
+            }
+            bounds[count++] = end;
+            start = end;
+        }
+
+        long[] exact = new long[count];
+        System.arraycopy(bounds, 0, exact, 0, count);
+        return exact;
+    }
+
+    /**
+     * Finds the start of the first line that begins at or after the given position,
+     * treating "\r\n", "\r" and "\n" as line terminators like the tokenizer does.
+     *
+     * @param channel the channel of the file
+     * @param position the position to search from
+     * @return the position just past the next line terminator, or the file size
+     * @throws IOException if the file cannot be read
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(8192);
+        long size = channel.size();
+        while (position < size) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = block.get(i);
+                if (b == '\n') {
+                    return position + i + 1;
+                }
+                if (b == '\r') {
+                    if (i + 1 < read) {
+                        return position + i + (block.get(i + 1) == '\n' ? 2 : 1);
+                    }
+                    ByteBuffer next = ByteBuffer.allocate(1);
+                    boolean lineFeed = channel.read(next, position + i + 1) == 1 && next.get(0) == '\n';
+                    return position + i + (lineFeed ? 2 : 1);
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Tokenizes and checks one range, deferring closing tags that find its stack empty.
+     * Line numbers are counted from the start of the range.
+     *
+     * @param channel the channel of the file
+     * @param start the first byte of the range
+     * @param end the byte just past the range
+     * @param maxErrors the most errors the range needs to report
+     * @param last true if the range ends the file
+     * @return the results of the range
+     * @throws IOException if the range cannot be mapped
+     */
+    private static RangeResult checkRange(FileChannel channel, long start, long end, int maxErrors, boolean last)
+            throws IOException {
+        TagChecker checker = new TagChecker(true);
+        checker.setMaxErrors(maxErrors);
+        RangeResult result = new RangeResult(checker, start);
+        result.continueTo(channel, end, last);
+        return result;
+    }
+
+    /**
+     * Waits for a task and rethrows its failure.
+     *
+     * @param <T> the type of the task's result
+     * @param future the task to wait for
+     * @return the result of the task
+     * @throws IOException if the task failed to read the file
+     */
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while validating.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * The tokenizer and checker of a range, which can go on into the ranges after it.
+     */
+    private static class RangeResult {
+        final TagChecker checker;
+        final XMLTokenizer tokenizer;
+        int lines;
+        long resume; // the first byte the tokenizer has not consumed
+        long end;    // the byte just past the bytes fed to the tokenizer
+
+        /**
+         * Creates the results of a range that has not been tokenized yet.
+         *
+         * @param checker the checker of the range
+         * @param start the first byte of the range
+         */
+        RangeResult(TagChecker checker, long start) {
+            this.checker = checker;
+            this.tokenizer = new XMLTokenizer(checker);
+            this.resume = start;
+        }
+
+        /**
+         * Tokenizes the file from where the tokenizer stopped up to a range boundary.
+         *
+         * @param channel the channel of the file
+         * @param end the byte just past the range
+         * @param last true if the range ends the file
+         * @throws IOException if the range cannot be mapped
+         */
+        void continueTo(FileChannel channel, long end, boolean last) throws IOException {
+            ByteBuffer range = channel.map(FileChannel.MapMode.READ_ONLY, resume, end - resume);
+            this.end = end;
+            tokenizer.feed(range, last);
+            resume += range.position();
+            lines = tokenizer.getLineNumber() - 1;
+        }
+
+        /**
+         * Tests if the range ends inside markup, so the next range cannot be checked on
+         * its own.
+         *
+         * @return true if the tokenizer has to go on into the next range
+         */
+        boolean isInMarkup() {
+            return !tokenizer.isStopped() && (tokenizer.isInMarkup() || resume < end);
+        }
+    }
+
+    /**
+     * Combines the results of the ranges, in order, into the serial error log. A range
+     * that stopped at its error limit contributes at least that many errors, so its
+     * incomplete stack is never needed.
+     */
+    private static class Merger {
+        private final SymbolTable symbols = new SymbolTable();
+        private final TagStack tagStack = new TagStack();
+        private final ErrorLog errors = new ErrorLog(symbols);
+        private final int maxErrors;
+        private int lineOffset;
+
+        /**
+         * Creates a merger that keeps at most the given number of errors.
+         *
+         * @param maxErrors the most errors to keep
+         */
+        Merger(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        /**
+         * Tests if the log holds as many errors as it may.
+         *
+         * @return true if no more errors will be kept
+         */
+        boolean isFull() {
+            return errors.size() >= maxErrors;
+        }
+
+        /**
+         * Adds the results of the next range, moving its lines down by the number of
+         * lines in the ranges before it.
+         *
+         * @param result the results of the range
+         */
+        void add(RangeResult result) {
+            TagChecker checker = result.checker;
+            SymbolTable rangeSymbols = checker.getSymbols();
+            int[] ids = new int[rangeSymbols.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = symbols.intern(rangeSymbols, i);
+            }
+
+            ErrorLog rangeErrors = checker.getErrors();
+            int unmatched = 0;
+            for (int position = 0; position <= rangeErrors.size() && !isFull(); position++) {
+                while (unmatched < checker.getUnmatchedCount() && !isFull()
+                        && checker.getUnmatchedPosition(unmatched) == position) {
+                    closeTag(ids[checker.getUnmatchedName(unmatched)], checker.getUnmatchedLine(unmatched) + lineOffset,
+                            checker.getUnmatchedColumn(unmatched));
+                    unmatched++;
+                }
+                if (position < rangeErrors.size() && !isFull()) {
+                    errors.addFrom(rangeErrors, position, lineOffset, ids);
+                }
+            }
+
+            TagStack rangeStack = checker.getTagStack();
+            for (int i = 0; i < rangeStack.size(); i++) {
+                tagStack.push(ids[rangeStack.nameAt(i)], rangeStack.lineAt(i) + lineOffset, rangeStack.columnAt(i));
+            }
+            lineOffset += result.lines;
+        }
+
+        /**
+         * Matches a deferred closing tag against the tags left open by earlier ranges.
+         *
+         * @param name the name id of the closing tag
+         * @param line the line of the closing tag
+         * @param column the column of the closing tag
+         */
+        private void closeTag(int name, int line, int column) {
+            if (tagStack.isEmpty() || tagStack.pop() != name) {
+                errors.addTagError(ErrorLog.UNEXPECTED_CLOSE_TAG, line, column, name);
+            }
+        }
+
+        /**
+         * Reports the tags still open at the end of the file.
+         *
+         * @return the complete error log
+         */
+        ErrorLog finish() {
+            while (!tagStack.isEmpty() && !isFull()) {
+                int line = tagStack.peekLine();
+                int column = tagStack.peekColumn();
+                errors.addTagError(ErrorLog.UNCLOSED_TAG, line, column, tagStack.pop());
+            }
+            return errors;
+        }
+    }
+}
@@ -1,9 +1,22 @@
 package utilities;
 
-import implementations.MyStack;
-import implementations.MyQueue;
-import java.io.FileInputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.AccessDeniedException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The Parser class reads an XML file and checks for syntax and structural errors.
@@ -11,156 +24,688 @@ import java.io.IOException;
  *
  * <p>Usage:
  * <pre>{@code
- * java -jar Parser.jar <XML file path>
+ * java -jar Parser.jar [--stream | --mmap | --parallel] [--format text | json] [--max-errors N] <XML file path>
+ * java -jar Parser.jar [--stream | --mmap] [--format text | json] [--max-errors N] --stats <XML file path>
+ * java -jar Parser.jar [--stream | --mmap | --parallel] --validate-only <XML file path>
+ * java -jar Parser.jar --batch [--threads N] [--format text | json] <file | directory | @list file>...
+ * java -jar Parser.jar --daemon <socket path | port>
+ * java -jar Parser.jar --client <socket path | port> <XML file path | ->...
  * }</pre>
  * </p>
  *
+ * <p>With {@code --stream} the file is validated in fixed-size chunks instead of being
+ * read into memory first, so files of any size can be checked in constant memory. With
+ * {@code --mmap} the file is memory-mapped and scanned in place. Without either option,
+ * files of {@link #STREAM_THRESHOLD} bytes or more are streamed and smaller files are
+ * read into memory. With {@code --parallel} the file is split into ranges that are
+ * validated on all available processors.</p>
+ *
+ * <p>With {@code --batch} any number of files, directories and {@code @}list files are
+ * validated concurrently, on {@code --threads N} threads or on virtual threads when the
+ * runtime has them, and a report for every file is printed in input order. The exit
+ * status is 0 if every file is well-formed, 1 if any has errors or cannot be read, and
+ * 2 if a list file or directory cannot be read or the report cannot be written.</p>
+ *
+ * <p>With {@code --daemon} the parser keeps running and validates the documents sent to
+ * it on a Unix domain socket or a localhost port, which saves starting a JVM for every
+ * file; {@code --client} sends files, or standard input for {@code -}, to such a daemon
+ * and prints the reports. Only a daemon on a Unix domain socket opens files by path;
+ * over a port the client sends their contents.</p>
+ *
+ * <p>Reports are written through an {@link ErrorSink} into a large buffer, and errors
+ * are written as soon as they are found rather than collected first. With
+ * {@code --format json} they are written as JSON Lines instead of text.</p>
+ *
+ * <p>Callers that validate in-process use an {@link XMLValidator}, which returns a
+ * {@link ValidationResult} instead of printing; the static methods here run one per
+ * thread. A {@link ContentHandler} passed to the validator, or to
+ * {@link #parseXMLStream(String, ContentHandler)}, receives the content of the document
+ * during the same pass.</p>
+ *
+ * <p>With {@code --max-errors N} only the first N errors are reported, and reading stops
+ * once they have been found. With {@code --validate-only} reading stops at the first
+ * error, a single verdict is printed, and the exit status is 0 for a well-formed file,
+ * 1 for a file with errors and 2 for a file that cannot be read.</p>
+ *
+ * <p>With {@code --stats} the report is followed by the structure of the file, counted
+ * by a {@link DocumentStatistics} during the same pass: the number of elements, their
+ * maximum and average depth, the number of attributes, bytes of text and comments, and
+ * the number of elements with each tag name.</p>
+ *
  * @author Anthony Yang, Elina Chin, Anjhel Balane, Sumaiya Khurshid, Sila Demirkaya
  * @version 1.0
  * @since 2024-11-22
  */
 public class Parser {
+    /** Block readers are reused per thread so repeated reads do not allocate new buffers. */
+    private static final ThreadLocal<ChannelReader> READERS = ThreadLocal.withInitial(ChannelReader::new);
+
+    /** Validators are reused per thread so repeated checks do not allocate new stacks and tables. */
+    private static final ThreadLocal<XMLValidator> VALIDATORS = ThreadLocal.withInitial(XMLValidator::new);
+
+    /** Files at least this large are streamed when no input mode is given. */
+    public static final long STREAM_THRESHOLD = 64L * 1024 * 1024;
+
+    /** Characters of report output buffered before they are written to System.out. */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private static final String USAGE =
+            "Usage: java -jar Parser.jar [--stream | --mmap | --parallel] [--format text | json]"
+            + " [--max-errors N] <XML file path>"
+            + System.lineSeparator()
+            + "       java -jar Parser.jar [--stream | --mmap] [--format text | json] [--max-errors N]"
+            + " --stats <XML file path>"
+            + System.lineSeparator()
+            + "       java -jar Parser.jar [--stream | --mmap | --parallel] --validate-only <XML file path>"
+            + System.lineSeparator()
+            + "       java -jar Parser.jar --batch [--threads N] [--format text | json]"
+            + " <file | directory | @list file>..."
+            + System.lineSeparator()
+            + "       java -jar Parser.jar --daemon <socket path | port>" + System.lineSeparator()
+            + "       java -jar Parser.jar --client <socket path | port> <XML file path | ->...";
+
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.out.println("Usage: java -jar Parser.jar <XML file path>");
+        String mode = null;
+        List<String> inputs = new ArrayList<>();
+        int threads = 0;
+        String address = null;
+        ReportFormat format = null;
+        int maxErrors = 0;
+        boolean validateOnly = false;
+        boolean stats = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--stream") || arg.equals("--mmap") || arg.equals("--parallel")
+                    || arg.equals("--batch")) {
+                mode = arg;
+            } else if ((arg.equals("--daemon") || arg.equals("--client")) && i + 1 < args.length
+                    && address == null) {
+                mode = arg;
+                address = args[++i];
+            } else if (arg.equals("--format") && i + 1 < args.length && format == null) {
+                try {
+                    format = ReportFormat.forName(args[++i]);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(USAGE);
+                    return;
+                }
+            } else if (arg.equals("--threads") && i + 1 < args.length && threads == 0) {
+                threads = parseCount(args[++i]);
+                if (threads <= 0) {
+                    System.out.println(USAGE);
+                    return;
+                }
+            } else if (arg.equals("--max-errors") && i + 1 < args.length && maxErrors == 0) {
+                maxErrors = parseCount(args[++i]);
+                if (maxErrors <= 0) {
+                    System.out.println(USAGE);
+                    return;
+                }
+            } else if (arg.equals("--validate-only")) {
+                validateOnly = true;
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else if (!arg.startsWith("--")) {
+                inputs.add(arg);
+            } else {
+                System.out.println(USAGE);
+                return;
+            }
+        }
+        boolean singleFile = !"--batch".equals(mode) && !"--daemon".equals(mode) && !"--client".equals(mode);
+        if ((maxErrors != 0 || validateOnly || stats) && !singleFile
+                || validateOnly && (maxErrors != 0 || format != null || stats)
+                || stats && "--parallel".equals(mode)) {
+            System.out.println(USAGE);
             return;
         }
-
-        String filePath = args[0];
-        String xmlDocument = readXMLFile(filePath);
-
-        if (xmlDocument != null) {
-            parseXML(xmlDocument);
+        if ("--batch".equals(mode)) {
+            System.exit(parseXMLBatch(inputs, threads, format != null ? format : ReportFormat.TEXT));
+        }
+        if ("--daemon".equals(mode) && inputs.isEmpty() && threads == 0 && format == null) {
+            runDaemon(address);
+            return;
+        }
+        if ("--client".equals(mode) && threads == 0 && format == null) {
+            parseXMLRemote(address, inputs);
+            return;
+        }
+        if (inputs.size() != 1 || threads != 0 || address != null) {
+            System.out.println(USAGE);
+            return;
         }
+        String filePath = inputs.get(0);
+        String fileMode = mode != null ? mode : fileSize(filePath) >= STREAM_THRESHOLD ? "--stream" : "";
+        if (validateOnly) {
+            System.exit(validate(fileMode, filePath));
+        }
+        int limit = maxErrors > 0 ? maxErrors : Integer.MAX_VALUE;
+        DocumentStatistics statistics = stats ? new DocumentStatistics() : null;
+        writeReport(format != null ? format : ReportFormat.TEXT,
+                sink -> check(fileMode, filePath, sink, limit, statistics));
     }
-    
+
     /**
-     * Reads the contents of an XML file into a String.
+     * Reads the contents of an XML file into a String. The file is read through a
+     * FileChannel in large blocks, converted to UTF-8 if it is in UTF-16 or ISO-8859-1,
+     * and decoded; ASCII, which most documents are, is copied without decoding.
      *
      * @param filePath the path to the XML file to be read
      * @return the contents of the XML file as a String, or null if an error occurs
      */
     public static String readXMLFile(String filePath) {
-        StringBuilder content = new StringBuilder();
-        MyQueue<Character> charQueue = new MyQueue<>();
-        try (FileInputStream fis = new FileInputStream(filePath)) {
-            int c;
-            while ((c = fis.read()) != -1) {
-                charQueue.enqueue((char) c);
-            }
-        } catch (IOException e) {
-            System.out.println("Error reading XML file: " + e.getMessage());
+        try {
+            byte[] document = READERS.get().readFully(Paths.get(filePath));
+            return new String(document, StandardCharsets.UTF_8);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Error reading XML file: " + reason(e));
             return null;
         }
-
-        while (!charQueue.isEmpty()) {
-            content.append(charQueue.dequeue());
-        }
-
-        return content.toString();
     }
     
     /**
-     * Parses the given XML document for syntax and structural errors.
+     * Parses the given XML document for syntax and structural errors. The document is
+     * encoded as UTF-8 and checked as bytes, as a file would be.
      *
      * @param xmlDocument the XML content as a String
      */
     public static void parseXML(String xmlDocument) {
-        MyStack<TagInfo> tagStack = new MyStack<>();
-        MyArrayList<String> errors = new MyArrayList<>();
-        String[] lines = splitByLines(xmlDocument);
+        writeReport(ReportFormat.TEXT, sink -> parseXML(xmlDocument, sink));
+    }
 
-        for (int lineNumber = 0; lineNumber < lines.length; lineNumber++) {
-            String line = lines[lineNumber].trim();
+    /**
+     * Parses the given XML document and writes its errors to a sink as they are found.
+     *
+     * @param xmlDocument the XML content as a String
+     * @param sink the sink to write the results to
+     * @throws IOException if the sink cannot be written to
+     */
+    public static void parseXML(String xmlDocument, ErrorSink sink) throws IOException {
+        parseBytes(null, ByteBuffer.wrap(xmlDocument.getBytes(StandardCharsets.UTF_8)), sink, Integer.MAX_VALUE, null);
+    }
 
-            if (line.isEmpty()) {
-                continue;
-            }
+    /**
+     * Parses an XML file for syntax and structural errors without reading it into
+     * memory. The file is read in fixed-size chunks that are fed to the tokenizer as
+     * they arrive, so memory use does not grow with the size of the file.
+     *
+     * @param filePath the path to the XML file to be parsed
+     */
+    public static void parseXMLStream(String filePath) {
+        writeReport(ReportFormat.TEXT, sink -> parseXMLStream(filePath, sink));
+    }
 
-            int index = 0;
+    /**
+     * Streams an XML file and writes its errors to a sink as they are found.
+     *
+     * @param filePath the path to the XML file to be parsed
+     * @param sink the sink to write the results to
+     * @throws IOException if the sink cannot be written to
+     */
+    public static void parseXMLStream(String filePath, ErrorSink sink) throws IOException {
+        parseXMLStream(filePath, sink, Integer.MAX_VALUE);
+    }
 
-            while (index < line.length()) {
-                int openTagStart = line.indexOf('<', index);
-                if (openTagStart == -1) break;
+    /**
+     * Streams an XML file and writes its first errors to a sink as they are found.
+     * Reading stops as soon as the last of them has been written.
+     *
+     * @param filePath the path to the XML file to be parsed
+     * @param sink the sink to write the results to
+     * @param maxErrors the most errors to report
+     * @throws IOException if the sink cannot be written to
+     * @throws IllegalArgumentException if maxErrors is not positive
+     */
+    public static void parseXMLStream(String filePath, ErrorSink sink, int maxErrors) throws IOException {
+        check("--stream", filePath, sink, maxErrors, null);
+    }
 
-                int openTagEnd = line.indexOf('>', openTagStart);
-                if (openTagEnd == -1) {
+    /**
+     * Streams an XML file through a content handler while checking it, so the caller can
+     * extract what it needs in the same pass. Nothing is printed.
+     *
+     * @param filePath the path to the XML file to be parsed
+     * @param handler the handler to receive the elements, text and comments
+     * @return the result of the check; it is reused by the next check on this thread
+     * @throws IOException if the file cannot be read
+     * @throws InvalidPathException if the path is not valid
+     */
+    public static ValidationResult parseXMLStream(String filePath, ContentHandler handler) throws IOException {
+        return validator(Integer.MAX_VALUE).validate(Paths.get(filePath), handler);
+    }
 
-                    errors.add("Error at line " + (lineNumber + 1) + ": Malformed tag\n" + line.trim());
-                    break;
-                }
+    /**
+     * Parses an XML file for syntax and structural errors by memory-mapping it. The
+     * tokenizer scans the mapped pages directly, so the file is never copied onto the
+     * heap; files larger than 2 GB are mapped one window at a time.
+     *
+     * @param filePath the path to the XML file to be parsed
+     */
+    public static void parseXMLMapped(String filePath) {
+        writeReport(ReportFormat.TEXT, sink -> parseXMLMapped(filePath, sink));
+    }
 
-                String tagContent = line.substring(openTagStart + 1, openTagEnd).trim();
-                index = openTagEnd + 1;
+    /**
+     * Memory-maps an XML file and writes its errors to a sink as they are found.
+     *
+     * @param filePath the path to the XML file to be parsed
+     * @param sink the sink to write the results to
+     * @throws IOException if the sink cannot be written to
+     */
+    public static void parseXMLMapped(String filePath, ErrorSink sink) throws IOException {
+        parseXMLMapped(filePath, sink, Integer.MAX_VALUE);
+    }
 
-                if (line.indexOf(">>", openTagStart) != -1) {
-                    errors.add("Invalid close tag at line " + (lineNumber + 1) + "\n" + line.trim());
-                    break;
-                }
+    /**
+     * Memory-maps an XML file and writes its first errors to a sink as they are found.
+     * Scanning stops as soon as the last of them has been written.
+     *
+     * @param filePath the path to the XML file to be parsed
+     * @param sink the sink to write the results to
+     * @param maxErrors the most errors to report
+     * @throws IOException if the sink cannot be written to
+     * @throws IllegalArgumentException if maxErrors is not positive
+     */
+    public static void parseXMLMapped(String filePath, ErrorSink sink, int maxErrors) throws IOException {
+        check("--mmap", filePath, sink, maxErrors, null);
+    }
 
-                if (tagContent.startsWith("!--") || tagContent.startsWith("?")) {
-                    continue;
-                }
+    /**
+     * Parses an XML file for syntax and structural errors on several threads. The file
+     * is split into ranges at line boundaries that are checked in parallel and merged in
+     * order, so the error log is the same as the one the other modes print.
+     *
+     * @param filePath the path to the XML file to be parsed
+     * @param threads the number of threads to use
+     */
+    public static void parseXMLParallel(String filePath, int threads) {
+        writeReport(ReportFormat.TEXT, sink -> parseXMLParallel(filePath, threads, sink));
+    }
 
-                if (tagContent.startsWith("/")) {
-                    String closingTagName = tagContent.substring(1).split(" ")[0];
-                    if (tagStack.isEmpty()) {
-                        errors.add("Error at line " + (lineNumber + 1) + ": </" + closingTagName + ">");
-                    } else {
-                        TagInfo topTag = tagStack.pop();
-                        if (!topTag.name.equals(closingTagName)) {
-                            errors.add("Error at line " + (lineNumber + 1) + ": </" + closingTagName + ">");
-                        }
-                    }
-                    continue;
-                }
+    /**
+     * Validates an XML file on several threads and writes its errors to a sink once the
+     * ranges have been merged.
+     *
+     * @param filePath the path to the XML file to be parsed
+     * @param threads the number of threads to use
+     * @param sink the sink to write the results to
+     * @throws IOException if the sink cannot be written to
+     */
+    public static void parseXMLParallel(String filePath, int threads, ErrorSink sink) throws IOException {
+        parseXMLParallel(filePath, threads, sink, Integer.MAX_VALUE);
+    }
 
-                if (tagContent.endsWith("/")) {
-                    continue;
-                }
+    /**
+     * Validates an XML file on several threads and writes its first errors to a sink.
+     * Ranges stop once they have found that many errors, and the merge stops once it has.
+     *
+     * @param filePath the path to the XML file to be parsed
+     * @param threads the number of threads to use
+     * @param sink the sink to write the results to
+     * @param maxErrors the most errors to report
+     * @throws IOException if the sink cannot be written to
+     * @throws IllegalArgumentException if maxErrors is not positive
+     */
+    public static void parseXMLParallel(String filePath, int threads, ErrorSink sink, int maxErrors)
+            throws IOException {
+        sink.startDocument(filePath);
+        ErrorLog errors;
+        try {
+            errors = new ParallelValidator(threads).validate(Paths.get(filePath), maxErrors);
+        } catch (IOException | InvalidPathException e) {
+            sink.unreadable(reason(e));
+            return;
+        }
+        errors.writeTo(sink);
+        sink.endDocument(errors.size());
+    }
+
+    /**
+     * Tests if an XML file is well-formed. The file is streamed and reading stops at the
+     * first error, so a bad file is rejected without reading the rest of it and no error
+     * message is built.
+     *
+     * @param filePath the path to the XML file to be checked
+     * @return true if the file has no errors
+     * @throws IOException if the file cannot be read
+     * @throws InvalidPathException if the path is not valid
+     */
+    public static boolean isWellFormed(String filePath) throws IOException {
+        return validator(1).validate(Paths.get(filePath)).isWellFormed();
+    }
+
+    /**
+     * Validates many files concurrently and prints a report for each, in the order the
+     * files are given, followed by a summary line. Directories are searched for ".xml"
+     * files and an input starting with '@' names a file that lists one input per line.
+     *
+     * @param inputs the files, directories and list files to validate
+     * @param threads the number of threads to use, or 0 to use virtual threads when the
+     *        runtime supports them
+     * @param format the format to print the reports in
+     * @return 0 if every file is well-formed, 1 if any has errors or cannot be read, 2 if
+     *         the inputs cannot be listed or the reports cannot be written
+     */
+    public static int parseXMLBatch(List<String> inputs, int threads, ReportFormat format) {
+        List<Path> files;
+        try {
+            files = BatchValidator.expand(inputs);
+        } catch (IOException e) {
+            System.out.println("Error reading file list: " + reason(e));
+            return 2;
+        }
 
-                String openingTagName = tagContent.split(" ")[0];
-                tagStack.push(new TagInfo(openingTagName, lineNumber + 1));
+        BatchValidator validator = threads > 0 ? new BatchValidator(threads) : new BatchValidator();
+        Writer out = standardOutput();
+        try {
+            int failed = validator.validate(files, out, format);
+            out.flush();
+            return failed == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.out.println("Error writing report: " + e.getMessage());
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
+
+    /**
+     * Runs a validation daemon until the process is stopped. A Unix domain socket file
+     * is removed again when the daemon exits.
+     *
+     * @param address the socket path, or the localhost port, to listen on
+     */
+    public static void runDaemon(String address) {
+        ValidationServer server;
+        try {
+            server = new ValidationServer(ValidationServer.parseAddress(address));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error starting validation daemon: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.out.println("Error stopping validation daemon: " + e.getMessage());
             }
+        }));
+
+        System.out.println("Listening on " + server.getAddress());
+        try {
+            server.serve();
+        } catch (IOException e) {
+            System.out.println("Error accepting connection: " + e.getMessage());
         }
+    }
 
-        while (!tagStack.isEmpty()) {
-            TagInfo unclosedTag = tagStack.pop();
-            errors.add("Error at line " + unclosedTag.line + ": <" + unclosedTag.name + ">");
+    /**
+     * Sends files to a running validation daemon and prints the report of each. An input
+     * of "-" sends standard input instead of a file. When there is more than one input,
+     * each report is preceded by the name of its input.
+     *
+     * @param address the socket path, or the localhost port, the daemon listens on
+     * @param inputs the files to validate
+     */
+    public static void parseXMLRemote(String address, List<String> inputs) {
+        try (ValidationClient client = new ValidationClient(ValidationServer.parseAddress(address))) {
+            for (String input : inputs) {
+                if (inputs.size() > 1) {
+                    System.out.println("== " + input);
+                }
+                if (input.equals("-")) {
+                    System.out.print(client.validate(System.in.readAllBytes()));
+                } else {
+                    System.out.print(client.validate(Paths.get(input)));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error contacting validation daemon: " + e.getMessage());
         }
+    }
 
-        if (errors.isEmpty()) {
-            System.out.println("XML is well-formed.");
-        } else {
-            System.out.println("===========Error Log===========");
-            Iterator<String> iterator = errors.iterator();
-            while (iterator.hasNext()) {
-                String error = iterator.next();
-                System.out.println(error);
+    /**
+     * Parses a thread count given on the command line.
+     *
+     * @param text the argument
+     * @return the count, or -1 if the argument is not a number
+     */
+    private static int parseCount(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the size of a file, or 0 if it cannot be determined; the chosen reader
+     * reports the problem when it tries to open the file.
+     *
+     * @param filePath the path to the file
+     * @return the size of the file in bytes
+     */
+    private static long fileSize(String filePath) {
+        try {
+            return Files.size(Paths.get(filePath));
+        } catch (IOException | InvalidPathException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Checks a file in the given input mode.
+     *
+     * @param mode "--stream", "--mmap", "--parallel", or "" to read the file into memory
+     * @param filePath the path to the XML file to be parsed
+     * @param sink the sink to write the results to
+     * @param maxErrors the most errors to report
+     * @param statistics the statistics to gather and write after the report, or null;
+     *        not supported with "--parallel"
+     * @throws IOException if the sink cannot be written to
+     */
+    private static void check(String mode, String filePath, ErrorSink sink, int maxErrors,
+            DocumentStatistics statistics) throws IOException {
+        if (mode.equals("--parallel")) {
+            parseXMLParallel(filePath, Runtime.getRuntime().availableProcessors(), sink, maxErrors);
+            return;
+        }
+        if (mode.isEmpty()) {
+            byte[] document;
+            try {
+                document = READERS.get().readFully(Paths.get(filePath));
+            } catch (IOException | InvalidPathException e) {
+                sink.startDocument(filePath);
+                sink.unreadable(reason(e));
+                return;
             }
+            parseBytes(filePath, ByteBuffer.wrap(document), sink, maxErrors, statistics);
+            return;
+        }
+        sink.startDocument(filePath);
+        ValidationResult result;
+        try {
+            Path file = Paths.get(filePath);
+            result = mode.equals("--mmap")
+                    ? validator(maxErrors).validateMapped(file, sink, statistics)
+                    : validator(maxErrors).validate(file, sink, statistics);
+        } catch (IOException | InvalidPathException e) {
+            sink.unreadable(reason(e));
+            return;
+        }
+        sink.endDocument(result.getErrorCount());
+        if (statistics != null) {
+            sink.statistics(statistics);
         }
     }
-    
+
     /**
-     * A helper class to store tag information for the stack.
+     * Checks a file in the given input mode until its first error and prints whether it
+     * is well-formed.
+     *
+     * @param mode "--stream", "--mmap", "--parallel", or "" to read the file into memory
+     * @param filePath the path to the XML file to be checked
+     * @return 0 if the file is well-formed, 1 if it has errors, 2 if it cannot be read
      */
-    static class TagInfo {
-        String name;
-        int line;
+    private static int validate(String mode, String filePath) {
+        Verdict verdict = new Verdict();
+        try {
+            check(mode, filePath, verdict, 1, null);
+        } catch (IOException e) {
+            // A verdict writes nothing, so this cannot happen.
+            throw new UncheckedIOException(e);
+        }
+        if (verdict.unreadable != null) {
+            System.out.println("Error reading XML file: " + verdict.unreadable);
+            return 2;
+        }
+        System.out.println(verdict.errors == 0 ? "XML is well-formed." : "XML is not well-formed.");
+        return verdict.errors == 0 ? 0 : 1;
+    }
 
-        TagInfo(String name, int line) {
-            this.name = name;
-            this.line = line;
+    /**
+     * Checks a document held in memory and writes its errors to a sink as they are found.
+     *
+     * @param name the name of the document, or null
+     * @param document the bytes of the document
+     * @param sink the sink to write the results to
+     * @param maxErrors the most errors to report
+     * @param statistics the statistics to gather and write after the report, or null
+     * @throws IOException if the sink cannot be written to
+     */
+    private static void parseBytes(String name, ByteBuffer document, ErrorSink sink, int maxErrors,
+            DocumentStatistics statistics) throws IOException {
+        sink.startDocument(name);
+        ValidationResult result = validator(maxErrors).validate(document, sink, statistics);
+        sink.endDocument(result.getErrorCount());
+        if (statistics != null) {
+            sink.statistics(statistics);
+        }
+    }
+
+    /**
+     * Returns this thread's validator, limited to the given number of errors.
+     *
+     * @param maxErrors the most errors to find
+     * @return the validator
+     */
+    private static XMLValidator validator(int maxErrors) {
+        XMLValidator validator = VALIDATORS.get();
+        validator.setMaxErrors(maxErrors);
+        return validator;
+    }
+
+    /**
+     * Runs a check that writes to a sink on standard output, then flushes the output.
+     *
+     * @param format the format to write the results in
+     * @param check the check to run
+     */
+    private static void writeReport(ReportFormat format, SinkCheck check) {
+        Writer out = standardOutput();
+        try {
+            check.run(format.newSink(out, false));
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Error writing report: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            System.out.println("Error writing report: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Returns a writer that buffers output in large blocks before passing it to
+     * System.out, so a long error log is not written one line at a time.
+     *
+     * @return the writer; it must be flushed, not closed
+     */
+    private static Writer standardOutput() {
+        return new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), OUTPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Formats the error log, or a confirmation if there are no errors, the way it is
+     * printed for a single file. Every line ends with the platform line separator.
+     *
+     * @param errors the errors found in the document
+     * @return the report of the document
+     */
+    static String report(ErrorLog errors) {
+        StringWriter out = new StringWriter();
+        ErrorSink sink = new TextErrorSink(out, false);
+        try {
+            sink.startDocument(null);
+            errors.writeTo(sink);
+            sink.endDocument(errors.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return out.toString();
     }
 
     /**
-     * Splits a document into lines, preserving the original line structure.
+     * Describes why a file could not be read. The file system exceptions only give the
+     * path, so the reason is added the way FileInputStream words it.
      *
-     * @param document the document to split
-     * @return an array of lines from the document
+     * @param e the exception reading the file failed with
+     * @return the path and the reason, or the exception's message
+     */
+    static String reason(Exception e) {
+        if (e instanceof NoSuchFileException) {
+            return e.getMessage() + " (No such file or directory)";
+        }
+        if (e instanceof AccessDeniedException) {
+            return e.getMessage() + " (Permission denied)";
+        }
+        return e.getMessage();
+    }
+
+    /**
+     * A sink that only remembers whether a document had errors or could not be read.
+     */
+    private static class Verdict implements ErrorSink {
+        private int errors;
+        private String unreadable;
+
+        @Override
+        public void startDocument(String name) {
+        }
+
+        @Override
+        public void error(ErrorLog log, int index) {
+            errors++;
+        }
+
+        @Override
+        public void endDocument(int errorCount) {
+            errors = errorCount;
+        }
+
+        @Override
+        public void unreadable(String message) {
+            unreadable = message;
+        }
+
+        @Override
+        public void summary(int documents, int wellFormed, int withErrors, int unreadableCount) {
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+
+    /**
+     * A check that writes its results to a sink.
      */
-    private static String[] splitByLines(String document) {
-        return document.split("\r\n|\r|\n");
+    private interface SinkCheck {
+        /**
+         * Runs the check.
+         *
+         * @param sink the sink to write the results to
+         * @throws IOException if the sink cannot be written to
+         */
+        void run(ErrorSink sink) throws IOException;
     }
 }
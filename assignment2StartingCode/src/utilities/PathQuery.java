@@ -0,0 +1,453 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PathQuery.java
+ *
+ * A compiled path expression that finds elements or attribute values in a document,
+ * either in a {@link DocumentTree} or in one pass over the events of a document without
+ * building a tree. The supported expressions are absolute location paths made of:
+ * <ul>
+ * <li>{@code /name}, a child element with that name, or {@code /*} for any name;</li>
+ * <li>{@code //name}, a descendant element at any depth;</li>
+ * <li>{@code [n]}, after a step, the n-th matching child of its parent, from 1;</li>
+ * <li>{@code /@name}, as the last step, the value of an attribute.</li>
+ * </ul>
+ * For example, {@code /XMLDATA/Submission/Category/Driver/Language/@LanguageName}.
+ *
+ * <p>A query is compiled once and may be evaluated any number of times, from several
+ * threads. Element names are compared as name ids: each evaluation looks the step names
+ * up once in the tree's symbol table, or looks each tag name up once in the query's
+ * own, so no Strings are made while matching.</p>
+ *
+ * <p>Matching follows the checker's rules for malformed documents, so a tree and the
+ * event stream of the same document give the same results.</p>
+ */
+public class PathQuery {
+    /** A step name that matches any element. */
+    private static final int ANY = -2;
+
+    /** A step name that does not occur in the document. */
+    private static final int ABSENT = -3;
+
+    /** The most steps a query may have, so the steps matched fit in a long. */
+    private static final int MAX_STEPS = 62;
+
+    private final String expression;
+    private final String[] names;
+    private final boolean[] descendants;
+    private final int[] positions;
+    private final String attribute;
+    private final SymbolTable symbols = new SymbolTable();
+    private final int[] ids;
+
+    /**
+     * Creates a query from its parsed steps.
+     *
+     * @param expression the text of the query
+     * @param names the name of each step, or "*"
+     * @param descendants whether each step matches descendants rather than children
+     * @param positions the position each step must have among its siblings, or 0
+     * @param attribute the name of the attribute selected, or null to select elements
+     */
+    private PathQuery(String expression, String[] names, boolean[] descendants, int[] positions, String attribute) {
+        this.expression = expression;
+        this.names = names;
+        this.descendants = descendants;
+        this.positions = positions;
+        this.attribute = attribute;
+        this.ids = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals("*")) {
+                ids[i] = ANY;
+            } else {
+                byte[] name = Utf8.encode(names[i]);
+                ids[i] = symbols.intern(ByteBuffer.wrap(name), 0, name.length);
+            }
+        }
+    }
+
+    /**
+     * Compiles a path expression.
+     *
+     * @param expression the expression, such as "/a//b[2]/@id"
+     * @return the compiled query
+     * @throws IllegalArgumentException if the expression is not a supported path
+     */
+    public static PathQuery compile(String expression) {
+        if (expression == null || !expression.startsWith("/")) {
+            throw new IllegalArgumentException("A path must start with '/': " + expression);
+        }
+        List<String> names = new ArrayList<>();
+        List<Boolean> descendants = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        String attribute = null;
+        int index = 0;
+        int length = expression.length();
+        while (index < length) {
+            if (attribute != null || expression.charAt(index) != '/') {
+                throw invalid(expression, index);
+            }
+            boolean descendant = index + 1 < length && expression.charAt(index + 1) == '/';
+            index += descendant ? 2 : 1;
+
+            if (index < length && expression.charAt(index) == '@') {
+                if (descendant) {
+                    names.add("*");
+                    descendants.add(true);
+                    positions.add(0);
+                }
+                int end = nameEnd(expression, index + 1);
+                if (end == index + 1 || names.isEmpty()) {
+                    throw invalid(expression, index);
+                }
+                attribute = expression.substring(index + 1, end);
+                index = end;
+                continue;
+            }
+
+            int end = nameEnd(expression, index);
+            if (end == index) {
+                throw invalid(expression, index);
+            }
+            String name = expression.substring(index, end);
+            if (name.indexOf('*') >= 0 && !name.equals("*")) {
+                throw invalid(expression, index);
+            }
+            index = end;
+            int position = 0;
+            if (index < length && expression.charAt(index) == '[') {
+                int close = expression.indexOf(']', index);
+                if (close < 0) {
+                    throw invalid(expression, index);
+                }
+                try {
+                    position = Integer.parseInt(expression.substring(index + 1, close));
+                } catch (NumberFormatException e) {
+                    throw invalid(expression, index);
+                }
+                if (position <= 0) {
+                    throw invalid(expression, index);
+                }
+                index = close + 1;
+            }
+            names.add(name);
+            descendants.add(descendant);
+            positions.add(position);
+        }
+        if (names.isEmpty()) {
+            throw invalid(expression, index);
+        }
+        if (names.size() > MAX_STEPS) {
+            throw new IllegalArgumentException("A path can have at most " + MAX_STEPS + " steps: " + expression);
+        }
+
+        boolean[] descendantSteps = new boolean[names.size()];
+        int[] positionSteps = new int[names.size()];
+        for (int i = 0; i < descendantSteps.length; i++) {
+            descendantSteps[i] = descendants.get(i);
+            positionSteps[i] = positions.get(i);
+        }
+        return new PathQuery(expression, names.toArray(new String[0]), descendantSteps, positionSteps, attribute);
+    }
+
+    /**
+     * Tests if the query selects attribute values rather than elements.
+     *
+     * @return true if the last step is an attribute
+     */
+    public boolean selectsAttribute() {
+        return attribute != null;
+    }
+
+    /**
+     * Finds the elements a query matches in a tree. For an attribute query these are the
+     * elements that have the attribute.
+     *
+     * @param tree the tree to search
+     * @return the nodes, in document order
+     */
+    public int[] select(DocumentTree tree) {
+        SymbolTable treeSymbols = tree.getSymbols();
+        int[] stepIds = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == ANY) {
+                stepIds[i] = ANY;
+            } else {
+                int id = treeSymbols.lookup(names[i]);
+                stepIds[i] = id < 0 ? ABSENT : id;
+            }
+        }
+
+        Matcher matcher = new Matcher(stepIds);
+        int[] found = new int[16];
+        int count = 0;
+        int node = tree.firstElement(0);
+        while (node >= 0) {
+            if (matcher.open(tree.nameId(node)) && (attribute == null || tree.attribute(node, attribute) != null)) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = node;
+            }
+            int child = tree.firstElement(node);
+            if (child >= 0) {
+                node = child;
+                continue;
+            }
+            matcher.close();
+            while (node > 0 && tree.nextElement(node) < 0) {
+                node = tree.parent(node);
+                if (node > 0) {
+                    matcher.close();
+                }
+            }
+            node = node > 0 ? tree.nextElement(node) : -1;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Evaluates a query over a tree.
+     *
+     * @param tree the tree to search
+     * @return the attribute values, or for an element query the text directly inside
+     *         each element, in document order
+     */
+    public List<String> evaluate(DocumentTree tree) {
+        int[] nodes = select(tree);
+        List<String> values = new ArrayList<>(nodes.length);
+        StringBuilder text = new StringBuilder();
+        for (int node : nodes) {
+            if (attribute != null) {
+                values.add(tree.attribute(node, attribute).toString());
+                continue;
+            }
+            text.setLength(0);
+            for (int child = tree.firstChild(node); child >= 0; child = tree.nextSibling(child)) {
+                if (tree.kind(child) == DocumentTree.TEXT) {
+                    text.append(tree.text(child));
+                }
+            }
+            values.add(text.toString());
+        }
+        return values;
+    }
+
+    /**
+     * Evaluates a query in one pass over a file, without building a tree.
+     *
+     * @param file the file to read
+     * @return the same values as {@link #evaluate(DocumentTree)}
+     * @throws IOException if the file cannot be read
+     */
+    public List<String> evaluate(Path file) throws IOException {
+        StreamEvaluator evaluator = new StreamEvaluator();
+        new XMLValidator().validate(file, evaluator);
+        return evaluator.finish();
+    }
+
+    /**
+     * Evaluates a query in one pass over a document held in memory, without building a
+     * tree.
+     *
+     * @param document the document
+     * @param validator the validator to read the document with
+     * @return the same values as {@link #evaluate(DocumentTree)}
+     */
+    public List<String> evaluate(ByteBuffer document, XMLValidator validator) {
+        StreamEvaluator evaluator = new StreamEvaluator();
+        validator.validate(document, evaluator);
+        return evaluator.finish();
+    }
+
+    /**
+     * Returns the expression the query was compiled from.
+     *
+     * @return the expression
+     */
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Finds the end of a name in an expression.
+     *
+     * @param expression the expression
+     * @param index the index of the first character of the name
+     * @return the index just past the name
+     */
+    private static int nameEnd(String expression, int index) {
+        while (index < expression.length()) {
+            char c = expression.charAt(index);
+            if (c == '/' || c == '[' || c == ']' || c == '@' || Character.isWhitespace(c)) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Creates the exception for a malformed expression.
+     *
+     * @param expression the expression
+     * @param index where the problem was found
+     * @return the exception
+     */
+    private static IllegalArgumentException invalid(String expression, int index) {
+        return new IllegalArgumentException("Invalid path at index " + index + ": " + expression);
+    }
+
+    /**
+     * Tracks which steps the open elements match. Each open element has a bit set of
+     * how many steps it and its ancestors match, and for each step a count of the
+     * children matching that step's name, for position predicates. A descendant step
+     * stays active in every element below the one that matched the step before it.
+     */
+    private class Matcher {
+        private final int[] stepIds;
+        private final int steps;
+        private long[] states = new long[16];
+        private int[] counts;
+        private int depth;
+
+        /**
+         * Creates a matcher whose only open node is the document.
+         *
+         * @param stepIds the name id of each step
+         */
+        Matcher(int[] stepIds) {
+            this.stepIds = stepIds;
+            this.steps = stepIds.length;
+            this.counts = new int[16 * steps];
+            states[0] = 1L;
+            depth = 1;
+        }
+
+        /**
+         * Opens an element inside the innermost open one.
+         *
+         * @param nameId the element's name id, or -1 if no step has that name
+         * @return true if the element matches every step
+         */
+        boolean open(int nameId) {
+            int parent = depth - 1;
+            long parentState = states[parent];
+            long state = 0;
+            for (int step = 0; step < steps; step++) {
+                if ((parentState & (1L << step)) == 0) {
+                    continue;
+                }
+                if (descendants[step]) {
+                    state |= 1L << step;
+                }
+                int id = stepIds[step];
+                if (id == ANY || (id == nameId && nameId >= 0)) {
+                    int count = ++counts[parent * steps + step];
+                    if (positions[step] == 0 || positions[step] == count) {
+                        state |= 1L << (step + 1);
+                    }
+                }
+            }
+            if (depth == states.length) {
+                states = Arrays.copyOf(states, depth * 2);
+                counts = Arrays.copyOf(counts, depth * 2 * steps);
+            }
+            states[depth] = state;
+            Arrays.fill(counts, depth * steps, (depth + 1) * steps, 0);
+            depth++;
+            return (state & (1L << steps)) != 0;
+        }
+
+        /**
+         * Closes the innermost open element. As in the checker, a close with no element
+         * open is ignored.
+         */
+        void close() {
+            if (depth > 1) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the query over the events of a document. The text of a matched element
+     * is gathered until it closes, and its value is kept at the position of its opening
+     * tag so the values are in document order even when matches are nested.
+     */
+    private class StreamEvaluator implements ContentHandler {
+        private final List<String> values = new ArrayList<>();
+        private final Matcher matcher = new Matcher(ids);
+        private final ByteSequence view = new ByteSequence();
+        private int[] collectingDepths = new int[8];
+        private int[] collectingIndexes = new int[8];
+        private StringBuilder[] collecting = new StringBuilder[8];
+        private int collectingSize;
+
+        @Override
+        public void startElement(ByteBuffer buffer, int nameOffset, int nameLength, Attributes attributes) {
+            if (!matcher.open(symbols.lookup(buffer, nameOffset, nameLength))) {
+                return;
+            }
+            if (attribute != null) {
+                CharSequence value = attributes.getValue(attribute);
+                if (value != null) {
+                    values.add(value.toString());
+                }
+                return;
+            }
+            if (collectingSize == collecting.length) {
+                collectingDepths = Arrays.copyOf(collectingDepths, collectingSize * 2);
+                collectingIndexes = Arrays.copyOf(collectingIndexes, collectingSize * 2);
+                collecting = Arrays.copyOf(collecting, collectingSize * 2);
+            }
+            collectingDepths[collectingSize] = matcher.depth;
+            collectingIndexes[collectingSize] = values.size();
+            if (collecting[collectingSize] == null) {
+                collecting[collectingSize] = new StringBuilder();
+            }
+            collecting[collectingSize].setLength(0);
+            collectingSize++;
+            values.add(null);
+        }
+
+        @Override
+        public void endElement(ByteBuffer buffer, int nameOffset, int nameLength) {
+            if (collectingSize > 0 && collectingDepths[collectingSize - 1] == matcher.depth) {
+                collectingSize--;
+                values.set(collectingIndexes[collectingSize], collecting[collectingSize].toString());
+            }
+            matcher.close();
+        }
+
+        @Override
+        public void text(ByteBuffer buffer, int offset, int length) {
+            if (collectingSize > 0 && collectingDepths[collectingSize - 1] == matcher.depth) {
+                view.set(buffer, offset, length);
+                collecting[collectingSize - 1].append(view);
+            }
+        }
+
+        /**
+         * Ends the evaluation, keeping the text of matched elements that were never
+         * closed.
+         *
+         * @return the values
+         */
+        List<String> finish() {
+            while (collectingSize > 0) {
+                collectingSize--;
+                values.set(collectingIndexes[collectingSize], collecting[collectingSize].toString());
+            }
+            return values;
+        }
+    }
+}
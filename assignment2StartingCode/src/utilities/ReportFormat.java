@@ -0,0 +1,46 @@
+package utilities;
+
+import java.io.Writer;
+
+/**
+ * ReportFormat.java
+ *
+ * The formats Parser can write its results in.
+ */
+public enum ReportFormat {
+    /** The plain text report, as printed by {@link TextErrorSink}. */
+    TEXT,
+
+    /** One JSON object per line, as written by {@link JsonLinesErrorSink}. */
+    JSON_LINES;
+
+    /**
+     * Creates a sink that writes this format.
+     *
+     * @param out the writer to write to; it should be buffered
+     * @param showNames true if the text format should name every document, as when many
+     *        files are validated together; JSON records always carry the name
+     * @return the sink
+     */
+    public ErrorSink newSink(Writer out, boolean showNames) {
+        return this == TEXT ? new TextErrorSink(out, showNames) : new JsonLinesErrorSink(out);
+    }
+
+    /**
+     * Returns the format with the name used on the command line: "text" or "json".
+     *
+     * @param name the name of the format
+     * @return the format
+     * @throws IllegalArgumentException if there is no format with that name
+     */
+    public static ReportFormat forName(String name) {
+        switch (name) {
+            case "text":
+                return TEXT;
+            case "json":
+                return JSON_LINES;
+            default:
+                throw new IllegalArgumentException("Unknown report format: " + name);
+        }
+    }
+}
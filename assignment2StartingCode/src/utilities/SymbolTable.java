@@ -0,0 +1,236 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * SymbolTable.java
+ *
+ * Maps names, given as a range of bytes, to dense int ids: the first distinct name gets
+ * id 0, the next id 1, and so on. Looking up a name that is already in the table hashes
+ * and compares the bytes in place and allocates nothing, so two names can be compared
+ * by interning both and comparing the ids.
+ *
+ * <p>The table is an open-addressing hash table over a byte array holding every name
+ * once. Documents typically use a few dozen distinct tag names many times over, so the
+ * table stays small and lookups hit the first slot.</p>
+ */
+public class SymbolTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] slots;          // id + 1 for each occupied slot, 0 for an empty slot
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private String[] strings = new String[INITIAL_CAPACITY];
+    private byte[] bytes = new byte[1024];
+    private int bytesLength;
+    private int size;
+
+    /**
+     * Creates an empty symbol table.
+     */
+    public SymbolTable() {
+        slots = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Returns the id of a name, adding the name to the table if it is not there yet.
+     *
+     * @param source the buffer holding the name
+     * @param start the index of the first byte of the name
+     * @param length the length of the name in bytes
+     * @return the id of the name
+     */
+    public int intern(ByteBuffer source, int start, int length) {
+        int hash = hash(source, start, length);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(source, start, length, hash, slot);
+            }
+            if (hashes[id] == hash && matches(id, source, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a name taken from another symbol table, adding the name to this
+     * table if it is not there yet. This maps ids between tables built independently.
+     *
+     * @param other the table holding the name
+     * @param id the id of the name in the other table
+     * @return the id of the name in this table
+     * @throws IndexOutOfBoundsException if the other table has no name with that id
+     */
+    public int intern(SymbolTable other, int id) {
+        if (id < 0 || id >= other.size) {
+            throw new IndexOutOfBoundsException("No symbol with id " + id);
+        }
+        return intern(ByteBuffer.wrap(other.bytes), other.starts[id], other.lengths[id]);
+    }
+
+    /**
+     * Returns the id of a name without adding it to the table.
+     *
+     * @param source the buffer holding the name
+     * @param start the index of the first byte of the name
+     * @param length the length of the name in bytes
+     * @return the id of the name, or -1 if the name is not in the table
+     */
+    public int lookup(ByteBuffer source, int start, int length) {
+        int hash = hash(source, start, length);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[id] == hash && matches(id, source, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a name given as a String. The name is encoded as UTF-8, the
+     * same way names are read from a document.
+     *
+     * @param name the name to look up
+     * @return the id of the name, or -1 if the name is not in the table
+     */
+    public int lookup(String name) {
+        byte[] bytes = Utf8.encode(name);
+        return lookup(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Returns the name with the given id. The String is created on first use and cached.
+     *
+     * @param id the id of the name
+     * @return the name
+     * @throws IndexOutOfBoundsException if no name has that id
+     */
+    public String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No symbol with id " + id);
+        }
+        if (strings[id] == null) {
+            strings[id] = new String(bytes, starts[id], lengths[id], StandardCharsets.UTF_8);
+        }
+        return strings[id];
+    }
+
+    /**
+     * Returns the number of distinct names in the table.
+     *
+     * @return the number of names
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every name from the table. Ids are handed out from 0 again.
+     */
+    public void clear() {
+        Arrays.fill(slots, 0);
+        Arrays.fill(strings, 0, size, null);
+        bytesLength = 0;
+        size = 0;
+    }
+
+    /**
+     * Adds a name that is known not to be in the table.
+     *
+     * @param source the buffer holding the name
+     * @param start the index of the first byte of the name
+     * @param length the length of the name in bytes
+     * @param hash the hash of the name
+     * @param slot the empty slot the name hashed to
+     * @return the id given to the name
+     */
+    private int add(ByteBuffer source, int start, int length, int hash, int slot) {
+        int id = size;
+        if (id == hashes.length) {
+            int capacity = id * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+        if (bytesLength + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, bytesLength + length));
+        }
+
+        source.get(start, bytes, bytesLength, length);
+        hashes[id] = hash;
+        starts[id] = bytesLength;
+        lengths[id] = length;
+        bytesLength += length;
+        slots[slot] = id + 1;
+        size++;
+
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Doubles the number of slots and reinserts every id.
+     */
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Compares the stored name with the given id against a range of a buffer.
+     *
+     * @param id the id of the stored name
+     * @param source the buffer holding the other name
+     * @param start the index of the first byte of the other name
+     * @param length the length of the other name in bytes
+     * @return true if both names have the same bytes
+     */
+    private boolean matches(int id, ByteBuffer source, int start, int length) {
+        if (lengths[id] != length) {
+            return false;
+        }
+        int offset = starts[id];
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] != source.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes a range of a buffer, spreading the bits so that the low bits used to pick a
+     * slot depend on every byte.
+     *
+     * @param source the buffer holding the name
+     * @param start the index of the first byte of the name
+     * @param length the length of the name in bytes
+     * @return the hash of the name
+     */
+    private static int hash(ByteBuffer source, int start, int length) {
+        int hash = length;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + source.get(start + i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,306 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * TagChecker.java
+ *
+ * Checks that the tags reported by an {@link XMLTokenizer} are properly nested and
+ * records every problem found in an {@link ErrorLog}. Opening tags are pushed onto a
+ * stack and each closing tag pops the most recent one; the check does not depend on how
+ * the document was split into chunks.
+ *
+ * <p>Tag names are interned in a {@link SymbolTable}, so the {@link TagStack} holds name
+ * ids and a closing tag matches when its id equals the id on top of the stack. Neither
+ * allocates per tag, so a well-formed document is checked without allocating anything
+ * once the stack has reached its greatest depth and every name has been seen. Errors are
+ * recorded as primitive records too; their messages are only built when printed.</p>
+ *
+ * <p>When checking one part of a document, a closing tag that finds the stack empty may
+ * close a tag opened in an earlier part. In that case the checker can be told to defer
+ * such closing tags instead of reporting them, so they can be resolved once the earlier
+ * parts are known.</p>
+ *
+ * <p>A checker can instead be given an {@link ErrorSink}. Each error is then passed to
+ * the sink as soon as it is found and dropped from the log, so the log never grows and
+ * the report is written while the document is still being read.</p>
+ *
+ * <p>A checker can also be limited to a number of errors. Once it has found that many,
+ * it ignores any further errors and tells the tokenizer to stop.</p>
+ */
+class TagChecker implements TokenHandler {
+    private final TagStack tagStack = new TagStack();
+    private final SymbolTable symbols = new SymbolTable();
+    private final ErrorLog errors = new ErrorLog(symbols);
+    private final boolean deferUnmatchedCloses;
+    private ErrorSink sink;
+    private int errorsWritten;
+    private int maxErrors = Integer.MAX_VALUE;
+    private int tagCount;
+
+    // Closing tags that found the stack empty, when they are deferred. Each records the
+    // number of errors found before it so it can be put back in document order.
+    private int[] unmatchedNames = new int[16];
+    private int[] unmatchedLines = new int[16];
+    private int[] unmatchedColumns = new int[16];
+    private int[] unmatchedPositions = new int[16];
+    private int unmatchedCount;
+
+    /**
+     * Creates a checker that reports every error itself.
+     */
+    TagChecker() {
+        this(false);
+    }
+
+    /**
+     * Creates a checker.
+     *
+     * @param deferUnmatchedCloses true to record closing tags that find the stack empty
+     *        instead of reporting them as errors
+     */
+    TagChecker(boolean deferUnmatchedCloses) {
+        this.deferUnmatchedCloses = deferUnmatchedCloses;
+    }
+
+    @Override
+    public void openTag(ByteBuffer window, int nameStart, int nameLength, int line, int column) {
+        tagCount++;
+        tagStack.push(symbols.intern(window, nameStart, nameLength), line, column);
+    }
+
+    @Override
+    public void closeTag(ByteBuffer window, int nameStart, int nameLength, int line, int column) {
+        tagCount++;
+        int name = symbols.intern(window, nameStart, nameLength);
+        if (tagStack.isEmpty()) {
+            if (deferUnmatchedCloses) {
+                addUnmatched(name, line, column);
+            } else if (!isFinished()) {
+                errors.addTagError(ErrorLog.UNEXPECTED_CLOSE_TAG, line, column, name);
+                writeErrors();
+            }
+        } else if (tagStack.pop() != name && !isFinished()) {
+            errors.addTagError(ErrorLog.UNEXPECTED_CLOSE_TAG, line, column, name);
+            writeErrors();
+        }
+    }
+
+    @Override
+    public void malformedTag(ByteBuffer window, int textStart, int textLength, int line) {
+        if (isFinished()) {
+            return;
+        }
+        errors.addLineError(ErrorLog.MALFORMED_TAG, line, window, textStart, textLength);
+        writeErrors();
+    }
+
+    @Override
+    public void invalidCloseTag(ByteBuffer window, int textStart, int textLength, int line) {
+        if (isFinished()) {
+            return;
+        }
+        errors.addLineError(ErrorLog.INVALID_CLOSE_TAG, line, window, textStart, textLength);
+        writeErrors();
+    }
+
+    /**
+     * Tests if the checker has found as many errors as it is limited to.
+     *
+     * @return true if no more errors will be recorded
+     */
+    @Override
+    public boolean isFinished() {
+        return getErrorCount() >= maxErrors;
+    }
+
+    /**
+     * Limits the number of errors the checker records.
+     *
+     * @param maxErrors the number of errors after which the checker is finished
+     * @throws IllegalArgumentException if maxErrors is not positive
+     */
+    void setMaxErrors(int maxErrors) {
+        if (maxErrors <= 0) {
+            throw new IllegalArgumentException("Error limit must be positive.");
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Sets the sink errors are passed to as soon as they are found. Errors already in
+     * the log stay there. A failure to write to the sink is thrown as an
+     * UncheckedIOException from the callback that found the error.
+     *
+     * @param sink the sink to write the errors to, or null to keep them in the log
+     */
+    void setSink(ErrorSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Reports every tag still open at the end of the document, innermost first, up to
+     * the error limit.
+     */
+    void finish() {
+        while (!tagStack.isEmpty() && !isFinished()) {
+            int line = tagStack.peekLine();
+            int column = tagStack.peekColumn();
+            errors.addTagError(ErrorLog.UNCLOSED_TAG, line, column, tagStack.pop());
+            writeErrors();
+        }
+    }
+
+    /**
+     * Clears the stack, the errors and the deferred closing tags so the checker can be
+     * used for another document. The symbol table is kept, so names seen in earlier
+     * documents are not interned again.
+     */
+    void reset() {
+        tagStack.clear();
+        errors.clear();
+        errorsWritten = 0;
+        unmatchedCount = 0;
+        tagCount = 0;
+    }
+
+    /**
+     * Returns the errors found so far, in the order they were found.
+     *
+     * @return the error log
+     */
+    ErrorLog getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the number of errors found so far, including those already passed to the
+     * sink.
+     *
+     * @return the number of errors
+     */
+    int getErrorCount() {
+        return errorsWritten + errors.size();
+    }
+
+    /**
+     * Returns the number of opening and closing tags seen so far; self-closing tags are
+     * not counted.
+     *
+     * @return the number of tags
+     */
+    int getTagCount() {
+        return tagCount;
+    }
+
+    /**
+     * Returns the tags still open, outermost at the bottom.
+     *
+     * @return the stack of open tags
+     */
+    TagStack getTagStack() {
+        return tagStack;
+    }
+
+    /**
+     * Returns the symbol table the ids on the stack and in the deferred closing tags
+     * refer to.
+     *
+     * @return the checker's symbol table
+     */
+    SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Returns the number of closing tags that were deferred because the stack was empty.
+     *
+     * @return the number of deferred closing tags
+     */
+    int getUnmatchedCount() {
+        return unmatchedCount;
+    }
+
+    /**
+     * Returns the name id of a deferred closing tag.
+     *
+     * @param index the index of the deferred closing tag, in document order
+     * @return the name id
+     */
+    int getUnmatchedName(int index) {
+        return unmatchedNames[index];
+    }
+
+    /**
+     * Returns the line of a deferred closing tag.
+     *
+     * @param index the index of the deferred closing tag, in document order
+     * @return the 1-based line
+     */
+    int getUnmatchedLine(int index) {
+        return unmatchedLines[index];
+    }
+
+    /**
+     * Returns the column of a deferred closing tag.
+     *
+     * @param index the index of the deferred closing tag, in document order
+     * @return the 1-based column
+     */
+    int getUnmatchedColumn(int index) {
+        return unmatchedColumns[index];
+    }
+
+    /**
+     * Returns how many errors had been found when a closing tag was deferred.
+     *
+     * @param index the index of the deferred closing tag, in document order
+     * @return the number of errors found before the closing tag
+     */
+    int getUnmatchedPosition(int index) {
+        return unmatchedPositions[index];
+    }
+
+    /**
+     * Records a closing tag that found the stack empty.
+     *
+     * @param name the name id of the closing tag
+     * @param line the line of the closing tag
+     * @param column the column of the closing tag
+     */
+    private void addUnmatched(int name, int line, int column) {
+        if (unmatchedCount == unmatchedNames.length) {
+            int capacity = unmatchedCount * 2;
+            unmatchedNames = Arrays.copyOf(unmatchedNames, capacity);
+            unmatchedLines = Arrays.copyOf(unmatchedLines, capacity);
+            unmatchedColumns = Arrays.copyOf(unmatchedColumns, capacity);
+            unmatchedPositions = Arrays.copyOf(unmatchedPositions, capacity);
+        }
+        unmatchedNames[unmatchedCount] = name;
+        unmatchedLines[unmatchedCount] = line;
+        unmatchedColumns[unmatchedCount] = column;
+        unmatchedPositions[unmatchedCount] = errors.size();
+        unmatchedCount++;
+    }
+
+    /**
+     * Passes the errors in the log to the sink, if there is one, and clears the log.
+     *
+     * @throws UncheckedIOException if the sink cannot be written to
+     */
+    private void writeErrors() {
+        if (sink == null) {
+            return;
+        }
+        try {
+            errors.writeTo(sink);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        errorsWritten += errors.size();
+        errors.clear();
+    }
+}
@@ -0,0 +1,169 @@
+package utilities;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * TagStack.java
+ *
+ * A stack of open tags for the nesting check. Each entry is a tag name id with the line
+ * and column the tag starts at, kept in three parallel int arrays, so pushing and popping
+ * never allocate and a deep document costs only the array storage.
+ */
+public class TagStack {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] names = new int[DEFAULT_CAPACITY];
+    private int[] lines = new int[DEFAULT_CAPACITY];
+    private int[] columns = new int[DEFAULT_CAPACITY];
+    private int size;
+
+    /**
+     * Pushes an open tag onto the top of the stack.
+     *
+     * @param name the id of the tag name
+     * @param line the 1-based line the tag starts on
+     * @param column the 1-based column the tag starts at
+     */
+    public void push(int name, int line, int column) {
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        names[size] = name;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    /**
+     * Removes the top entry and returns its name id. Its line and column can no longer be
+     * read after this call.
+     *
+     * @return the name id of the removed entry
+     * @throws NoSuchElementException if the stack is empty
+     */
+    public int pop() {
+        if (size == 0) {
+            throw new NoSuchElementException("Stack is empty. Cannot pop element.");
+        }
+        return names[--size];
+    }
+
+    /**
+     * Returns the name id of the top entry.
+     *
+     * @return the name id of the top entry
+     * @throws NoSuchElementException if the stack is empty
+     */
+    public int peekName() {
+        return names[top()];
+    }
+
+    /**
+     * Returns the line of the top entry.
+     *
+     * @return the 1-based line of the top entry
+     * @throws NoSuchElementException if the stack is empty
+     */
+    public int peekLine() {
+        return lines[top()];
+    }
+
+    /**
+     * Returns the column of the top entry.
+     *
+     * @return the 1-based column of the top entry
+     * @throws NoSuchElementException if the stack is empty
+     */
+    public int peekColumn() {
+        return columns[top()];
+    }
+
+    /**
+     * Returns the name id of the entry at the given depth, where 0 is the bottom.
+     *
+     * @param index the depth of the entry
+     * @return the name id of the entry
+     * @throws IndexOutOfBoundsException if there is no entry at that depth
+     */
+    public int nameAt(int index) {
+        return names[checkIndex(index)];
+    }
+
+    /**
+     * Returns the line of the entry at the given depth, where 0 is the bottom.
+     *
+     * @param index the depth of the entry
+     * @return the 1-based line of the entry
+     * @throws IndexOutOfBoundsException if there is no entry at that depth
+     */
+    public int lineAt(int index) {
+        return lines[checkIndex(index)];
+    }
+
+    /**
+     * Returns the column of the entry at the given depth, where 0 is the bottom.
+     *
+     * @param index the depth of the entry
+     * @return the 1-based column of the entry
+     * @throws IndexOutOfBoundsException if there is no entry at that depth
+     */
+    public int columnAt(int index) {
+        return columns[checkIndex(index)];
+    }
+
+    /**
+     * Tests if the stack is empty.
+     *
+     * @return true if the stack holds no entries
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of entries on the stack.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entry. The arrays keep their capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the index of the top entry.
+     *
+     * @return the index of the top entry
+     * @throws NoSuchElementException if the stack is empty
+     */
+    private int top() {
+        if (size == 0) {
+            throw new NoSuchElementException("Stack is empty. Cannot peek element.");
+        }
+        return size - 1;
+    }
+
+    /**
+     * Checks that an index refers to an entry on the stack.
+     *
+     * @param index the depth of the entry
+     * @return the index
+     * @throws IndexOutOfBoundsException if there is no entry at that depth
+     */
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,108 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * TextErrorSink.java
+ *
+ * Writes results in the plain text format Parser has always printed: "XML is
+ * well-formed." for a document without errors, and otherwise an error log header
+ * followed by one message per error. Messages are built in a reused StringBuilder and
+ * copied to the writer through a reused char array, so writing an error allocates
+ * nothing once the buffers are large enough.
+ */
+public class TextErrorSink implements ErrorSink {
+    private static final String NEW_LINE = System.lineSeparator();
+
+    private final Writer out;
+    private final boolean showNames;
+    private final StringBuilder message = new StringBuilder();
+    private char[] chars = new char[256];
+    private boolean headerWritten;
+
+    /**
+     * Creates a sink that writes to the given writer.
+     *
+     * @param out the writer to write to; it should be buffered
+     * @param showNames true to write a "== name" line before every document, as when
+     *        many files are validated together
+     */
+    public TextErrorSink(Writer out, boolean showNames) {
+        this.out = out;
+        this.showNames = showNames;
+    }
+
+    @Override
+    public void startDocument(String name) throws IOException {
+        headerWritten = false;
+        if (showNames) {
+            out.write("== " + name + NEW_LINE);
+        }
+    }
+
+    @Override
+    public void error(ErrorLog log, int index) throws IOException {
+        if (!headerWritten) {
+            out.write("===========Error Log===========" + NEW_LINE);
+            headerWritten = true;
+        }
+        message.setLength(0);
+        log.appendMessage(index, message);
+        message.append(NEW_LINE);
+
+        int length = message.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        message.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+    }
+
+    @Override
+    public void endDocument(int errorCount) throws IOException {
+        if (errorCount == 0) {
+            out.write("XML is well-formed." + NEW_LINE);
+        }
+    }
+
+    @Override
+    public void unreadable(String message) throws IOException {
+        out.write("Error reading XML file: " + message + NEW_LINE);
+    }
+
+    @Override
+    public void summary(int documents, int wellFormed, int withErrors, int unreadable) throws IOException {
+        out.write("Checked " + documents + " files: " + wellFormed + " well-formed, " + withErrors
+                + " with errors, " + unreadable + " unreadable." + NEW_LINE);
+    }
+
+    @Override
+    public void statistics(DocumentStatistics statistics) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append("===========Statistics===========").append(NEW_LINE);
+        text.append("Elements: ").append(statistics.getElementCount()).append(NEW_LINE);
+        text.append("Maximum depth: ").append(statistics.getMaxDepth()).append(NEW_LINE);
+        text.append("Average depth: ").append(String.format(Locale.ROOT, "%.2f", statistics.getAverageDepth()))
+                .append(NEW_LINE);
+        text.append("Attributes: ").append(statistics.getAttributeCount()).append(NEW_LINE);
+        text.append("Text bytes: ").append(statistics.getTextBytes()).append(NEW_LINE);
+        text.append("Comments: ").append(statistics.getCommentCount()).append(NEW_LINE);
+        text.append("Processing instructions: ").append(statistics.getProcessingInstructionCount()).append(NEW_LINE);
+        text.append("Elements by tag:").append(NEW_LINE);
+        SymbolTable names = statistics.getSymbols();
+        for (int id = 0; id < names.size(); id++) {
+            int count = statistics.getTagCount(id);
+            if (count > 0) {
+                text.append("  ").append(names.name(id)).append(": ").append(count).append(NEW_LINE);
+            }
+        }
+        out.write(text.toString());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
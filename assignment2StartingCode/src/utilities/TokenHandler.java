@@ -0,0 +1,146 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+
+/**
+ * TokenHandler.java
+ *
+ * Receives the tags found by an {@link XMLTokenizer}, in document order. Names and line
+ * text are passed as a range of the tokenizer's input window rather than as Strings, so
+ * a handler that only compares them never allocates. The window and the range are only
+ * valid for the duration of the call.
+ *
+ * <p>Self-closing tags, comments, processing instructions and text are passed to default
+ * methods that ignore them, so a handler that only checks nesting need not implement
+ * them.</p>
+ *
+ * <p>A handler that only needs part of the document, such as the first error, can end
+ * tokenizing early through {@link #isFinished()}.</p>
+ */
+public interface TokenHandler {
+
+    /**
+     * Called for an opening tag such as {@code <Driver FolderName="driver001">}.
+     *
+     * @param window the window holding the tag
+     * @param nameStart the index of the first byte of the tag name
+     * @param nameLength the length of the tag name in bytes
+     * @param line the 1-based line the tag starts on
+     * @param column the 1-based column of the tag's '&lt;'
+     */
+    void openTag(ByteBuffer window, int nameStart, int nameLength, int line, int column);
+
+    /**
+     * Called for a closing tag such as {@code </Driver>}.
+     *
+     * @param window the window holding the tag
+     * @param nameStart the index of the first byte of the tag name
+     * @param nameLength the length of the tag name in bytes
+     * @param line the 1-based line the tag starts on
+     * @param column the 1-based column of the tag's '&lt;'
+     */
+    void closeTag(ByteBuffer window, int nameStart, int nameLength, int line, int column);
+
+    /**
+     * Called when markup is opened with '&lt;' but not closed before the '&lt;' of the next
+     * tag or the end of the document. Scanning goes on from where the markup stopped.
+     * Only the start of the markup's first line is passed, as a copy held in a buffer of
+     * the tokenizer's own rather than in the window.
+     *
+     * @param window the buffer holding the start of the markup's first line
+     * @param textStart the index of the markup's '&lt;'
+     * @param textLength the length of the first line, without trailing whitespace and at
+     *                   most {@link XMLTokenizer#MAX_QUOTE_LENGTH}, in bytes
+     * @param line the 1-based line the markup starts on
+     */
+    void malformedTag(ByteBuffer window, int textStart, int textLength, int line);
+
+    /**
+     * Called when a tag is followed straight away by a second '&gt;', as in
+     * {@code <Driver>>}. The tag itself is not reported.
+     *
+     * @param window the window holding the tag
+     * @param textStart the index of the tag's '&lt;'
+     * @param textLength the length of the tag and both '&gt;' in bytes
+     * @param line the 1-based line the tag starts on
+     */
+    void invalidCloseTag(ByteBuffer window, int textStart, int textLength, int line);
+
+    /**
+     * Called for a self-closing tag such as {@code <br/>}.
+     *
+     * @param window the window holding the tag
+     * @param nameStart the index of the first byte of the tag name
+     * @param nameLength the length of the tag name in bytes
+     * @param line the 1-based line the tag starts on
+     * @param column the 1-based column of the tag's '&lt;'
+     */
+    default void emptyTag(ByteBuffer window, int nameStart, int nameLength, int line, int column) {
+    }
+
+    /**
+     * Called for a comment such as {@code <!-- note -->}. A comment that spans lines is
+     * passed one line at a time, like text, without the line breaks, and a line longer
+     * than {@link XMLTokenizer#MAX_KEPT_LENGTH} may be passed in pieces; the parts after
+     * the first are passed with column 0.
+     *
+     * @param window the window holding the comment
+     * @param textStart the index of the first byte after "&lt;!--", or of the line
+     * @param textLength the length of the comment text, without a closing "--", in bytes
+     * @param line the 1-based line of this part of the comment
+     * @param column the 1-based column of the comment's '&lt;', or 0 for a later line
+     */
+    default void comment(ByteBuffer window, int textStart, int textLength, int line, int column) {
+    }
+
+    /**
+     * Called for a processing instruction such as {@code <?xml version="1.0"?>}. An
+     * instruction that spans lines is passed one line at a time, as a comment is.
+     *
+     * @param window the window holding the instruction
+     * @param textStart the index of the first byte after "&lt;?", or of the line
+     * @param textLength the length of the instruction, without a closing '?', in bytes
+     * @param line the 1-based line of this part of the instruction
+     * @param column the 1-based column of the instruction's '&lt;', or 0 for a later line
+     */
+    default void processingInstruction(ByteBuffer window, int textStart, int textLength, int line, int column) {
+    }
+
+    /**
+     * Called for the text between two tags, or between a tag and the end of its line.
+     * Text never spans lines, and the line break ending a line is not part of any text.
+     * The contents of a CDATA section are passed on as text.
+     *
+     * @param window the window holding the text
+     * @param textStart the index of the first byte of the text
+     * @param textLength the length of the text in bytes
+     * @param line the 1-based line of the text
+     */
+    default void text(ByteBuffer window, int textStart, int textLength, int line) {
+    }
+
+    /**
+     * Called for the next piece of text that grew longer than
+     * {@link XMLTokenizer#MAX_KEPT_LENGTH} before it ended, after
+     * {@link #text(ByteBuffer, int, int, int)} was called for the piece before it on the
+     * same line. By default the piece is passed to text().
+     *
+     * @param window the window holding the piece
+     * @param textStart the index of the first byte of the piece
+     * @param textLength the length of the piece in bytes
+     * @param line the 1-based line of the text
+     */
+    default void continueText(ByteBuffer window, int textStart, int textLength, int line) {
+        text(window, textStart, textLength, line);
+    }
+
+    /**
+     * Called after each tag, comment, processing instruction or error is reported.
+     * Returning true stops the tokenizer; the rest of the document is skipped.
+     *
+     * @return true if the handler needs no more of the document
+     */
+    default boolean isFinished() {
+        return false;
+    }
+}
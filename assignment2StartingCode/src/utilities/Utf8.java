@@ -0,0 +1,152 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utf8.java
+ *
+ * Conversions between the UTF-8 bytes of a document and Java characters. Documents are
+ * almost all ASCII, where a byte is a character, so every conversion first checks for
+ * ASCII, eight bytes at a time, and only decodes or encodes when it finds a byte of
+ * 0x80 or more. Tags are tokenized and names compared as bytes, so these are only
+ * needed where a caller asks for text.
+ */
+final class Utf8 {
+    /** The high bit of every byte of a long; a byte with it set is not ASCII. */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * Prevents instantiation; the class only has static methods.
+     */
+    private Utf8() {
+    }
+
+    /**
+     * Tests if a range of a buffer is all ASCII.
+     *
+     * @param buffer the buffer, by absolute index
+     * @param start the index of the first byte
+     * @param length the number of bytes
+     * @return true if no byte is 0x80 or more
+     */
+    static boolean isAscii(ByteBuffer buffer, int start, int length) {
+        int index = start;
+        int end = start + length;
+        while (index + Long.BYTES <= end) {
+            if ((buffer.getLong(index) & HIGH_BITS) != 0) {
+                return false;
+            }
+            index += Long.BYTES;
+        }
+        while (index < end) {
+            if (buffer.get(index++) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests if a range of an array is all ASCII.
+     *
+     * @param bytes the array
+     * @param start the index of the first byte
+     * @param length the number of bytes
+     * @return true if no byte is 0x80 or more
+     */
+    static boolean isAscii(byte[] bytes, int start, int length) {
+        return isAscii(ByteBuffer.wrap(bytes), start, length);
+    }
+
+    /**
+     * Decodes a range of a buffer. Malformed sequences become U+FFFD.
+     *
+     * @param buffer the buffer, by absolute index
+     * @param start the index of the first byte
+     * @param length the number of bytes
+     * @return the characters
+     */
+    static String decode(ByteBuffer buffer, int start, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(start, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a decoded range of an array to a builder. ASCII is appended a byte at a
+     * time without creating a String.
+     *
+     * @param bytes the array
+     * @param start the index of the first byte
+     * @param length the number of bytes
+     * @param builder the builder to append to
+     */
+    static void append(byte[] bytes, int start, int length, StringBuilder builder) {
+        if (!isAscii(bytes, start, length)) {
+            builder.append(new String(bytes, start, length, StandardCharsets.UTF_8));
+            return;
+        }
+        for (int i = start; i < start + length; i++) {
+            builder.append((char) bytes[i]);
+        }
+    }
+
+    /**
+     * Encodes text.
+     *
+     * @param text the text
+     * @return its UTF-8 bytes
+     */
+    static byte[] encode(CharSequence text) {
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests if a range of a buffer holds the UTF-8 encoding of some text. ASCII text is
+     * compared character by character; other text is encoded first.
+     *
+     * @param buffer the buffer, by absolute index
+     * @param start the index of the first byte
+     * @param length the number of bytes
+     * @param text the text to compare with
+     * @return true if the range encodes exactly the text
+     */
+    static boolean equals(ByteBuffer buffer, int start, int length, CharSequence text) {
+        int textLength = text.length();
+        if (textLength > length) {
+            return false;
+        }
+        for (int i = 0; i < textLength; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                return equals(buffer, start, length, encode(text));
+            }
+            if (buffer.get(start + i) != c) {
+                return false;
+            }
+        }
+        return textLength == length;
+    }
+
+    /**
+     * Tests if a range of a buffer holds the given bytes.
+     *
+     * @param buffer the buffer, by absolute index
+     * @param start the index of the first byte
+     * @param length the number of bytes
+     * @param bytes the bytes to compare with
+     * @return true if the range and the bytes are equal
+     */
+    private static boolean equals(ByteBuffer buffer, int start, int length, byte[] bytes) {
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
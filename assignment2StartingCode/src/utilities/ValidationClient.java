@@ -0,0 +1,150 @@
+package utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ValidationClient.java
+ *
+ * Sends documents to a running {@link ValidationServer} over one connection and returns
+ * the reports it answers with. A client is meant to be used by one thread at a time.
+ *
+ * <p>The server only opens files itself for clients on a Unix domain socket. Over a
+ * localhost port, the client reads a file and sends its bytes instead.</p>
+ */
+public class ValidationClient implements Closeable {
+    private final SocketChannel channel;
+    private final boolean fileRequests; // the server may be asked to open files
+    private final InputStream in;
+    private final OutputStream out;
+
+    /**
+     * Connects to a server.
+     *
+     * @param address the address the server listens on
+     * @throws IOException if the connection cannot be made
+     */
+    public ValidationClient(SocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        fileRequests = address instanceof UnixDomainSocketAddress;
+        in = new BufferedInputStream(Channels.newInputStream(channel));
+        out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+    }
+
+    /**
+     * Asks the server to check a file. On a Unix domain socket the server reads the file
+     * itself, so the path is made absolute first, since the server may run in a
+     * different directory. On a localhost port the file is sent as data.
+     *
+     * @param file the file to check
+     * @return the report of the file, as Parser prints it
+     * @throws IOException if the request fails, or the file cannot be read to send it
+     */
+    public String validate(Path file) throws IOException {
+        if (!fileRequests) {
+            return send(file);
+        }
+        String path = file.toAbsolutePath().toString();
+        if (path.indexOf('\n') >= 0) {
+            throw new IOException("Cannot send a path containing a line break: " + path);
+        }
+        out.write(("FILE " + path + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return readAnswer();
+    }
+
+    /**
+     * Sends a document to the server to check.
+     *
+     * @param document the bytes of the document
+     * @return the report of the document, as Parser prints it
+     * @throws IOException if the request fails
+     */
+    public String validate(byte[] document) throws IOException {
+        out.write(("DATA " + document.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(document);
+        out.flush();
+        return readAnswer();
+    }
+
+    /**
+     * Sends the contents of a file as a document, copying them straight from the file to
+     * the connection.
+     *
+     * @param file the file to send
+     * @return the report of the file, as Parser prints it
+     * @throws IOException if the file cannot be read or the request fails
+     */
+    private String send(Path file) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = source.size();
+            out.write(("DATA " + length + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            long position = 0;
+            while (position < length) {
+                long sent = source.transferTo(position, length - position, channel);
+                if (sent <= 0) {
+                    throw new EOFException("File shrank while it was being sent: " + file);
+                }
+                position += sent;
+            }
+        }
+        return readAnswer();
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @throws IOException if the connection cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads the server's answer to the last request.
+     *
+     * @return the body of an OK answer
+     * @throws IOException if the server answered with an error or the connection failed
+     */
+    private String readAnswer() throws IOException {
+        String status = ValidationServer.readLine(in);
+        if (status == null) {
+            throw new EOFException("The server closed the connection.");
+        }
+        int space = status.indexOf(' ');
+        int length;
+        try {
+            length = Integer.parseInt(status.substring(space + 1));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected answer from the server: " + status, e);
+        }
+        if (space < 0 || length < 0) {
+            throw new IOException("Unexpected answer from the server: " + status);
+        }
+
+        byte[] body = in.readNBytes(length);
+        if (body.length < length) {
+            throw new EOFException("The server closed the connection.");
+        }
+        String text = new String(body, StandardCharsets.UTF_8);
+        if (!status.startsWith("OK ")) {
+            throw new IOException(text);
+        }
+        return text;
+    }
+}
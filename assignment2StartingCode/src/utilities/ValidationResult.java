@@ -0,0 +1,102 @@
+package utilities;
+
+/**
+ * ValidationResult.java
+ *
+ * The outcome of validating one document with an {@link XMLValidator}: whether it is
+ * well-formed, the errors found, and a few counts gathered along the way. The result
+ * reads the validator's state directly rather than copying it, so it is reused by the
+ * validator's next validation.
+ */
+public class ValidationResult {
+    private final TagChecker checker;
+    private final XMLTokenizer tokenizer;
+
+    /**
+     * Creates the result of a validator.
+     *
+     * @param checker the validator's checker
+     * @param tokenizer the validator's tokenizer
+     */
+    ValidationResult(TagChecker checker, XMLTokenizer tokenizer) {
+        this.checker = checker;
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Tests if the document has no errors.
+     *
+     * @return true if no errors were found
+     */
+    public boolean isWellFormed() {
+        return checker.getErrorCount() == 0;
+    }
+
+    /**
+     * Returns the number of errors found, including those passed to a sink.
+     *
+     * @return the number of errors
+     */
+    public int getErrorCount() {
+        return checker.getErrorCount();
+    }
+
+    /**
+     * Returns the errors found, in the order Parser prints them. Errors that were passed
+     * to a sink are not in the log.
+     *
+     * @return the error log
+     */
+    public ErrorLog getErrors() {
+        return checker.getErrors();
+    }
+
+    /**
+     * Tests if the whole document was checked. A validation that reached its error limit
+     * skips the rest of the document.
+     *
+     * @return false if the validation stopped early
+     */
+    public boolean isComplete() {
+        return !tokenizer.isStopped();
+    }
+
+    /**
+     * Returns the number of lines checked.
+     *
+     * @return the number of lines, counting a last line without a line break
+     */
+    public int getLineCount() {
+        return tokenizer.getLineNumber() - 1;
+    }
+
+    /**
+     * Returns the offsets the lines of the document start at, if the validator was asked
+     * to index them.
+     *
+     * @return the line index, or null if lines were not indexed
+     */
+    public LineIndex getLineIndex() {
+        return tokenizer.getLineIndex();
+    }
+
+    /**
+     * Returns the number of opening and closing tags checked. Self-closing tags,
+     * comments and processing instructions are not counted.
+     *
+     * @return the number of tags
+     */
+    public int getTagCount() {
+        return checker.getTagCount();
+    }
+
+    /**
+     * Formats the errors kept in the result the way Parser prints them for a single file.
+     *
+     * @return the report of the document
+     */
+    @Override
+    public String toString() {
+        return Parser.report(getErrors());
+    }
+}
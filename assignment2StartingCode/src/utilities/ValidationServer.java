@@ -0,0 +1,287 @@
+package utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ValidationServer.java
+ *
+ * A long-running validation service. It listens on a Unix domain socket or a localhost
+ * port and checks the documents its clients send, so each request is served by a JVM
+ * whose code is already compiled and whose buffers are already allocated. Every
+ * connection is handled on its own thread, with an {@link XMLValidator} taken from a
+ * shared pool for each request.
+ *
+ * <p>A connection carries any number of requests, one after the other. Each request is
+ * a header line ending in '\n', either {@code FILE <path>} to check a file the server
+ * can read, or {@code DATA <length>} followed by that many bytes of the document itself.
+ * FILE is only served on a Unix domain socket, whose file permissions decide who may
+ * connect; on a localhost port any local user could otherwise have the server read, and
+ * quote back, any file the server's user can read.
+ * The answer is {@code OK <length>} and a line break followed by that many bytes of the
+ * report Parser prints for the document. A request the server does not understand is
+ * answered with {@code ERR <length>} and a message, and the connection is closed.</p>
+ */
+public class ValidationServer implements Closeable {
+    /** Header lines longer than this are rejected. */
+    static final int MAX_HEADER_LENGTH = 8192;
+
+    private final ServerSocketChannel server;
+    private final SocketAddress address;
+    private final boolean fileRequests; // FILE requests are served
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<XMLValidator> validators = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a server listening on the given address.
+     *
+     * @param address a {@link UnixDomainSocketAddress} or a local {@link InetSocketAddress}
+     * @throws IOException if the address cannot be bound
+     */
+    public ValidationServer(SocketAddress address) throws IOException {
+        server = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        try {
+            server.bind(address);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        this.address = server.getLocalAddress();
+        fileRequests = address instanceof UnixDomainSocketAddress;
+
+        ExecutorService virtualThreads = VirtualThreads.newExecutor();
+        executor = virtualThreads != null ? virtualThreads : Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Parses an address given on the command line: a number is a port on the loopback
+     * interface, and anything else is the path of a Unix domain socket.
+     *
+     * @param text the address
+     * @return the socket address
+     * @throws IllegalArgumentException if the text is not a valid port or socket path
+     */
+    public static SocketAddress parseAddress(String text) {
+        if (!text.isEmpty() && text.chars().allMatch(Character::isDigit)) {
+            int port;
+            try {
+                port = Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid port: " + text, e);
+            }
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        }
+        try {
+            return UnixDomainSocketAddress.of(text);
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid socket path: " + text, e);
+        }
+    }
+
+    /**
+     * Returns the address the server is listening on. For a port of 0 this holds the
+     * port that was actually chosen.
+     *
+     * @return the bound address
+     */
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Accepts connections until the server is closed. Each connection is served on its
+     * own thread.
+     *
+     * @throws IOException if accepting a connection fails
+     */
+    public void serve() throws IOException {
+        while (true) {
+            SocketChannel connection;
+            try {
+                connection = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            executor.execute(() -> handle(connection));
+        }
+    }
+
+    /**
+     * Stops accepting connections, closes the ones being served and removes the socket
+     * file of a Unix domain socket.
+     *
+     * @throws IOException if the socket file cannot be removed
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        executor.shutdownNow();
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+
+    /**
+     * Reads one header line, without its '\n'.
+     *
+     * @param in the stream to read from
+     * @return the line, or null if the stream ended before the first byte
+     * @throws IOException if the line is too long, the stream ends inside it, or it
+     *         cannot be read
+     */
+    static String readLine(InputStream in) throws IOException {
+        byte[] line = new byte[128];
+        int length = 0;
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                if (length == 0) {
+                    return null;
+                }
+                throw new EOFException("Connection closed inside a header line.");
+            }
+            if (length == MAX_HEADER_LENGTH) {
+                throw new IOException("Header line longer than " + MAX_HEADER_LENGTH + " bytes.");
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = (byte) b;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes one answer: a status line with the length of the body, then the body.
+     *
+     * @param out the stream to write to
+     * @param status "OK" or "ERR"
+     * @param body the text of the answer
+     * @throws IOException if the answer cannot be written
+     */
+    private static void respond(OutputStream out, String status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        out.write((status + " " + bytes.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * Serves the requests of one connection until the client closes it.
+     *
+     * @param connection the connection to serve
+     */
+    private void handle(SocketChannel connection) {
+        try (connection) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(connection));
+            ReadableByteChannel body = Channels.newChannel(in);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(connection), 1 << 16);
+
+            String header;
+            while ((header = readLine(in)) != null) {
+                if (header.startsWith("FILE ")) {
+                    if (!fileRequests) {
+                        respond(out, "ERR", "FILE is only served on a Unix domain socket; send the document with DATA.");
+                        return;
+                    }
+                    respond(out, "OK", checkFile(header.substring(5)));
+                } else if (header.startsWith("DATA ")) {
+                    long length = parseLength(header.substring(5));
+                    if (length < 0) {
+                        respond(out, "ERR", "Invalid length: " + header.substring(5));
+                        return;
+                    }
+                    respond(out, "OK", checkData(body, length));
+                } else {
+                    respond(out, "ERR", "Unknown request: " + header);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The client went away or broke the protocol; there is nobody left to tell.
+        }
+    }
+
+    /**
+     * Checks a file named in a request.
+     *
+     * @param path the path of the file
+     * @return the report of the file
+     */
+    private String checkFile(String path) {
+        XMLValidator validator = take();
+        try {
+            return validator.validate(Paths.get(path)).toString();
+        } catch (IOException | InvalidPathException e) {
+            return "Error reading XML file: " + Parser.reason(e) + System.lineSeparator();
+        } finally {
+            validators.offer(validator);
+        }
+    }
+
+    /**
+     * Checks a document sent in a request.
+     *
+     * @param body the channel the document is read from
+     * @param length the length of the document in bytes
+     * @return the report of the document
+     * @throws IOException if the document cannot be read from the connection
+     */
+    private String checkData(ReadableByteChannel body, long length) throws IOException {
+        XMLValidator validator = take();
+        try {
+            return validator.validate(body, length).toString();
+        } finally {
+            validators.offer(validator);
+        }
+    }
+
+    /**
+     * Takes an idle validator from the pool, creating one if none is idle.
+     *
+     * @return the validator
+     */
+    private XMLValidator take() {
+        XMLValidator validator = validators.poll();
+        return validator != null ? validator : new XMLValidator();
+    }
+
+    /**
+     * Parses the length in a DATA request.
+     *
+     * @param text the length
+     * @return the length, or -1 if it is not a non-negative number
+     */
+    private static long parseLength(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package utilities;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * VirtualThreads.java
+ *
+ * Gives access to virtual threads when the runtime has them. The project is compiled for
+ * Java 17, which has no virtual threads, so the executor factory is looked up by name
+ * and callers fall back to platform threads when it is missing.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every task.
+     *
+     * @return the executor, or null if the runtime does not support virtual threads
+     */
+    static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
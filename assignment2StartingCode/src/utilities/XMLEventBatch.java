@@ -0,0 +1,162 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * XMLEventBatch.java
+ *
+ * A run of consecutive events of a document, as published by an
+ * {@link XMLEventPublisher}. Unlike the views of an {@link XMLEventCursor}, a batch owns
+ * a copy of its names and text, so it stays valid after it has been handed to another
+ * thread. The events are kept in parallel primitive arrays and the names and text in a
+ * single byte array, so a batch is a handful of objects however many events it holds.
+ *
+ * <p>Event types are the constants of {@link XMLEventCursor}.</p>
+ */
+public final class XMLEventBatch {
+    private byte[] types;
+    private int[] lines;
+    private int[] columns;
+    private int[] starts;
+    private int[] lengths;
+    private int size;
+
+    private byte[] content = new byte[256];
+    private int contentLength;
+    private ByteBuffer contentBuffer;
+
+    /**
+     * Creates an empty batch with room for the given number of events.
+     *
+     * @param capacity the number of events expected
+     */
+    XMLEventBatch(int capacity) {
+        types = new byte[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+    }
+
+    /**
+     * Copies the current event of a cursor into the batch.
+     *
+     * @param cursor the cursor, positioned on an event
+     */
+    void add(XMLEventCursor cursor) {
+        if (size == types.length) {
+            int capacity = Math.max(size * 2, 1);
+            types = Arrays.copyOf(types, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        ByteSequence view = cursor.getContent();
+        int length = view.byteLength();
+        if (contentLength + length > content.length) {
+            content = Arrays.copyOf(content, Math.max(content.length * 2, contentLength + length));
+        }
+        view.copyTo(content, contentLength);
+
+        types[size] = (byte) cursor.getEventType();
+        lines[size] = cursor.getLine();
+        columns[size] = cursor.getColumn();
+        starts[size] = contentLength;
+        lengths[size] = length;
+        contentLength += length;
+        size++;
+    }
+
+    /**
+     * Returns the number of events in the batch.
+     *
+     * @return the number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the type of an event.
+     *
+     * @param index the index of the event
+     * @return one of the event types of {@link XMLEventCursor}
+     * @throws IndexOutOfBoundsException if there is no event at that index
+     */
+    public int type(int index) {
+        return types[checkIndex(index)];
+    }
+
+    /**
+     * Returns the line of an event.
+     *
+     * @param index the index of the event
+     * @return the 1-based line number
+     * @throws IndexOutOfBoundsException if there is no event at that index
+     */
+    public int line(int index) {
+        return lines[checkIndex(index)];
+    }
+
+    /**
+     * Returns the column of an event.
+     *
+     * @param index the index of the event
+     * @return the 1-based column of the event's '&lt;', or 0 for text
+     * @throws IndexOutOfBoundsException if there is no event at that index
+     */
+    public int column(int index) {
+        return columns[checkIndex(index)];
+    }
+
+    /**
+     * Returns the name of an element event.
+     *
+     * @param index the index of the event
+     * @return the tag name, or null for an event that has text instead
+     * @throws IndexOutOfBoundsException if there is no event at that index
+     */
+    public CharSequence name(int index) {
+        return types[checkIndex(index)] <= XMLEventCursor.EMPTY_ELEMENT ? view(index) : null;
+    }
+
+    /**
+     * Returns the text of a text, comment or processing instruction event.
+     *
+     * @param index the index of the event
+     * @return the text, or null for an element event
+     * @throws IndexOutOfBoundsException if there is no event at that index
+     */
+    public CharSequence text(int index) {
+        return types[checkIndex(index)] > XMLEventCursor.EMPTY_ELEMENT ? view(index) : null;
+    }
+
+    /**
+     * Returns a view of the name or text of an event.
+     *
+     * @param index the index of the event
+     * @return the view
+     */
+    private CharSequence view(int index) {
+        if (contentBuffer == null || contentBuffer.array() != content) {
+            contentBuffer = ByteBuffer.wrap(content);
+        }
+        return new ByteSequence(contentBuffer, starts[index], lengths[index]);
+    }
+
+    /**
+     * Checks that an index refers to an event in the batch.
+     *
+     * @param index the index of the event
+     * @return the index
+     * @throws IndexOutOfBoundsException if there is no event at that index
+     */
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index is out of bounds!");
+        }
+        return index;
+    }
+}
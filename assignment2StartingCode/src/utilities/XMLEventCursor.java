@@ -0,0 +1,374 @@
+package utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * XMLEventCursor.java
+ *
+ * A pull parser over the {@link XMLTokenizer}. The caller asks for one event at a time
+ * and reads the name or text of the current event through CharSequence views of the
+ * input window, which are reused from event to event, so walking a document creates no
+ * Strings. The document is checked for nesting errors while it is read, so a caller can
+ * validate and extract in one pass; once the last event has been read,
+ * {@link #getErrors()} holds the same errors Parser reports.
+ *
+ * <p>The input is read in blocks into a window. Each block is tokenized as it arrives
+ * and its events are queued as positions in the window, which stays unchanged until
+ * every queued event has been read. A name or text is therefore only valid until the
+ * next call to {@link #next()}; copy it with toString() to keep it.</p>
+ *
+ * <p>Events follow the tokenizer's line rules: text never spans lines and does not
+ * include line breaks, CDATA sections are passed as text, a comment or processing
+ * instruction that spans lines produces an event for each line, and a tag that is
+ * reported as an error produces no events. Text or a line longer than
+ * {@link XMLTokenizer#MAX_KEPT_LENGTH} may produce an event for each piece, the later
+ * ones with column 0.</p>
+ */
+public class XMLEventCursor implements Closeable {
+    /** An opening tag such as {@code <Driver FolderName="driver001">}. */
+    public static final int START_ELEMENT = 1;
+
+    /** A closing tag such as {@code </Driver>}. */
+    public static final int END_ELEMENT = 2;
+
+    /** A self-closing tag such as {@code <br/>}. */
+    public static final int EMPTY_ELEMENT = 3;
+
+    /** Text between tags, or between a tag and the end of its line. */
+    public static final int TEXT = 4;
+
+    /** A comment; its text excludes the "&lt;!--" and "--&gt;". */
+    public static final int COMMENT = 5;
+
+    /** A processing instruction; its text excludes the "&lt;?" and "?&gt;". */
+    public static final int PROCESSING_INSTRUCTION = 6;
+
+    /** Size of the window a block is read into; it grows for longer tags. */
+    private static final int WINDOW_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final TagChecker checker = new TagChecker();
+    private final XMLTokenizer tokenizer = new XMLTokenizer(new EventRecorder());
+    private final ByteSequence name = new ByteSequence();
+    private final ByteSequence text = new ByteSequence();
+    private ByteBuffer window;
+    private boolean endOfInput;
+    private boolean finished;
+
+    // Events of the tokenized part of the window, not yet all read.
+    private byte[] types = new byte[64];
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    private int[] lines = new int[64];
+    private int[] columns = new int[64];
+    private int count;
+    private int current = -1;
+
+    /**
+     * Creates a cursor over a file. The file is read as events are asked for and is
+     * closed by {@link #close()}. Its encoding is detected and converted to UTF-8 the
+     * same way the validator reads files.
+     *
+     * @param file the file to read
+     * @throws IOException if the file cannot be opened
+     */
+    public XMLEventCursor(Path file) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Creates a cursor over everything a channel delivers until it ends. The encoding of
+     * the document is detected and converted to UTF-8 as it is read. The channel is
+     * closed by {@link #close()}.
+     *
+     * @param channel the channel to read
+     */
+    public XMLEventCursor(ReadableByteChannel channel) {
+        this.channel = ChannelReader.decoding(channel);
+        this.window = ByteBuffer.allocate(WINDOW_SIZE);
+        window.limit(0);
+    }
+
+    /**
+     * Creates a cursor over a document held in memory. The array is read in place and
+     * must not be changed while the cursor is in use.
+     *
+     * @param document the document
+     */
+    public XMLEventCursor(byte[] document) {
+        this.channel = null;
+        this.window = ByteBuffer.wrap(document);
+    }
+
+    /**
+     * Tests if there is another event, reading and tokenizing more of the input if
+     * needed.
+     *
+     * @return true if {@link #next()} will return an event
+     * @throws IOException if the input cannot be read
+     */
+    public boolean hasNext() throws IOException {
+        while (current + 1 >= count) {
+            if (finished) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    /**
+     * Moves to the next event.
+     *
+     * @return the type of the event
+     * @throws IOException if the input cannot be read
+     * @throws NoSuchElementException if the document has no more events
+     */
+    public int next() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more events in the document.");
+        }
+        current++;
+        if (types[current] <= EMPTY_ELEMENT) {
+            name.set(window, starts[current], lengths[current]);
+        } else {
+            text.set(window, starts[current], lengths[current]);
+        }
+        return types[current];
+    }
+
+    /**
+     * Returns the type of the current event.
+     *
+     * @return one of {@link #START_ELEMENT}, {@link #END_ELEMENT}, {@link #EMPTY_ELEMENT},
+     *         {@link #TEXT}, {@link #COMMENT} and {@link #PROCESSING_INSTRUCTION}
+     * @throws IllegalStateException if next() has not been called
+     */
+    public int getEventType() {
+        return types[checkCurrent()];
+    }
+
+    /**
+     * Returns the name of the current element. The view is reused by the next event.
+     *
+     * @return the tag name
+     * @throws IllegalStateException if the current event is not an element
+     */
+    public CharSequence getName() {
+        if (types[checkCurrent()] > EMPTY_ELEMENT) {
+            throw new IllegalStateException("The current event has no name.");
+        }
+        return name;
+    }
+
+    /**
+     * Returns the text of the current text, comment or processing instruction. The view
+     * is reused by the next event.
+     *
+     * @return the text
+     * @throws IllegalStateException if the current event is an element
+     */
+    public CharSequence getText() {
+        if (types[checkCurrent()] <= EMPTY_ELEMENT) {
+            throw new IllegalStateException("The current event has no text.");
+        }
+        return text;
+    }
+
+    /**
+     * Returns the name or text of the current event, whichever it has.
+     *
+     * @return the view of the current event's content
+     * @throws IllegalStateException if next() has not been called
+     */
+    ByteSequence getContent() {
+        return types[checkCurrent()] <= EMPTY_ELEMENT ? name : text;
+    }
+
+    /**
+     * Tests if the current event is text made only of whitespace.
+     *
+     * @return true for text of spaces and control characters only
+     */
+    public boolean isWhitespace() {
+        if (types[checkCurrent()] != TEXT) {
+            return false;
+        }
+        byte[] bytes = window.array();
+        int end = starts[current] + lengths[current];
+        for (int i = starts[current]; i < end; i++) {
+            if ((bytes[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the line of the current event.
+     *
+     * @return the 1-based line number
+     * @throws IllegalStateException if next() has not been called
+     */
+    public int getLine() {
+        return lines[checkCurrent()];
+    }
+
+    /**
+     * Returns the column of the current event.
+     *
+     * @return the 1-based column of the event's '&lt;', or 0 for text and for the later
+     *         lines of a comment or processing instruction
+     * @throws IllegalStateException if next() has not been called
+     */
+    public int getColumn() {
+        return columns[checkCurrent()];
+    }
+
+    /**
+     * Returns the errors found in the part of the document read so far. Once
+     * {@link #hasNext()} has returned false, the log also holds the tags left open and
+     * is the same as the one Parser prints.
+     *
+     * @return the error log
+     */
+    public ErrorLog getErrors() {
+        return checker.getErrors();
+    }
+
+    /**
+     * Closes the channel the cursor reads from.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads the next block and tokenizes it, replacing the events that have been read.
+     * At the end of the input the checker reports the tags left open.
+     *
+     * @throws IOException if the input cannot be read
+     */
+    private void fill() throws IOException {
+        count = 0;
+        current = -1;
+        if (endOfInput) {
+            checker.finish();
+            finished = true;
+            return;
+        }
+        if (channel == null) {
+            endOfInput = true;
+        } else {
+            window.compact();
+            if (!window.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(window.capacity() * 2);
+                window.flip();
+                larger.put(window);
+                window = larger;
+            }
+            endOfInput = channel.read(window) == -1;
+            window.flip();
+        }
+        tokenizer.feed(window, endOfInput);
+    }
+
+    /**
+     * Queues an event of the block being tokenized.
+     *
+     * @param type the type of the event
+     * @param start the index of the name or text in the window
+     * @param length the length of the name or text
+     * @param line the line of the event
+     * @param column the column of the event, or 0
+     */
+    private void add(int type, int start, int length, int line, int column) {
+        if (count == types.length) {
+            int capacity = count * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        types[count] = (byte) type;
+        starts[count] = start;
+        lengths[count] = length;
+        lines[count] = line;
+        columns[count] = column;
+        count++;
+    }
+
+    /**
+     * Checks that there is a current event.
+     *
+     * @return the index of the current event
+     * @throws IllegalStateException if next() has not been called
+     */
+    private int checkCurrent() {
+        if (current < 0) {
+            throw new IllegalStateException("There is no current event.");
+        }
+        return current;
+    }
+
+    /**
+     * Passes the tokens to the checker and queues them as events.
+     */
+    private class EventRecorder implements TokenHandler {
+        @Override
+        public void openTag(ByteBuffer window, int nameStart, int nameLength, int line, int column) {
+            checker.openTag(window, nameStart, nameLength, line, column);
+            add(START_ELEMENT, nameStart, nameLength, line, column);
+        }
+
+        @Override
+        public void closeTag(ByteBuffer window, int nameStart, int nameLength, int line, int column) {
+            checker.closeTag(window, nameStart, nameLength, line, column);
+            add(END_ELEMENT, nameStart, nameLength, line, column);
+        }
+
+        @Override
+        public void malformedTag(ByteBuffer window, int textStart, int textLength, int line) {
+            checker.malformedTag(window, textStart, textLength, line);
+        }
+
+        @Override
+        public void invalidCloseTag(ByteBuffer window, int textStart, int textLength, int line) {
+            checker.invalidCloseTag(window, textStart, textLength, line);
+        }
+
+        @Override
+        public void emptyTag(ByteBuffer window, int nameStart, int nameLength, int line, int column) {
+            add(EMPTY_ELEMENT, nameStart, nameLength, line, column);
+        }
+
+        @Override
+        public void comment(ByteBuffer window, int textStart, int textLength, int line, int column) {
+            add(COMMENT, textStart, textLength, line, column);
+        }
+
+        @Override
+        public void processingInstruction(ByteBuffer window, int textStart, int textLength, int line, int column) {
+            add(PROCESSING_INSTRUCTION, textStart, textLength, line, column);
+        }
+
+        @Override
+        public void text(ByteBuffer window, int textStart, int textLength, int line) {
+            add(TEXT, textStart, textLength, line, 0);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * XMLEventPublisher.java
+ *
+ * Publishes the events of a document to a {@link Flow.Subscriber} in
+ * {@link XMLEventBatch batches}. The document is read through an {@link XMLEventCursor}
+ * only while the subscriber has outstanding demand, so a slow subscriber slows down the
+ * reading instead of events piling up in between; at most one block of input and one
+ * batch are held at a time.
+ *
+ * <p>A document can be read once, so a publisher accepts a single subscriber; any
+ * later subscriber is sent an IllegalStateException. Batches are delivered on the
+ * given executor, one at a time. When every event has been delivered, the errors found
+ * in the document are in {@link #getErrors()} before onComplete is called.</p>
+ */
+public class XMLEventPublisher implements Flow.Publisher<XMLEventBatch> {
+    /** Events per batch when no batch size is given. */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final Source source;
+    private final int batchSize;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private volatile ErrorLog errors;
+
+    /**
+     * Creates a publisher of the events of a file, in batches of
+     * {@link #DEFAULT_BATCH_SIZE}, delivered on the common pool.
+     *
+     * @param file the file to read
+     */
+    public XMLEventPublisher(Path file) {
+        this(file, DEFAULT_BATCH_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a publisher of the events of a file. Its encoding is detected and
+     * converted to UTF-8 the same way the validator reads files.
+     *
+     * @param file the file to read
+     * @param batchSize the most events in a batch
+     * @param executor the executor batches are delivered on
+     * @throws IllegalArgumentException if batchSize is not positive
+     */
+    public XMLEventPublisher(Path file, int batchSize, Executor executor) {
+        this(() -> new XMLEventCursor(file), batchSize, executor);
+    }
+
+    /**
+     * Creates a publisher of the events of a document held in memory.
+     *
+     * @param document the document; it must not be changed while it is published
+     * @param batchSize the most events in a batch
+     * @param executor the executor batches are delivered on
+     * @throws IllegalArgumentException if batchSize is not positive
+     */
+    public XMLEventPublisher(byte[] document, int batchSize, Executor executor) {
+        this(() -> new XMLEventCursor(document), batchSize, executor);
+    }
+
+    /**
+     * Creates a publisher that reads the cursor the source opens.
+     *
+     * @param source opens the cursor
+     * @param batchSize the most events in a batch
+     * @param executor the executor batches are delivered on
+     * @throws IllegalArgumentException if batchSize is not positive
+     */
+    private XMLEventPublisher(Source source, int batchSize, Executor executor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        if (executor == null) {
+            throw new NullPointerException("Executor cannot be null.");
+        }
+        this.source = source;
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super XMLEventBatch> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null.");
+        }
+        EventSubscription subscription = new EventSubscription(subscriber);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscription.cancelled = true;
+            subscriber.onSubscribe(subscription);
+            subscriber.onError(new IllegalStateException("The document has already been subscribed to."));
+            return;
+        }
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Returns the errors found in the document.
+     *
+     * @return the error log, or null until every event has been delivered
+     */
+    public ErrorLog getErrors() {
+        return errors;
+    }
+
+    /**
+     * Opens the cursor a publisher reads.
+     */
+    private interface Source {
+        /**
+         * Opens the cursor.
+         *
+         * @return the cursor
+         * @throws IOException if the document cannot be opened
+         */
+        XMLEventCursor open() throws IOException;
+    }
+
+    /**
+     * The subscription of the one subscriber. Requests add to the demand and schedule a
+     * drain; only one drain runs at a time, and it reads as many batches as there is
+     * demand for.
+     */
+    private class EventSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super XMLEventBatch> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private XMLEventCursor cursor;
+
+        /**
+         * Creates the subscription of a subscriber.
+         *
+         * @param subscriber the subscriber
+         */
+        EventSubscription(Flow.Subscriber<? super XMLEventBatch> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requests must be positive, not " + n + ".");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        /**
+         * Starts a drain on the executor unless one is already running.
+         */
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Delivers batches while there is demand, until the document ends, the
+         * subscription is cancelled or reading fails.
+         */
+        private void drain() {
+            int missed = 1;
+            do {
+                try {
+                    deliver();
+                } catch (IOException | RuntimeException e) {
+                    finish();
+                    subscriber.onError(e);
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Delivers as many batches as there is demand for.
+         *
+         * @throws IOException if the document cannot be read
+         */
+        private void deliver() throws IOException {
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (invalidRequest != null) {
+                finish();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            if (cursor == null) {
+                cursor = source.open();
+            }
+            while (demand.get() > 0 && !cancelled) {
+                XMLEventBatch batch = new XMLEventBatch(batchSize);
+                while (batch.size() < batchSize && cursor.hasNext()) {
+                    cursor.next();
+                    batch.add(cursor);
+                }
+                boolean complete = !cursor.hasNext();
+                if (batch.size() > 0) {
+                    demand.decrementAndGet();
+                    subscriber.onNext(batch);
+                }
+                if (complete) {
+                    errors = cursor.getErrors();
+                    finish();
+                    subscriber.onComplete();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Ends the subscription and closes the document.
+         */
+        private void finish() {
+            cancelled = true;
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                } catch (IOException e) {
+                    // The document has been read or abandoned; nothing depends on closing it.
+                }
+            }
+        }
+    }
+}
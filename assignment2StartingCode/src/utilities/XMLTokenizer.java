@@ -0,0 +1,716 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+
+/**
+ * XMLTokenizer.java
+ *
+ * A resumable tokenizer that is fed an XML document in chunks and reports the tags,
+ * comments, processing instructions and text it finds to a {@link TokenHandler}. A
+ * chunk may end anywhere, including in the middle of a tag or between the '\r' and '\n'
+ * of a line break; the tokenizer remembers how far it has scanned and what it is inside
+ * of, and continues from there when the next chunk arrives.
+ *
+ * <p>A small state machine tracks whether the scan is in text or inside a tag, a
+ * comment, a CDATA section, a processing instruction or a declaration such as
+ * {@code <!DOCTYPE>}, and each of these may span any number of lines. A tag ends at its
+ * first '&gt;'; a comment, CDATA section or processing instruction only at its own
+ * terminator, so a '&lt;' or '&gt;' inside one is not markup. The contents of CDATA
+ * sections are reported as text. Once a run of bytes that cannot change the state is
+ * longer than a typical tag name, and inside comments and CDATA sections at once, the
+ * rest of it is skipped eight bytes at a time by the {@link DelimiterScanner}, so even a
+ * large embedded payload is scanned only once. Tag names are reported as positions in
+ * the window, so scanning allocates nothing.</p>
+ *
+ * <p>Two mistakes are reported as errors. A tag followed straight away by another
+ * '&gt;' is an invalid close tag; the tag is not reported. Markup that is not closed
+ * before the '&lt;' of the next tag, or before the end of the document, is a malformed
+ * tag.</p>
+ *
+ * <p>The unfinished markup or text at the end of a chunk is left in the window for the
+ * caller to carry over, so memory is bounded by the chunk size and the longest tag
+ * rather than by the size of the document or its longest line. Comments and processing
+ * instructions that span lines are reported a line at a time, like text, and text or a
+ * body that grows past {@link #MAX_KEPT_LENGTH} within a line is reported in pieces,
+ * the later ones as continuations. Only a tag is kept whole; of any other markup, the
+ * first {@link #MAX_QUOTE_LENGTH} bytes of its first line are copied aside as they are
+ * scanned, to be quoted if it turns out to be malformed. Lines and columns are counted
+ * as offsets, never from the bytes kept.</p>
+ *
+ * <p>Line numbers are counted as lines end, without keeping the lines. A
+ * {@link LineIndex} can be set to also record the offset each line starts at, so the
+ * text of a line can be sliced out of the document later.</p>
+ *
+ * <p>After every tag, comment, processing instruction or error it reports, the tokenizer
+ * asks the handler whether it has seen enough. Once it has, the tokenizer stops: the
+ * rest of the document is skipped and callers that read the input stop reading it.</p>
+ */
+public class XMLTokenizer {
+    /**
+     * Most bytes of text, or of the body of a comment, CDATA section or processing
+     * instruction, held back in the window for the next chunk. Past that, what has been
+     * scanned of it is reported as a piece, and the rest follows as a continuation.
+     */
+    public static final int MAX_KEPT_LENGTH = 1 << 14;
+
+    /** Most bytes of its first line that a malformed tag error quotes. */
+    public static final int MAX_QUOTE_LENGTH = 256;
+
+    /** Ordinary bytes in a row after which the rest of the run is skipped by the scanner. */
+    private static final int SCAN_AFTER = 4;
+
+    // What the scan is inside of.
+    private static final int CONTENT = 0;     // text between markup
+    private static final int TAG = 1;         // an opening, closing or self-closing tag, up to '>'
+    private static final int COMMENT = 2;     // a comment, up to "-->"
+    private static final int CDATA = 3;       // a CDATA section, up to "]]>"
+    private static final int INSTRUCTION = 4; // a processing instruction, up to "?>"
+    private static final int DECLARATION = 5; // a declaration, up to a '>' outside brackets
+
+    private static final byte[] COMMENT_START = { '!', '-', '-' };
+    private static final byte[] CDATA_START = { '!', '[', 'C', 'D', 'A', 'T', 'A', '[' };
+
+    private final TokenHandler handler;
+
+    private int lineNumber;       // 1-based number of the line being scanned
+    private boolean stopped;      // the handler has seen enough; the rest is skipped
+    private boolean unterminated; // the input ended inside markup
+    private LineIndex lines;      // records where each line starts, or null
+
+    // Positions are offsets in the document, so they survive the caller moving the
+    // unconsumed bytes to the front of its buffer.
+    private long offset;          // offset of the window's position
+    private long windowOffset;    // offset of the window's index 0
+    private long next;            // offset of the next byte to scan
+    private long lineStart;       // offset of the first byte of the current line
+    private long textStart;       // offset of the first byte of text not yet reported
+    private boolean continued;    // part of the text or body on this line has been reported
+
+    private int state;
+    private long markupStart;     // offset of the '<' of the markup being scanned
+    private int markupLine;       // line of that '<'
+    private int markupColumn;     // 1-based column of that '<'
+    private int depth;            // brackets open in a declaration
+    private boolean tagPending;   // a tag has ended at next - 1 and waits to see if '>' follows
+
+    // The start of the markup's first line, copied as it is scanned so the markup can
+    // be quoted if it is malformed without being kept in the window.
+    private final byte[] quote = new byte[MAX_QUOTE_LENGTH];
+    private final ByteBuffer quoteBuffer = ByteBuffer.wrap(quote);
+    private int quoteLength;      // bytes copied into quote
+    private long quoteNext;       // offset of the first byte of the first line not yet copied
+    private boolean quoteCut;     // the first line goes on past the quote with more than whitespace
+
+    /**
+     * Creates a tokenizer that reports to the given handler.
+     *
+     * @param handler the handler to receive the tags
+     * @throws NullPointerException if handler is null
+     */
+    public XMLTokenizer(TokenHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException("Token handler cannot be null.");
+        }
+        this.handler = handler;
+        reset();
+    }
+
+    /**
+     * Clears the tokenizer state so it can be fed a new document.
+     */
+    public void reset() {
+        reset(1);
+    }
+
+    /**
+     * Clears the tokenizer state so it can be fed a new document, or a part of a document
+     * that starts at the beginning of the given line, outside of any markup.
+     *
+     * @param firstLineNumber the 1-based number of the first line that will be fed
+     */
+    public void reset(int firstLineNumber) {
+        lineNumber = firstLineNumber;
+        stopped = false;
+        unterminated = false;
+        offset = 0;
+        next = 0;
+        lineStart = 0;
+        textStart = 0;
+        continued = false;
+        state = CONTENT;
+        tagPending = false;
+        if (lines != null) {
+            lines.clear();
+        }
+    }
+
+    /**
+     * Returns the number of the line the tokenizer is on. After a document that ends
+     * with a line break has been fed, this is one more than the number of lines in it.
+     *
+     * @return the 1-based number of the line being scanned
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Sets the index the start of every line is recorded in, from the next document on.
+     * Resetting the tokenizer clears the index.
+     *
+     * @param lines the index to record lines in, or null to record none
+     */
+    public void setLineIndex(LineIndex lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * Returns the index the start of every line is recorded in.
+     *
+     * @return the index, or null if lines are not recorded
+     */
+    public LineIndex getLineIndex() {
+        return lines;
+    }
+
+    /**
+     * Tests if the handler has asked the tokenizer to stop. A stopped tokenizer consumes
+     * every window it is fed without looking at it, until it is reset.
+     *
+     * @return true if the rest of the document is being skipped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Tests if the input ended inside a tag, comment, CDATA section, processing
+     * instruction or declaration, which was then reported as a malformed tag.
+     *
+     * @return true if the last markup of the input was not closed
+     */
+    public boolean isUnterminated() {
+        return unterminated;
+    }
+
+    /**
+     * Tests if the bytes fed so far end inside markup, so the input that follows does
+     * not start in text.
+     *
+     * @return true if a tag, comment, CDATA section, processing instruction or
+     *         declaration is still open
+     */
+    boolean isInMarkup() {
+        return state != CONTENT || tagPending;
+    }
+
+    /**
+     * Tokenizes the bytes between the window's position and limit. Everything that can
+     * be reported is reported and consumed; on return the window's position is at the
+     * start of the unfinished markup or text, which the caller must present again,
+     * followed by more input, on the next call. When endOfInput is true the unfinished
+     * markup or text is reported as the end of the document and the whole window is
+     * consumed.
+     *
+     * @param window the bytes to tokenize
+     * @param endOfInput true if no more input follows the window
+     */
+    public void feed(ByteBuffer window, boolean endOfInput) {
+        int limit = window.limit();
+        windowOffset = offset - window.position();
+        int index = (int) (next - windowOffset);
+        int run = 0; // ordinary bytes since the last delimiter
+
+        scan:
+        while (index < limit && !stopped) {
+            byte b = window.get(index);
+            if (b == '\n' || b == '\r') {
+                int length = 1;
+                if (b == '\r') {
+                    if (index + 1 == limit && !endOfInput) {
+                        break; // the next chunk may start with the '\n' of this line break
+                    }
+                    if (index + 1 < limit && window.get(index + 1) == '\n') {
+                        length = 2;
+                    }
+                }
+                if (tagPending) {
+                    reportPendingTag(window, index);
+                }
+                if (state != CONTENT && lineNumber == markupLine) {
+                    copyQuote(window, index);
+                }
+                if (state == CONTENT || state == CDATA) {
+                    reportText(window, index);
+                } else if (state == COMMENT || state == INSTRUCTION) {
+                    reportBody(window, index);
+                }
+                if (state != TAG) {
+                    textStart = windowOffset + index + length;
+                }
+                continued = false;
+                endLine();
+                index += length;
+                lineStart = windowOffset + index;
+                run = 0;
+                continue;
+            }
+
+            switch (state) {
+                case CONTENT:
+                    if (tagPending) {
+                        if (b == '>') {
+                            int start = (int) (markupStart - windowOffset);
+                            tagPending = false;
+                            handler.invalidCloseTag(window, start, index + 1 - start, markupLine);
+                            checkFinished();
+                            textStart = windowOffset + ++index;
+                            continue;
+                        }
+                        reportPendingTag(window, index);
+                    }
+                    if (b == '<') {
+                        int kind = markupKind(window, index, limit, endOfInput);
+                        if (kind < 0) {
+                            break scan; // the next chunk decides what the markup is
+                        }
+                        reportText(window, index);
+                        markupStart = windowOffset + index;
+                        markupLine = lineNumber;
+                        markupColumn = (int) (markupStart - lineStart) + 1;
+                        depth = 0;
+                        quoteLength = 0;
+                        quoteNext = markupStart;
+                        quoteCut = false;
+                        state = kind;
+                        index += kind == COMMENT ? 4 : kind == CDATA ? 9 : kind == TAG ? 1 : 2;
+                        textStart = windowOffset + index;
+                        run = 0;
+                        continue;
+                    }
+                    break;
+
+                case TAG:
+                    if (b == '>') {
+                        tagPending = true;
+                        state = CONTENT;
+                        textStart = windowOffset + ++index;
+                        run = 0;
+                        continue;
+                    }
+                    if (b == '<') {
+                        reportMalformed(window, index);
+                        continue; // the '<' starts the next markup
+                    }
+                    break;
+
+                case COMMENT:
+                    if (b == '>' && terminates(window, index, '-', textStart)) {
+                        reportBody(window, index - 2);
+                        endMarkup(index);
+                        index++;
+                        continue;
+                    }
+                    index = DelimiterScanner.indexOfDelimiter(window, index + 1, limit);
+                    continue;
+
+                case CDATA:
+                    if (b == '>' && terminates(window, index, ']', textStart)) {
+                        reportText(window, index - 2);
+                        endMarkup(index);
+                        index++;
+                        continue;
+                    }
+                    index = DelimiterScanner.indexOfDelimiter(window, index + 1, limit);
+                    continue;
+
+                case INSTRUCTION:
+                    if (b == '>' && windowOffset + index - 1 >= textStart && window.get(index - 1) == '?') {
+                        reportBody(window, index - 1);
+                        endMarkup(index);
+                        index++;
+                        continue;
+                    }
+                    break;
+
+                default: // DECLARATION
+                    if (b == '[') {
+                        depth++;
+                    } else if (b == ']' && depth > 0) {
+                        depth--;
+                    } else if (b == '>' && depth == 0) {
+                        endMarkup(index);
+                    } else if (b == '<' && depth == 0) {
+                        reportMalformed(window, index);
+                        continue;
+                    }
+                    index++;
+                    continue;
+            }
+
+            // An ordinary byte, or a delimiter that means nothing here. Text, names and
+            // values only end at a delimiter; past the first few bytes, the rest of the
+            // run is skipped without looking at each byte.
+            if (++run == SCAN_AFTER) {
+                run = 0;
+                index = DelimiterScanner.indexOfDelimiter(window, index + 1, limit);
+                continue;
+            }
+            index++;
+        }
+
+        if (endOfInput || stopped) {
+            if (!stopped) {
+                finishDocument(window, limit);
+            }
+            window.position(limit);
+            next = windowOffset + limit;
+        } else {
+            next = windowOffset + index;
+            if (state != CONTENT && lineNumber == markupLine) {
+                copyQuote(window, index);
+            }
+            if (state == DECLARATION) {
+                textStart = next; // nothing of a declaration is reported
+            } else if (state != TAG && !tagPending && next - textStart > MAX_KEPT_LENGTH) {
+                reportPiece(window, index);
+            }
+            // Only a tag is kept whole; of anything else only the part not yet reported
+            // is kept, and the start of the markup's first line is in the quote.
+            long keep = state == TAG || tagPending ? markupStart : textStart;
+            window.position((int) (keep - windowOffset));
+        }
+        offset = windowOffset + window.position();
+    }
+
+    /**
+     * Reports what is left open at the end of the document: a tag waiting for the byte
+     * after it, the last text, or markup that was never closed, together with what is on
+     * its last line.
+     *
+     * @param window the window holding the end of the document
+     * @param limit the index just past the last byte of the document
+     */
+    private void finishDocument(ByteBuffer window, int limit) {
+        if (tagPending) {
+            reportPendingTag(window, limit);
+        }
+        if (state == CONTENT) {
+            reportText(window, limit);
+        } else {
+            if (state == CDATA) {
+                reportText(window, limit);
+            } else if ((state == COMMENT || state == INSTRUCTION) && windowOffset + limit > textStart) {
+                reportBody(window, limit);
+            }
+            unterminated = true;
+            reportMalformed(window, limit);
+        }
+        if (windowOffset + limit > lineStart && !stopped) {
+            endLine();
+            lineStart = windowOffset + limit;
+        }
+    }
+
+    /**
+     * Decides what kind of markup a '&lt;' starts from the bytes after it.
+     *
+     * @param window the window holding the markup
+     * @param index the index of the '&lt;'
+     * @param limit the index just past the bytes available
+     * @param endOfInput true if no more bytes follow the window
+     * @return the state for the markup, or -1 if more bytes are needed to tell
+     */
+    private static int markupKind(ByteBuffer window, int index, int limit, boolean endOfInput) {
+        if (index + 1 == limit) {
+            return endOfInput ? TAG : -1;
+        }
+        byte first = window.get(index + 1);
+        if (first == '?') {
+            return INSTRUCTION;
+        }
+        if (first != '!') {
+            return TAG;
+        }
+        int comment = matches(window, index + 1, limit, COMMENT_START);
+        int cdata = matches(window, index + 1, limit, CDATA_START);
+        if (comment == COMMENT_START.length) {
+            return COMMENT;
+        }
+        if (cdata == CDATA_START.length) {
+            return CDATA;
+        }
+        if (!endOfInput && (index + 1 + comment == limit || index + 1 + cdata == limit)) {
+            return -1;
+        }
+        return DECLARATION;
+    }
+
+    /**
+     * Counts how many bytes of a prefix match the bytes at an index.
+     *
+     * @param window the window to compare in
+     * @param index the index to compare at
+     * @param limit the index just past the bytes available
+     * @param prefix the bytes to compare with
+     * @return the number of leading bytes of prefix that match
+     */
+    private static int matches(ByteBuffer window, int index, int limit, byte[] prefix) {
+        int count = 0;
+        while (count < prefix.length && index + count < limit && window.get(index + count) == prefix[count]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Tests if a '&gt;' is the end of a "--&gt;" or "]]&gt;" terminator whose first byte
+     * is not before the body of the markup.
+     *
+     * @param window the window holding the markup
+     * @param index the index of the '&gt;'
+     * @param repeated the byte that must come twice before it
+     * @param bodyStart the offset the terminator may not start before
+     * @return true if the markup ends at index
+     */
+    private boolean terminates(ByteBuffer window, int index, char repeated, long bodyStart) {
+        return windowOffset + index - 2 >= bodyStart && window.get(index - 1) == repeated
+                && window.get(index - 2) == repeated;
+    }
+
+    /**
+     * Returns to text after the '&gt;' that closes a comment, CDATA section, processing
+     * instruction or declaration.
+     *
+     * @param index the index of the '&gt;'
+     */
+    private void endMarkup(int index) {
+        state = CONTENT;
+        textStart = windowOffset + index + 1;
+        continued = false;
+        checkFinished();
+    }
+
+    /**
+     * Reports the tag that ended just before a byte that is not '&gt;'.
+     *
+     * @param window the window holding the tag
+     * @param index the index of the byte after the tag
+     */
+    private void reportPendingTag(ByteBuffer window, int index) {
+        tagPending = false;
+        int start = (int) (markupStart - windowOffset);
+        reportTag(window, start + 1, (int) (textStart - windowOffset) - 1);
+        checkFinished();
+    }
+
+    /**
+     * Reports markup that is not closed before a position as a malformed tag, and
+     * returns to text at that position. The error quotes the markup from its '&lt;' to
+     * the position or to the end of its first line, whichever comes first, without
+     * trailing whitespace and cut to {@link #MAX_QUOTE_LENGTH} bytes.
+     *
+     * @param window the window holding the markup
+     * @param end the index the markup stops at
+     */
+    private void reportMalformed(ByteBuffer window, int end) {
+        if (lineNumber == markupLine) {
+            copyQuote(window, end);
+        }
+        int length = quoteCut ? quoteLength : trimEnd(quoteBuffer, 0, quoteLength);
+        handler.malformedTag(quoteBuffer, 0, length, markupLine);
+        state = CONTENT;
+        textStart = windowOffset + end;
+        continued = false;
+        checkFinished();
+    }
+
+    /**
+     * Copies the bytes of the markup's first line scanned up to a position into the
+     * quote, as far as it has room. Past that, it is only noted whether the line goes
+     * on with more than whitespace, which decides if the quote is trimmed.
+     *
+     * @param window the window holding the markup
+     * @param end the index just past the bytes scanned on the markup's first line
+     */
+    private void copyQuote(ByteBuffer window, int end) {
+        int start = (int) (quoteNext - windowOffset);
+        int length = Math.min(end - start, quote.length - quoteLength);
+        if (length > 0) {
+            window.get(start, quote, quoteLength, length);
+            quoteLength += length;
+            start += length;
+        }
+        if (start < end && trimEnd(window, start, end) > start) {
+            quoteCut = true;
+        }
+        quoteNext = windowOffset + end;
+    }
+
+    /**
+     * Reports the part of a comment's or processing instruction's body that lies on the
+     * current line, up to a position.
+     *
+     * @param window the window holding the body
+     * @param end the index just past the part
+     */
+    private void reportBody(ByteBuffer window, int end) {
+        int start = (int) (textStart - windowOffset);
+        if (continued && end == start) {
+            return; // the line's part was all in the pieces before
+        }
+        int column = lineNumber == markupLine && !continued ? markupColumn : 0;
+        if (state == COMMENT) {
+            handler.comment(window, start, end - start, lineNumber, column);
+        } else {
+            handler.processingInstruction(window, start, end - start, lineNumber, column);
+        }
+    }
+
+    /**
+     * Finds the end of a range without its trailing whitespace.
+     *
+     * @param window the window holding the range
+     * @param start the index of the first byte of the range
+     * @param end the index just past the range
+     * @return the index just past the last byte that is not whitespace, or start
+     */
+    private static int trimEnd(ByteBuffer window, int start, int end) {
+        while (end > start && isWhitespace(window.get(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Counts the end of a line, recording where it started if lines are indexed.
+     */
+    private void endLine() {
+        if (lines != null) {
+            lines.add(lineStart);
+        }
+        lineNumber++;
+    }
+
+    /**
+     * Stops the tokenizer if the handler has seen enough.
+     */
+    private void checkFinished() {
+        if (handler.isFinished()) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Classifies the content between a tag's '&lt;' and '&gt;' and reports it as an
+     * opening, closing or self-closing tag, a comment or a processing instruction.
+     *
+     * @param window the window holding the tag
+     * @param start the index just past the tag's '&lt;'
+     * @param end the index of the tag's '&gt;'
+     */
+    private void reportTag(ByteBuffer window, int start, int end) {
+        int line = markupLine;
+        int column = markupColumn;
+        while (start < end && isWhitespace(window.get(start))) {
+            start++;
+        }
+        end = trimEnd(window, start, end);
+
+        if (end > start) {
+            byte first = window.get(start);
+            if (first == '?') {
+                int textEnd = end - 1 > start && window.get(end - 1) == '?' ? end - 1 : end;
+                handler.processingInstruction(window, start + 1, textEnd - start - 1, line, column);
+                return;
+            }
+            if (first == '!' && end - start >= 3 && window.get(start + 1) == '-' && window.get(start + 2) == '-') {
+                int textEnd = end - start >= 5 && window.get(end - 1) == '-' && window.get(end - 2) == '-'
+                        ? end - 2 : end;
+                handler.comment(window, start + 3, textEnd - start - 3, line, column);
+                return;
+            }
+            if (first == '/') {
+                handler.closeTag(window, start + 1, nameEnd(window, start + 1, end) - start - 1, line, column);
+                return;
+            }
+            if (window.get(end - 1) == '/') {
+                handler.emptyTag(window, start, nameEnd(window, start, end - 1) - start, line, column);
+                return;
+            }
+        }
+
+        handler.openTag(window, start, nameEnd(window, start, end) - start, line, column);
+    }
+
+    /**
+     * Reports the text from the first byte not yet reported up to a position, if there
+     * is any, and moves the start of the text to that position.
+     *
+     * @param window the window holding the text
+     * @param end the index just past the last byte of the text
+     */
+    private void reportText(ByteBuffer window, int end) {
+        int start = (int) (textStart - windowOffset);
+        if (end > start) {
+            if (continued) {
+                handler.continueText(window, start, end - start, lineNumber);
+            } else {
+                handler.text(window, start, end - start, lineNumber);
+            }
+        }
+        textStart = windowOffset + end;
+        continued = false;
+    }
+
+    /**
+     * Reports what has been scanned of text, or of the body of a comment, CDATA section
+     * or processing instruction, that is longer than {@link #MAX_KEPT_LENGTH}, so it
+     * need not be held in the window. The bytes a terminator may start with are held
+     * back, and the rest of the line is reported as a continuation.
+     *
+     * @param window the window holding the text or body
+     * @param end the index the scan has reached
+     */
+    private void reportPiece(ByteBuffer window, int end) {
+        if (state == COMMENT || state == CDATA) {
+            end -= 2;
+        } else if (state == INSTRUCTION) {
+            end -= 1;
+        }
+        if (state == CONTENT || state == CDATA) {
+            reportText(window, end);
+        } else {
+            reportBody(window, end);
+            textStart = windowOffset + end;
+        }
+        continued = true;
+    }
+
+    /**
+     * Finds the end of a tag name, which runs up to the first whitespace of the tag
+     * content.
+     *
+     * @param window the window holding the tag
+     * @param start the index of the first byte of the name
+     * @param end the index just past the tag content
+     * @return the index just past the name
+     */
+    private static int nameEnd(ByteBuffer window, int start, int end) {
+        int index = start;
+        while (index < end && !isWhitespace(window.get(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Tests for the characters String.trim() removes.
+     *
+     * @param b the byte to test
+     * @return true if the byte is a space or a control character
+     */
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+}
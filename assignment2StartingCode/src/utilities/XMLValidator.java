@@ -0,0 +1,248 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * XMLValidator.java
+ *
+ * Checks documents for the errors Parser reports, for callers that validate in-process
+ * and want the result as an object rather than as text on System.out. The reader,
+ * tokenizer, tag stack, symbol table and result are kept from one document to the next,
+ * so validating another document allocates little beyond the growth of the error log.
+ *
+ * <p>A validator is not thread-safe. Services that validate on several threads keep one
+ * per thread, or a pool of them handed to one thread at a time. The result returned by
+ * a validation is reused, and is only valid until the validator is used again.</p>
+ *
+ * <p>A {@link ContentHandler} can be given to receive the elements, text and comments
+ * of the document while it is validated, so the validator can serve as the front end
+ * of a consumer without a second pass.</p>
+ *
+ * <p>Documents are read as UTF-8. Files and channels in UTF-16 or ISO-8859-1 are
+ * converted to it as they are read, as {@link DocumentEncoding} detects; bytes given
+ * in memory must already be UTF-8. Tags are found and names compared on the bytes, so
+ * only the names and text a caller asks for are ever decoded, and ASCII not even then.
+ * Columns count bytes. A validator can be limited to a number of errors, after which
+ * it stops reading; see {@link #setMaxErrors(int)}.</p>
+ */
+public class XMLValidator {
+    /** The symbol table is cleared once it holds more names than this. */
+    private static final int MAX_SYMBOLS = 1 << 16;
+
+    private final ChannelReader reader = new ChannelReader();
+    private final TagChecker checker = new TagChecker();
+    private final ContentDispatcher dispatcher = new ContentDispatcher(checker);
+    private final XMLTokenizer tokenizer = new XMLTokenizer(dispatcher);
+    private final ValidationResult result = new ValidationResult(checker, tokenizer);
+
+    /**
+     * Limits the number of errors a validation finds. Once the limit is reached the rest
+     * of the document is skipped, so a limit of 1 answers only whether the document is
+     * well-formed, as fast as possible.
+     *
+     * @param maxErrors the most errors to find, or Integer.MAX_VALUE for no limit
+     * @throws IllegalArgumentException if maxErrors is not positive
+     */
+    public void setMaxErrors(int maxErrors) {
+        checker.setMaxErrors(maxErrors);
+    }
+
+    /**
+     * Records where every line starts, so the text of a line can be sliced out of the
+     * document afterwards; see {@link ValidationResult#getLineIndex()}. Offsets count
+     * bytes of the document as it is tokenized, which for a file in another encoding
+     * than UTF-8 is after its conversion.
+     *
+     * @param indexLines true to index the lines of the documents validated from now on
+     */
+    public void setIndexLines(boolean indexLines) {
+        tokenizer.setLineIndex(indexLines ? new LineIndex() : null);
+    }
+
+    /**
+     * Validates a file by streaming it.
+     *
+     * @param file the file to validate
+     * @return the result; it is reused by the next validation
+     * @throws IOException if the file cannot be read
+     */
+    public ValidationResult validate(Path file) throws IOException {
+        return validate(file, (ErrorSink) null);
+    }
+
+    /**
+     * Validates a file by streaming it, passing each error to a sink as soon as it is
+     * found instead of keeping it in the result. Starting and ending the document in the
+     * sink is left to the caller.
+     *
+     * @param file the file to validate
+     * @param sink the sink to write the errors to, or null to keep them in the result
+     * @return the result; it is reused by the next validation
+     * @throws IOException if the file cannot be read
+     * @throws java.io.UncheckedIOException if the sink cannot be written to
+     */
+    public ValidationResult validate(Path file, ErrorSink sink) throws IOException {
+        begin(sink);
+        reader.stream(file, tokenizer);
+        return end();
+    }
+
+    /**
+     * Validates a file by streaming it, passing its content to a handler.
+     *
+     * @param file the file to validate
+     * @param handler the handler to receive the content
+     * @return the result; it is reused by the next validation
+     * @throws IOException if the file cannot be read
+     */
+    public ValidationResult validate(Path file, ContentHandler handler) throws IOException {
+        return validate(file, null, handler);
+    }
+
+    /**
+     * Validates a file by streaming it, passing each error to a sink and the content to
+     * a handler as they are found.
+     *
+     * @param file the file to validate
+     * @param sink the sink to write the errors to, or null to keep them in the result
+     * @param handler the handler to receive the content, or null
+     * @return the result; it is reused by the next validation
+     * @throws IOException if the file cannot be read
+     * @throws java.io.UncheckedIOException if the sink cannot be written to
+     */
+    public ValidationResult validate(Path file, ErrorSink sink, ContentHandler handler) throws IOException {
+        begin(sink);
+        dispatcher.setHandler(handler);
+        reader.stream(file, tokenizer);
+        return end();
+    }
+
+    /**
+     * Validates a document of the given length read from a channel. Exactly that many
+     * bytes are read, so the channel can carry more data after the document.
+     *
+     * @param channel the channel holding the document
+     * @param length the length of the document in bytes
+     * @return the result; it is reused by the next validation
+     * @throws IOException if the channel cannot be read or ends early
+     */
+    public ValidationResult validate(ReadableByteChannel channel, long length) throws IOException {
+        begin(null);
+        reader.stream(channel, length, tokenizer);
+        return end();
+    }
+
+    /**
+     * Validates the bytes between a buffer's position and limit. The buffer's position
+     * is not changed.
+     *
+     * @param document the document
+     * @return the result; it is reused by the next validation
+     */
+    public ValidationResult validate(ByteBuffer document) {
+        return validate(document, (ErrorSink) null);
+    }
+
+    /**
+     * Validates the bytes between a buffer's position and limit, passing each error to a
+     * sink as soon as it is found instead of keeping it in the result. Starting and
+     * ending the document in the sink is left to the caller.
+     *
+     * @param document the document
+     * @param sink the sink to write the errors to, or null to keep them in the result
+     * @return the result; it is reused by the next validation
+     * @throws java.io.UncheckedIOException if the sink cannot be written to
+     */
+    public ValidationResult validate(ByteBuffer document, ErrorSink sink) {
+        begin(sink);
+        tokenizer.feed(document.duplicate(), true);
+        return end();
+    }
+
+    /**
+     * Validates the bytes between a buffer's position and limit, passing the content to
+     * a handler. The handler is given a duplicate of the buffer, so its offsets are also
+     * indexes of this buffer. The buffer's position is not changed.
+     *
+     * @param document the document
+     * @param handler the handler to receive the content
+     * @return the result; it is reused by the next validation
+     */
+    public ValidationResult validate(ByteBuffer document, ContentHandler handler) {
+        return validate(document, null, handler);
+    }
+
+    /**
+     * Validates the bytes between a buffer's position and limit, passing each error to a
+     * sink and the content to a handler as they are found. The buffer's position is not
+     * changed.
+     *
+     * @param document the document
+     * @param sink the sink to write the errors to, or null to keep them in the result
+     * @param handler the handler to receive the content, or null
+     * @return the result; it is reused by the next validation
+     * @throws java.io.UncheckedIOException if the sink cannot be written to
+     */
+    public ValidationResult validate(ByteBuffer document, ErrorSink sink, ContentHandler handler) {
+        begin(sink);
+        dispatcher.setHandler(handler);
+        tokenizer.feed(document.duplicate(), true);
+        return end();
+    }
+
+    /**
+     * Validates a document held in a byte array.
+     *
+     * @param document the document
+     * @return the result; it is reused by the next validation
+     */
+    public ValidationResult validate(byte[] document) {
+        return validate(ByteBuffer.wrap(document), (ErrorSink) null);
+    }
+
+    /**
+     * Validates a file by memory-mapping it, passing each error to a sink and the
+     * content to a handler as soon as they are found.
+     *
+     * @param file the file to validate
+     * @param sink the sink to write the errors to, or null to keep them in the result
+     * @param handler the handler to receive the content, or null
+     * @return the result; it is reused by the next validation
+     * @throws IOException if the file cannot be mapped
+     */
+    ValidationResult validateMapped(Path file, ErrorSink sink, ContentHandler handler) throws IOException {
+        begin(sink);
+        dispatcher.setHandler(handler);
+        reader.map(file, tokenizer);
+        return end();
+    }
+
+    /**
+     * Clears the state left by the previous document.
+     *
+     * @param sink the sink for the next document, or null
+     */
+    private void begin(ErrorSink sink) {
+        if (checker.getSymbols().size() > MAX_SYMBOLS) {
+            checker.getSymbols().clear();
+        }
+        checker.reset();
+        checker.setSink(sink);
+        tokenizer.reset();
+    }
+
+    /**
+     * Reports the tags left open and lets go of the sink and content handler.
+     *
+     * @return the result
+     */
+    private ValidationResult end() {
+        checker.finish();
+        checker.setSink(null);
+        dispatcher.setHandler(null);
+        return result;
+    }
+}
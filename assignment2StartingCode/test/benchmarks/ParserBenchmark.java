@@ -0,0 +1,281 @@
+package benchmarks;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import implementations.MyQueue;
+import utilities.DelimiterScanner;
+import utilities.Parser;
+
+/**
+ * ParserBenchmark.java
+ *
+ * Throughput harness for the Parser. A synthetic document is generated from the
+ * Language/Driver records used in the sample files, every case is warmed up and then
+ * timed over several iterations, and the best run is reported in MB/s.
+ *
+ * <p>Usage:
+ * <pre>{@code
+ * java -cp bin benchmarks.ParserBenchmark [document size in MB]
+ * }</pre>
+ * </p>
+ */
+public class ParserBenchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    /** The per-byte reader is too slow and too heap hungry to run on the full document. */
+    private static final int LEGACY_LIMIT_MB = 4;
+
+    /** The result of the last scan, kept so the scans cannot be optimized away. */
+    static volatile int delimiters;
+
+    /**
+     * A single benchmark case.
+     */
+    interface Case {
+        void run(Path document) throws IOException;
+    }
+
+    /**
+     * A way of finding the next delimiter, so the SWAR and scalar scans can be timed alike.
+     */
+    interface Scan {
+        int indexOfDelimiter(ByteBuffer window, int from, int limit);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+
+        Path document = generateDocument(megabytes);
+        Path legacyDocument = generateDocument(Math.min(megabytes, LEGACY_LIMIT_MB));
+        try {
+            System.out.println("Document: " + megabytes + " MB");
+            run("read: per-byte MyQueue (before)", legacyDocument, ParserBenchmark::readPerByte);
+            run("read: block FileChannel", document, path -> Parser.readXMLFile(path.toString()));
+            run("validate: buffered channel (--stream)", document,
+                    path -> quietly(() -> Parser.parseXMLStream(path.toString())));
+            run("validate: memory-mapped (--mmap)", document,
+                    path -> quietly(() -> Parser.parseXMLMapped(path.toString())));
+            int threads = Runtime.getRuntime().availableProcessors();
+            run("validate: parallel, " + threads + " threads", document,
+                    path -> quietly(() -> Parser.parseXMLParallel(path.toString(), threads)));
+
+            // Throughput that stays flat as a single-line document doubles shows the scan is linear.
+            for (int size = 1; size <= megabytes; size *= 2) {
+                Path minified = minify(generateDocument(size));
+                String content = Parser.readXMLFile(minified.toString());
+                run("parse: minified " + size + " MB", minified, path -> quietly(() -> Parser.parseXML(content)));
+                Files.delete(minified);
+            }
+
+            // The SWAR scan pays off on long runs of text and costs little on dense markup.
+            String[] shapes = { "text-heavy", "markup-heavy" };
+            for (String shape : shapes) {
+                Path shaped = shape.equals("text-heavy")
+                        ? generateTextHeavyDocument(megabytes) : generateMarkupHeavyDocument(megabytes);
+                try {
+                    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(shaped));
+                    run("scan: SWAR, " + shape, shaped,
+                            path -> delimiters = countDelimiters(bytes, DelimiterScanner::indexOfDelimiter));
+                    run("scan: scalar, " + shape, shaped,
+                            path -> delimiters = countDelimiters(bytes, DelimiterScanner::indexOfDelimiterScalar));
+                    run("validate: " + shape + " (--stream)", shaped,
+                            path -> quietly(() -> Parser.parseXMLStream(path.toString())));
+                } finally {
+                    Files.delete(shaped);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(document);
+            Files.deleteIfExists(legacyDocument);
+        }
+    }
+
+    /**
+     * Times a case and prints its best throughput.
+     *
+     * @param name the name printed for the case
+     * @param document the document the case processes
+     * @param benchmark the case to run
+     * @throws IOException if the case fails to read the document
+     */
+    static void run(String name, Path document, Case benchmark) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            benchmark.run(document);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            benchmark.run(document);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double megabytes = Files.size(document) / (1024.0 * 1024.0);
+        double seconds = best / 1e9;
+        System.out.printf("%-40s %10.1f MB/s%n", name, megabytes / seconds);
+    }
+
+    /**
+     * Writes a well-formed document of roughly the given size to a temporary file.
+     *
+     * @param megabytes the approximate size of the document in MB
+     * @return the path of the generated document
+     * @throws IOException if the file cannot be written
+     */
+    static Path generateDocument(int megabytes) throws IOException {
+        Path document = Files.createTempFile("parser-benchmark", ".xml");
+        long target = megabytes * 1024L * 1024L;
+        byte[] record = ("\t\t\t<Language LanguageName=\"Basque\">\n"
+                + "\t\t\t\t<PackageCreationLocation FolderName=\"D:\\Document\\Product\\PL2303\\WHQL\\Driver\\V1.5.0.0\"/>\n"
+                + "\t\t\t\t<b>This is for the Spanish <i>Language</i> that is long ago lost.</b>\n"
+                + "\t\t\t</Language>\n").getBytes(StandardCharsets.US_ASCII);
+
+        try (OutputStream out = Files.newOutputStream(document)) {
+            out.write(("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<XMLDATA>\n"
+                    + "\t<Submission SubmissionID=\"584962\">\n\t\t<Driver FolderName=\"driver001\">\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            for (long written = 0; written < target; written += record.length) {
+                out.write(record);
+            }
+            out.write("\t\t</Driver>\n\t</Submission>\n</XMLDATA>\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        return document;
+    }
+
+    /**
+     * Writes a well-formed document of roughly the given size that is mostly long lines
+     * of text with few tags, like exported descriptions or notes.
+     *
+     * @param megabytes the approximate size of the document in MB
+     * @return the path of the generated document
+     * @throws IOException if the file cannot be written
+     */
+    static Path generateTextHeavyDocument(int megabytes) throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 2000) {
+            text.append("This is for the Spanish Language that is long ago lost, and its drivers. ");
+        }
+        return generateRecords(megabytes, "\t<Note Lang=\"es\">" + text + "</Note>\n");
+    }
+
+    /**
+     * Writes a well-formed document of roughly the given size that is almost all tags,
+     * with short names and no text.
+     *
+     * @param megabytes the approximate size of the document in MB
+     * @return the path of the generated document
+     * @throws IOException if the file cannot be written
+     */
+    static Path generateMarkupHeavyDocument(int megabytes) throws IOException {
+        return generateRecords(megabytes, "\t<r><a/><b><c/><d/></b><e/></r>\n");
+    }
+
+    /**
+     * Writes a document that repeats one record inside a root element.
+     *
+     * @param megabytes the approximate size of the document in MB
+     * @param record the record to repeat
+     * @return the path of the generated document
+     * @throws IOException if the file cannot be written
+     */
+    static Path generateRecords(int megabytes, String record) throws IOException {
+        Path document = Files.createTempFile("parser-benchmark", ".xml");
+        long target = megabytes * 1024L * 1024L;
+        byte[] bytes = record.getBytes(StandardCharsets.US_ASCII);
+        try (OutputStream out = Files.newOutputStream(document)) {
+            out.write("<XMLDATA>\n".getBytes(StandardCharsets.US_ASCII));
+            for (long written = 0; written < target; written += bytes.length) {
+                out.write(bytes);
+            }
+            out.write("</XMLDATA>\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        return document;
+    }
+
+    /**
+     * Counts the delimiters of a document with a scan, the way the tokenizer steps from
+     * one delimiter to the next.
+     *
+     * @param bytes the document
+     * @param scan the scan to use
+     * @return the number of delimiters
+     */
+    static int countDelimiters(ByteBuffer bytes, Scan scan) {
+        int count = 0;
+        int limit = bytes.limit();
+        for (int index = scan.indexOfDelimiter(bytes, 0, limit); index < limit;
+                index = scan.indexOfDelimiter(bytes, index + 1, limit)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Rewrites a document in place with its line breaks and indentation removed, as a
+     * minified export would be.
+     *
+     * @param document the document to minify
+     * @return the same path
+     * @throws IOException if the file cannot be rewritten
+     */
+    static Path minify(Path document) throws IOException {
+        byte[] bytes = Files.readAllBytes(document);
+        int length = 0;
+        for (byte b : bytes) {
+            if (b != '\n' && b != '\r' && b != '\t') {
+                bytes[length++] = b;
+            }
+        }
+        try (OutputStream out = Files.newOutputStream(document)) {
+            out.write(bytes, 0, length);
+        }
+        return document;
+    }
+
+    /**
+     * Runs an action with standard output discarded, so the Parser's report does not
+     * end up in the timings.
+     *
+     * @param action the action to run
+     */
+    static void quietly(Runnable action) {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            action.run();
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * The reader Parser.readXMLFile used before the block reader: one read() call and
+     * one queue node per byte.
+     *
+     * @param document the document to read
+     * @throws IOException if the file cannot be read
+     */
+    static void readPerByte(Path document) throws IOException {
+        StringBuilder content = new StringBuilder();
+        MyQueue<Character> charQueue = new MyQueue<>();
+        try (FileInputStream fis = new FileInputStream(document.toFile())) {
+            int c;
+            while ((c = fis.read()) != -1) {
+                charQueue.enqueue((char) c);
+            }
+        }
+
+        while (!charQueue.isEmpty()) {
+            content.append(charQueue.dequeue());
+        }
+        content.toString();
+    }
+}
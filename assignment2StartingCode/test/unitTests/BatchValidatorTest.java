@@ -0,0 +1,158 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.BatchValidator;
+import utilities.ReportFormat;
+
+/**
+ * Class Description:
+ * Tests for the BatchValidator. Many small files are validated on several threads and
+ * the combined report must not depend on the order in which the files finish.
+ */
+public class BatchValidatorTest
+{
+	// Attributes
+	private Path directory;
+
+	/**
+	 * Creates a temporary directory for the test files before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory("batch");
+	}
+
+	/**
+	 * Deletes the temporary directory after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		try (Stream<Path> tree = Files.walk(directory))
+		{
+			tree.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+		directory = null;
+	}
+
+	/**
+	 * Writes a test file into the temporary directory.
+	 */
+	private Path write(String name, String document) throws IOException
+	{
+		Path file = directory.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.write(file, document.getBytes(StandardCharsets.ISO_8859_1));
+		return file;
+	}
+
+	/**
+	 * Validates the files and returns the printed report.
+	 */
+	private String validate(BatchValidator validator, List<Path> files) throws Exception
+	{
+		StringWriter out = new StringWriter();
+		validator.validate(files, out, ReportFormat.TEXT);
+		return out.toString();
+	}
+
+	/**
+	 * Test method for {@link utilities.BatchValidator#validate(java.util.List, java.io.Writer, utilities.ReportFormat)}.
+	 * @throws Exception
+	 */
+	@Test
+	public void testValidateReportsInInputOrder() throws Exception
+	{
+		String newLine = System.lineSeparator();
+		StringBuilder expected = new StringBuilder();
+		Path[] files = new Path[200];
+		for (int i = 0; i < files.length; i++)
+		{
+			if (i % 3 == 0)
+			{
+				files[i] = write("f" + i + ".xml", "<a>\n<b></a>\n");
+				expected.append("== ").append(files[i]).append(newLine)
+					.append("===========Error Log===========").append(newLine)
+					.append("Error at line 2: </a>").append(newLine)
+					.append("Error at line 1: <a>").append(newLine);
+			}
+			else
+			{
+				files[i] = write("f" + i + ".xml", "<a>\n<b x=\"" + i + "\"/>\n</a>\n");
+				expected.append("== ").append(files[i]).append(newLine)
+					.append("XML is well-formed.").append(newLine);
+			}
+		}
+		expected.append("Checked 200 files: 133 well-formed, 67 with errors, 0 unreadable.").append(newLine);
+
+		assertEquals(expected.toString(), validate(new BatchValidator(4), Arrays.asList(files)));
+		assertEquals(expected.toString(), validate(new BatchValidator(), Arrays.asList(files)));
+	}
+
+	/**
+	 * Test method for {@link utilities.BatchValidator#validate(java.util.List, java.io.Writer, utilities.ReportFormat)}.
+	 * @throws Exception
+	 */
+	@Test
+	public void testValidateCountsUnreadableFiles() throws Exception
+	{
+		Path file = write("good.xml", "<a></a>\n");
+		Path missing = directory.resolve("missing.xml");
+		BatchValidator validator = new BatchValidator(2);
+
+		StringWriter out = new StringWriter();
+		int failed = validator.validate(Arrays.asList(missing, file), out, ReportFormat.TEXT);
+		String report = out.toString();
+
+		assertEquals(1, failed);
+		assertTrue(report.startsWith("== " + missing + System.lineSeparator() + "Error reading XML file: "
+			+ missing + " (No such file or directory)" + System.lineSeparator()));
+		assertTrue(report.endsWith("Checked 2 files: 1 well-formed, 0 with errors, 1 unreadable."
+			+ System.lineSeparator()));
+	}
+
+	/**
+	 * Test method for {@link utilities.BatchValidator#expand(java.util.List)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testExpandDirectoriesAndLists() throws IOException
+	{
+		Path first = write("d/b.xml", "<a/>");
+		Path second = write("d/sub/a.XML", "<a/>");
+		write("d/notes.txt", "not xml");
+		Path single = write("single.xml", "<a/>");
+		Path list = write("list.txt", single + "\n\n" + directory.resolve("d") + "\n");
+
+		List<Path> files = BatchValidator.expand(Arrays.asList("@" + list, single.toString()));
+
+		assertEquals(Arrays.asList(single, first, second, single), files);
+	}
+
+	/**
+	 * Test method for {@link utilities.BatchValidator#BatchValidator(int)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorRejectsZeroThreads()
+	{
+		new BatchValidator(0);
+	}
+}
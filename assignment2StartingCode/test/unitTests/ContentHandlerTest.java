@@ -0,0 +1,192 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Attributes;
+import utilities.ContentHandler;
+import utilities.Parser;
+import utilities.ValidationResult;
+import utilities.XMLValidator;
+
+/**
+ * Class Description:
+ * Tests for the ContentHandler callbacks and the Attributes accessor. A recording handler
+ * turns every callback into a line of text so the content can be compared.
+ */
+public class ContentHandlerTest
+{
+	// Attributes
+	private StringBuilder content;
+	private XMLValidator validator;
+
+	/**
+	 * Records every callback as a line of text, with the attributes of each element.
+	 */
+	private class RecordingHandler implements ContentHandler
+	{
+		@Override
+		public void startElement(ByteBuffer buffer, int nameOffset, int nameLength, Attributes attributes)
+		{
+			content.append("start ").append(string(buffer, nameOffset, nameLength));
+			for (int i = 0; i < attributes.getLength(); i++)
+			{
+				content.append(' ').append(attributes.getName(i)).append('=').append(attributes.getValue(i));
+			}
+			content.append('\n');
+		}
+
+		@Override
+		public void endElement(ByteBuffer buffer, int nameOffset, int nameLength)
+		{
+			content.append("end ").append(string(buffer, nameOffset, nameLength)).append('\n');
+		}
+
+		@Override
+		public void text(ByteBuffer buffer, int offset, int length)
+		{
+			content.append("text ").append(string(buffer, offset, length)).append('\n');
+		}
+
+		@Override
+		public void comment(ByteBuffer buffer, int offset, int length)
+		{
+			content.append("comment ").append(string(buffer, offset, length)).append('\n');
+		}
+
+		@Override
+		public void processingInstruction(ByteBuffer buffer, int offset, int length)
+		{
+			content.append("pi ").append(string(buffer, offset, length)).append('\n');
+		}
+
+		private String string(ByteBuffer buffer, int offset, int length)
+		{
+			byte[] bytes = new byte[length];
+			buffer.get(offset, bytes, 0, length);
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	/**
+	 * Creates a validator before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		content = new StringBuilder();
+		validator = new XMLValidator();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		content = null;
+		validator = null;
+	}
+
+	/**
+	 * Validates a document held in memory with a recording handler.
+	 */
+	private ValidationResult validate(String document)
+	{
+		return validator.validate(ByteBuffer.wrap(document.getBytes(StandardCharsets.ISO_8859_1)), new RecordingHandler());
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#validate(java.nio.ByteBuffer, utilities.ContentHandler)}.
+	 */
+	@Test
+	public void testValidatePassesContentInOrder()
+	{
+		ValidationResult result = validate("<?xml version=\"1.0\"?>\n<a id=\"1\">\n<!-- note --><b/>x</a>\n");
+		assertTrue(result.isWellFormed());
+		assertEquals("pi xml version=\"1.0\"\nstart a id=1\ncomment  note \nstart b\nend b\ntext x\nend a\n",
+			content.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.Attributes#getValue(int)}.
+	 */
+	@Test
+	public void testAttributesOfEveryForm()
+	{
+		validate("<a one=\"1\" two = 'two 2' three=3 four/>\n<b x=\"a>\n<c y='q\"z'/>");
+		assertEquals("start a one=1 two=two 2 three=3 four=\nend a\nstart b x=a\nstart c y=q\"z\nend c\n", content.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.Attributes#getValue(java.lang.CharSequence)}.
+	 */
+	@Test
+	public void testAttributesByName()
+	{
+		validator.validate(ByteBuffer.wrap("<a id='7' name=\"x\">".getBytes(StandardCharsets.ISO_8859_1)), new ContentHandler()
+		{
+			@Override
+			public void startElement(ByteBuffer buffer, int nameOffset, int nameLength, Attributes attributes)
+			{
+				assertEquals(1, attributes.getIndex("name"));
+				assertEquals(-1, attributes.getIndex("nam"));
+				assertEquals("7", attributes.getValue("id").toString());
+				assertNull(attributes.getValue("missing"));
+				assertEquals(attributes.getValueOffset(1), attributes.getNameOffset(1) + 6);
+				assertEquals(1, attributes.getValueLength(1));
+				content.append("called");
+			}
+		});
+		assertEquals("called", content.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.Attributes#getName(int)}.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testAttributeOutOfBounds()
+	{
+		validator.validate(ByteBuffer.wrap("<a x='1'>".getBytes(StandardCharsets.ISO_8859_1)), new ContentHandler()
+		{
+			@Override
+			public void startElement(ByteBuffer buffer, int nameOffset, int nameLength, Attributes attributes)
+			{
+				attributes.getName(1);
+			}
+		});
+	}
+
+	/**
+	 * Test method for {@link utilities.Parser#parseXMLStream(java.lang.String, utilities.ContentHandler)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testParseXMLStreamValidatesWhileHandling() throws IOException
+	{
+		Path file = Files.createTempFile("content", ".xml");
+		try
+		{
+			Files.write(file, "<a k=\"v\">\n<b>text</c>\n".getBytes(StandardCharsets.ISO_8859_1));
+			ValidationResult result = Parser.parseXMLStream(file.toString(), new RecordingHandler());
+			assertEquals("start a k=v\nstart b\ntext text\nend c\n", content.toString());
+			assertEquals(2, result.getErrorCount());
+			assertEquals("Error at line 2: </c>", result.getErrors().message(0));
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+}
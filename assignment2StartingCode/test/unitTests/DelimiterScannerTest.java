@@ -0,0 +1,120 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.DelimiterScanner;
+
+/**
+ * Class Description:
+ * Tests for the DelimiterScanner. The word-at-a-time scan must find the same delimiter
+ * as the scalar scan from every starting position, in heap and direct buffers of either
+ * byte order.
+ */
+public class DelimiterScannerTest
+{
+	// Attributes
+	private Random random;
+
+	/**
+	 * Creates a seeded random source before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		random = new Random(21);
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		random = null;
+	}
+
+	/**
+	 * Checks that both scans agree from every starting position of a buffer.
+	 */
+	private static void assertScansAgree(ByteBuffer buffer)
+	{
+		int limit = buffer.limit();
+		for (int from = 0; from <= limit; from++)
+		{
+			assertEquals("from " + from, DelimiterScanner.indexOfDelimiterScalar(buffer, from, limit),
+				DelimiterScanner.indexOfDelimiter(buffer, from, limit));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.DelimiterScanner#indexOfDelimiter(java.nio.ByteBuffer, int, int)}.
+	 */
+	@Test
+	public void testFindsEachDelimiter()
+	{
+		ByteBuffer buffer = ByteBuffer.wrap("abcdefghijk<lmnopqrstuv>wxyz0123456\n789ABCDEFGHIJ\rKLMNOPQ"
+			.getBytes(StandardCharsets.ISO_8859_1));
+		assertEquals(11, DelimiterScanner.indexOfDelimiter(buffer, 0, buffer.limit()));
+		assertEquals(23, DelimiterScanner.indexOfDelimiter(buffer, 12, buffer.limit()));
+		assertEquals(35, DelimiterScanner.indexOfDelimiter(buffer, 24, buffer.limit()));
+		assertEquals(49, DelimiterScanner.indexOfDelimiter(buffer, 36, buffer.limit()));
+		assertEquals(buffer.limit(), DelimiterScanner.indexOfDelimiter(buffer, 50, buffer.limit()));
+		assertEquals(30, DelimiterScanner.indexOfDelimiter(buffer, 24, 30));
+	}
+
+	/**
+	 * Test method for {@link utilities.DelimiterScanner#indexOfDelimiter(java.nio.ByteBuffer, int, int)}.
+	 */
+	@Test
+	public void testIgnoresNearMisses()
+	{
+		// '=' and '?' differ from '<' and '>' in one bit, and bytes with the high bit set
+		// must not carry into their neighbours.
+		byte[] bytes = { '=', '?', ';', 0x0B, 0x0C, 0x0E, 0x09, (byte) 0xBC, (byte) 0xBE, (byte) 0x8A, (byte) 0xFF,
+			0x00, 0x7F, (byte) 0x80, 0x3F, 0x3D, '>' };
+		assertEquals(bytes.length - 1, DelimiterScanner.indexOfDelimiter(ByteBuffer.wrap(bytes), 0, bytes.length));
+		assertScansAgree(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Test method for {@link utilities.DelimiterScanner#indexOfDelimiter(java.nio.ByteBuffer, int, int)}.
+	 */
+	@Test
+	public void testMatchesScalarScanOnRandomInput()
+	{
+		byte[] delimiters = { '<', '>', '\n', '\r' };
+		for (int round = 0; round < 200; round++)
+		{
+			byte[] bytes = new byte[random.nextInt(80)];
+			random.nextBytes(bytes);
+			int density = 1 + random.nextInt(40);
+			for (int i = 0; i < bytes.length; i++)
+			{
+				if (random.nextInt(density) == 0)
+				{
+					bytes[i] = delimiters[random.nextInt(delimiters.length)];
+				}
+				else if (bytes[i] == '<' || bytes[i] == '>' || bytes[i] == '\n' || bytes[i] == '\r')
+				{
+					bytes[i] = 'x';
+				}
+			}
+			assertScansAgree(ByteBuffer.wrap(bytes));
+			assertScansAgree(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+			direct.put(bytes).flip();
+			assertScansAgree(direct);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.ChannelReader;
+import utilities.DocumentEncoding;
+import utilities.ErrorLog;
+import utilities.ParallelValidator;
+import utilities.XMLValidator;
+
+/**
+ * Class Description:
+ * Tests for the DocumentEncoding detection and conversion, and for reading files in
+ * each encoding. A document must give the same errors whatever encoding it is stored in.
+ */
+public class DocumentEncodingTest
+{
+	// Attributes
+	private static final String DOCUMENT = "<r\u00e9sum\u00e9>\n<na\u00efve>>\n<b>caf\u00e9 \u00bd</b>\n</r\u00e9sum\u00e8>\n";
+	private static final String ERRORS = "Invalid close tag at line 2\n<na\u00efve>>\nError at line 4: </r\u00e9sum\u00e8>\n";
+
+	private Path file;
+
+	/**
+	 * Creates a temporary file for the test document before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = Files.createTempFile("encoding", ".xml");
+	}
+
+	/**
+	 * Deletes the temporary file after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		Files.deleteIfExists(file);
+		file = null;
+	}
+
+	/**
+	 * Detects the encoding of a document given as bytes.
+	 */
+	private static DocumentEncoding detect(byte[] document)
+	{
+		return DocumentEncoding.detect(ByteBuffer.wrap(document));
+	}
+
+	/**
+	 * Joins the messages of an error log, one per line.
+	 */
+	private static String messages(ErrorLog errors)
+	{
+		StringBuilder log = new StringBuilder();
+		for (int i = 0; i < errors.size(); i++)
+		{
+			log.append(errors.message(i)).append('\n');
+		}
+		return log.toString();
+	}
+
+	/**
+	 * Converts bytes to UTF-8 through a target that only holds a few bytes at a time,
+	 * feeding the source in blocks of the given size.
+	 */
+	private static byte[] decodeInBlocks(DocumentEncoding encoding, byte[] bytes, int blockSize, int targetSize)
+	{
+		ByteBuffer source = ByteBuffer.allocate(bytes.length);
+		ByteBuffer target = ByteBuffer.allocate(targetSize);
+		ByteBuffer decoded = ByteBuffer.allocate(bytes.length * 2 + 4);
+		int read = 0;
+		source.limit(0);
+		while (true)
+		{
+			source.compact();
+			int length = Math.min(blockSize, bytes.length - read);
+			source.put(bytes, read, length);
+			read += length;
+			source.flip();
+			boolean endOfInput = read == bytes.length;
+			encoding.decode(source, target, endOfInput);
+			target.flip();
+			decoded.put(target);
+			target.clear();
+			if (endOfInput && !source.hasRemaining())
+			{
+				break;
+			}
+		}
+		byte[] result = new byte[decoded.position()];
+		decoded.flip().get(result);
+		return result;
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentEncoding#detect(java.nio.ByteBuffer)}.
+	 */
+	@Test
+	public void testDetect()
+	{
+		assertEquals(DocumentEncoding.UTF_16LE, detect(new byte[] { (byte) 0xFF, (byte) 0xFE, '<', 0 }));
+		assertEquals(DocumentEncoding.UTF_16BE, detect(new byte[] { (byte) 0xFE, (byte) 0xFF, 0, '<' }));
+		assertEquals(DocumentEncoding.UTF_16LE, detect("<a/>".getBytes(StandardCharsets.UTF_16LE)));
+		assertEquals(DocumentEncoding.UTF_16BE, detect("<?xml?>".getBytes(StandardCharsets.UTF_16BE)));
+		assertEquals(DocumentEncoding.UTF_8, detect(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '<' }));
+		assertEquals(DocumentEncoding.UTF_8, detect("<a/>".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(DocumentEncoding.UTF_8, detect(new byte[0]));
+		assertEquals(DocumentEncoding.ISO_8859_1,
+			detect("<?xml version=\"1.0\" encoding = 'ISO-8859-1'?>".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(DocumentEncoding.ISO_8859_1, detect("<?xml encoding=\"latin1\"?>".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(DocumentEncoding.UTF_8, detect("<?xml encoding=\"UTF-8\"?>".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(DocumentEncoding.UTF_8, detect("<?xml encoding=\"no such\"?>".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(DocumentEncoding.UTF_8, detect("<?xml version=\"1.0\"?><a encoding='latin1'/>".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(DocumentEncoding.UTF_8, detect("<a>\n<?xml encoding='latin1'?>".getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentEncoding#decode(java.nio.ByteBuffer, java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testDecodeMatchesCharsets()
+	{
+		Random random = new Random(23);
+		int[] alphabet = "<>/ab \n\u00e9\u00ff\u0100\u4e2d\ud83d\ude00".codePoints().toArray();
+		DocumentEncoding[] encodings = { DocumentEncoding.ISO_8859_1, DocumentEncoding.UTF_16LE, DocumentEncoding.UTF_16BE };
+		Charset[] charsets = { StandardCharsets.ISO_8859_1, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE };
+		for (int round = 0; round < 300; round++)
+		{
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(60);
+			for (int i = 0; i < length; i++)
+			{
+				int c = random.nextInt(alphabet.length + 20);
+				text.appendCodePoint(c < alphabet.length ? alphabet[c] : 'x');
+			}
+			for (int e = 0; e < encodings.length; e++)
+			{
+				String expected = text.toString();
+				if (encodings[e] == DocumentEncoding.ISO_8859_1)
+				{
+					expected = new String(expected.getBytes(charsets[e]), charsets[e]);
+				}
+				byte[] bytes = expected.getBytes(charsets[e]);
+				byte[] decoded = decodeInBlocks(encodings[e], bytes, 1 + random.nextInt(17), 4 + random.nextInt(12));
+				assertEquals(encodings[e] + " " + expected, expected, new String(decoded, StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentEncoding#decode(java.nio.ByteBuffer, java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testDecodeReplacesBrokenUnits()
+	{
+		byte[] bytes = { 0x3D, (byte) 0xD8, 'a', 0, 0x00, (byte) 0xDC, 'b' };
+		String decoded = new String(decodeInBlocks(DocumentEncoding.UTF_16LE, bytes, 3, 8), StandardCharsets.UTF_8);
+		assertEquals("\ufffda\ufffd\ufffd", decoded);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#validate(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testStreamReadsEachEncoding() throws IOException
+	{
+		XMLValidator validator = new XMLValidator();
+		byte[][] documents = {
+			DOCUMENT.getBytes(StandardCharsets.UTF_8),
+			("\ufeff" + DOCUMENT).getBytes(StandardCharsets.UTF_8),
+			("\ufeff" + DOCUMENT).getBytes(StandardCharsets.UTF_16LE),
+			("\ufeff" + DOCUMENT).getBytes(StandardCharsets.UTF_16BE),
+			DOCUMENT.getBytes(StandardCharsets.UTF_16LE),
+			("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n" + DOCUMENT).getBytes(StandardCharsets.ISO_8859_1) };
+		for (int i = 0; i < documents.length; i++)
+		{
+			Files.write(file, documents[i]);
+			String expected = i < documents.length - 1 ? ERRORS : ERRORS.replace("line 2", "line 3").replace("line 4", "line 5");
+			assertEquals("document " + i, expected, messages(validator.validate(file).getErrors()));
+			assertEquals("document " + i, expected, messages(new ParallelValidator(2, 8).validate(file)));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.ChannelReader#readFully(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testReadFullyConvertsToUtf8() throws IOException
+	{
+		ChannelReader reader = new ChannelReader(16);
+		Files.write(file, ("\ufeff" + DOCUMENT).getBytes(StandardCharsets.UTF_16BE));
+		assertEquals(DOCUMENT, new String(reader.readFully(file), StandardCharsets.UTF_8));
+		Files.write(file, ("\ufeff" + DOCUMENT).getBytes(StandardCharsets.UTF_8));
+		assertEquals(DOCUMENT, new String(reader.readFully(file), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,168 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.DocumentStatistics;
+import utilities.JsonLinesErrorSink;
+import utilities.TextErrorSink;
+import utilities.ValidationResult;
+import utilities.XMLValidator;
+
+/**
+ * Class Description:
+ * Tests for the DocumentStatistics gathered while a document is validated, and for how
+ * the sinks write them.
+ */
+public class DocumentStatisticsTest
+{
+	// Attributes
+	private static final String DOCUMENT = "<?xml version=\"1.0\"?>\n"
+		+ "<Driver id=\"1\">\n"
+		+ "<!-- languages -->\n"
+		+ "<Language LanguageName=\"Java\" Level='3'>text</Language>\n"
+		+ "<Language LanguageName=\"C\"/>\n"
+		+ "<Notes><Note>ab</Note></Notes>\n"
+		+ "</Driver>\n";
+
+	private XMLValidator validator;
+	private DocumentStatistics statistics;
+
+	/**
+	 * Creates a validator and statistics before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		validator = new XMLValidator();
+		statistics = new DocumentStatistics();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		validator = null;
+		statistics = null;
+	}
+
+	/**
+	 * Validates a document held in memory while gathering statistics.
+	 */
+	private ValidationResult validate(String document)
+	{
+		return validator.validate(ByteBuffer.wrap(document.getBytes(StandardCharsets.ISO_8859_1)), statistics);
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentStatistics#startElement(java.nio.ByteBuffer, int, int, utilities.Attributes)}.
+	 */
+	@Test
+	public void testCountsStructure()
+	{
+		assertTrue(validate(DOCUMENT).isWellFormed());
+		assertEquals(5, statistics.getElementCount());
+		assertEquals(3, statistics.getMaxDepth());
+		assertEquals(2.0, statistics.getAverageDepth(), 1e-9);
+		assertEquals(4, statistics.getAttributeCount());
+		assertEquals(6, statistics.getTextBytes());
+		assertEquals(1, statistics.getCommentCount());
+		assertEquals(1, statistics.getProcessingInstructionCount());
+		assertEquals(2, statistics.getTagCount("Language"));
+		assertEquals(1, statistics.getTagCount(statistics.getSymbols().lookup("Note")));
+		assertEquals(0, statistics.getTagCount("Missing"));
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentStatistics#comment(java.nio.ByteBuffer, int, int)}.
+	 */
+	@Test
+	public void testCountsMarkupSpanningLinesOnce()
+	{
+		assertTrue(validate("<a><!--\n\n--><?pi\n?>\n</a>\n").isWellFormed());
+		assertEquals(1, statistics.getCommentCount());
+		assertEquals(1, statistics.getProcessingInstructionCount());
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentStatistics#reset()}.
+	 */
+	@Test
+	public void testResetKeepsIds()
+	{
+		validate(DOCUMENT);
+		int id = statistics.getSymbols().lookup("Notes");
+		statistics.reset();
+		assertEquals(0, statistics.getElementCount());
+		assertEquals(0.0, statistics.getAverageDepth(), 0);
+
+		validate("</x>\n<Notes>\n<Notes/>\n");
+		assertEquals(id, statistics.getSymbols().lookup("Notes"));
+		assertEquals(2, statistics.getTagCount(id));
+		assertEquals(2, statistics.getMaxDepth());
+		assertEquals(0, statistics.getTagCount("Driver"));
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentStatistics#getTagCount(int)}.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testTagCountOutOfBounds()
+	{
+		validate("<a/>");
+		statistics.getTagCount(1);
+	}
+
+	/**
+	 * Test method for {@link utilities.TextErrorSink#statistics(utilities.DocumentStatistics)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testTextStatistics() throws IOException
+	{
+		String newLine = System.lineSeparator();
+		validate("<a x='1'>\n<b>hi</b>\n</a>\n");
+		StringWriter out = new StringWriter();
+		new TextErrorSink(out, false).statistics(statistics);
+		assertEquals("===========Statistics===========" + newLine
+			+ "Elements: 2" + newLine
+			+ "Maximum depth: 2" + newLine
+			+ "Average depth: 1.50" + newLine
+			+ "Attributes: 1" + newLine
+			+ "Text bytes: 2" + newLine
+			+ "Comments: 0" + newLine
+			+ "Processing instructions: 0" + newLine
+			+ "Elements by tag:" + newLine
+			+ "  a: 1" + newLine
+			+ "  b: 1" + newLine, out.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.JsonLinesErrorSink#statistics(utilities.DocumentStatistics)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testJsonStatistics() throws IOException
+	{
+		validate("<a x='1'>\n<b>hi</b>\n</a>\n");
+		StringWriter out = new StringWriter();
+		JsonLinesErrorSink sink = new JsonLinesErrorSink(out);
+		sink.startDocument("doc.xml");
+		sink.statistics(statistics);
+		assertEquals("{\"type\":\"statistics\",\"file\":\"doc.xml\",\"elements\":2,\"maxDepth\":2,\"averageDepth\":1.5,"
+			+ "\"attributes\":1,\"textBytes\":2,\"comments\":0,\"processingInstructions\":0,\"tags\":{\"a\":1,\"b\":1}}\n",
+			out.toString());
+	}
+}
@@ -0,0 +1,210 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.DocumentTree;
+import utilities.XMLValidator;
+
+/**
+ * Class Description:
+ * Tests for the DocumentTree, checking the links between nodes and the names, text and
+ * attributes they refer to.
+ */
+public class DocumentTreeTest
+{
+	// Attributes
+	private XMLValidator validator;
+
+	/**
+	 * Creates a validator before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		validator = new XMLValidator();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		validator = null;
+	}
+
+	/**
+	 * Builds the tree of a document held in memory.
+	 */
+	private DocumentTree build(String document)
+	{
+		return DocumentTree.build(document.getBytes(StandardCharsets.ISO_8859_1), validator);
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentTree#build(byte[], utilities.XMLValidator)}.
+	 */
+	@Test
+	public void testBuildLinksNodes()
+	{
+		DocumentTree tree = build("<?xml version=\"1.0\"?>\n<a>\n<b>x</b><!--c-->\n<d/>\n</a>\n");
+		assertTrue(tree.isWellFormed());
+		assertEquals(7, tree.size());
+		assertEquals(DocumentTree.DOCUMENT, tree.kind(0));
+		assertEquals(-1, tree.parent(0));
+
+		int pi = tree.firstChild(0);
+		assertEquals(DocumentTree.PROCESSING_INSTRUCTION, tree.kind(pi));
+		assertEquals("xml version=\"1.0\"", tree.text(pi).toString());
+		int a = tree.nextSibling(pi);
+		assertEquals(a, tree.firstElement(0));
+		assertEquals("a", tree.name(a));
+		assertEquals(-1, tree.nextSibling(a));
+
+		int b = tree.firstChild(a);
+		assertEquals("b", tree.name(b));
+		assertEquals(a, tree.parent(b));
+		int x = tree.firstChild(b);
+		assertEquals(DocumentTree.TEXT, tree.kind(x));
+		assertEquals("x", tree.text(x).toString());
+		assertNull(tree.name(x));
+		int comment = tree.nextSibling(b);
+		assertEquals(DocumentTree.COMMENT, tree.kind(comment));
+		assertEquals("c", tree.text(comment).toString());
+		int d = tree.nextElement(b);
+		assertEquals("d", tree.name(d));
+		assertEquals(d, tree.nextSibling(comment));
+		assertEquals(-1, tree.firstChild(d));
+		assertEquals(-1, tree.nextElement(d));
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentTree#text(int)}.
+	 */
+	@Test
+	public void testMarkupSpanningLinesIsOneNode()
+	{
+		DocumentTree tree = build("<a><!-- x\r\n<y>\n--><?pi a\nb?></a>\n");
+		assertTrue(tree.isWellFormed());
+		assertEquals(4, tree.size());
+		int comment = tree.firstChild(tree.firstChild(0));
+		assertEquals(DocumentTree.COMMENT, tree.kind(comment));
+		assertEquals(" x\r\n<y>\n", tree.text(comment).toString());
+		int pi = tree.nextSibling(comment);
+		assertEquals(DocumentTree.PROCESSING_INSTRUCTION, tree.kind(pi));
+		assertEquals("pi a\nb", tree.text(pi).toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentTree#attribute(int, java.lang.CharSequence)}.
+	 */
+	@Test
+	public void testAttributesReferToDocument()
+	{
+		DocumentTree tree = build("<a id=\"1\" k='v w'>\n<b/>\n</a>\n");
+		int a = tree.firstChild(0);
+		assertEquals(2, tree.attributes(a).getLength());
+		assertEquals("v w", tree.attribute(a, "k").toString());
+		assertEquals("1", tree.attribute(a, "id").toString());
+		assertNull(tree.attribute(a, "missing"));
+		assertEquals(0, tree.attributes(tree.firstChild(a)).getLength());
+		assertNull(tree.attributes(0));
+		assertEquals(tree.nameId(tree.firstChild(a)), tree.getSymbols().lookup("b"));
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentTree#text(int)}.
+	 */
+	@Test
+	public void testNamesAndTextAreDecodedFromUtf8()
+	{
+		String document = "<\u540d\u524d \u5c5e\u6027=\"\u5024\" a='x'>caf\u00e9 &amp; \u30c6\u30ad\u30b9\u30c8</\u540d\u524d>\n";
+		DocumentTree tree = DocumentTree.build(document.getBytes(StandardCharsets.UTF_8), validator);
+		assertTrue(tree.isWellFormed());
+		int element = tree.firstChild(0);
+		assertEquals("\u540d\u524d", tree.name(element));
+		assertEquals(element, tree.firstElement(0));
+		assertEquals("\u5024", tree.attribute(element, "\u5c5e\u6027").toString());
+		assertEquals("x", tree.attribute(element, "a").toString());
+		assertEquals("\u5c5e\u6027", tree.attributes(element).getName(0).toString());
+		CharSequence text = tree.text(tree.firstChild(element));
+		assertEquals(15, text.length());
+		assertEquals('\u00e9', text.charAt(3));
+		assertEquals("\u30c6\u30ad", text.subSequence(11, 13).toString());
+		assertEquals("caf\u00e9 &amp; \u30c6\u30ad\u30b9\u30c8", text.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentTree#build(byte[], utilities.XMLValidator)}.
+	 */
+	@Test
+	public void testBuildFollowsCheckerOnErrors()
+	{
+		DocumentTree tree = build("</z>\n<a>\n<b>\n</c>\n<d/>\n");
+		assertFalse(tree.isWellFormed());
+		assertEquals(3, tree.getErrorCount());
+		int a = tree.firstChild(0);
+		assertEquals("a", tree.name(a));
+		assertEquals(-1, tree.nextSibling(a));
+		int b = tree.firstChild(a);
+		assertEquals("b", tree.name(b));
+		assertEquals("d", tree.name(tree.nextSibling(b)));
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentTree#build(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testBuildFromFile() throws IOException
+	{
+		Path file = Files.createTempFile("tree", ".xml");
+		try
+		{
+			StringBuilder document = new StringBuilder("<root>\n");
+			for (int i = 0; i < 1000; i++)
+			{
+				document.append("<item>").append(i).append("</item>\n");
+			}
+			document.append("</root>\n");
+			Files.write(file, document.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+			DocumentTree tree = DocumentTree.build(file);
+			assertTrue(tree.isWellFormed());
+			assertEquals(2002, tree.size());
+			int item = tree.firstElement(tree.firstElement(0));
+			int count = 0;
+			while (item >= 0)
+			{
+				assertEquals(String.valueOf(count), tree.text(tree.firstChild(item)).toString());
+				item = tree.nextElement(item);
+				count++;
+			}
+			assertEquals(1000, count);
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.DocumentTree#parent(int)}.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testNodeOutOfBounds()
+	{
+		build("<a/>").parent(2);
+	}
+}
@@ -0,0 +1,128 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.ErrorLog;
+import utilities.ParallelValidator;
+
+/**
+ * Class Description:
+ * Tests for the ErrorLog. The logs are produced by validating small documents, and the
+ * fields of each record are checked along with the message built from them.
+ */
+public class ErrorLogTest
+{
+	// Attributes
+	private Path file;
+	private ErrorLog log;
+
+	/**
+	 * Validates a document with one error of every kind before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = Files.createTempFile("errors", ".xml");
+		String document = "<root>\n<d>\n<a>>\n  <b x=\"1\n\t</c>\n";
+		Files.write(file, document.getBytes(StandardCharsets.ISO_8859_1));
+		log = new ParallelValidator(1).validate(file);
+	}
+
+	/**
+	 * Deletes the temporary file after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		Files.deleteIfExists(file);
+		file = null;
+		log = null;
+	}
+
+	/**
+	 * Test method for {@link utilities.ErrorLog#kind(int)}.
+	 */
+	@Test
+	public void testKind()
+	{
+		assertEquals(4, log.size());
+		assertEquals(ErrorLog.INVALID_CLOSE_TAG, log.kind(0));
+		assertEquals(ErrorLog.MALFORMED_TAG, log.kind(1));
+		assertEquals(ErrorLog.UNEXPECTED_CLOSE_TAG, log.kind(2));
+		assertEquals(ErrorLog.UNCLOSED_TAG, log.kind(3));
+	}
+
+	/**
+	 * Test method for {@link utilities.ErrorLog#line(int)} and
+	 * {@link utilities.ErrorLog#column(int)}.
+	 */
+	@Test
+	public void testLineAndColumn()
+	{
+		assertEquals(3, log.line(0));
+		assertEquals(0, log.column(0));
+		assertEquals(4, log.line(1));
+		assertEquals(5, log.line(2));
+		assertEquals(2, log.column(2));
+		assertEquals(1, log.line(3));
+		assertEquals(1, log.column(3));
+	}
+
+	/**
+	 * Test method for {@link utilities.ErrorLog#name(int)} and
+	 * {@link utilities.ErrorLog#text(int)}.
+	 */
+	@Test
+	public void testNameAndText()
+	{
+		assertNull(log.name(0));
+		assertEquals("<a>>", log.text(0));
+		assertEquals("<b x=\"1", log.text(1));
+		assertEquals("c", log.name(2));
+		assertNull(log.text(2));
+		assertEquals("root", log.name(3));
+	}
+
+	/**
+	 * Test method for {@link utilities.ErrorLog#message(int)}.
+	 */
+	@Test
+	public void testMessage()
+	{
+		assertEquals("Invalid close tag at line 3\n<a>>", log.message(0));
+		assertEquals("Error at line 4: Malformed tag\n<b x=\"1", log.message(1));
+		assertEquals("Error at line 5: </c>", log.message(2));
+		assertEquals("Error at line 1: <root>", log.message(3));
+	}
+
+	/**
+	 * Test method for {@link utilities.ErrorLog#clear()}.
+	 */
+	@Test
+	public void testClear()
+	{
+		log.clear();
+		assertTrue(log.isEmpty());
+		assertEquals(0, log.size());
+	}
+
+	/**
+	 * Test method for {@link utilities.ErrorLog#line(int)}.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testLineOutOfBounds()
+	{
+		log.line(4);
+	}
+}
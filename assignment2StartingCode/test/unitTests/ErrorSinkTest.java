@@ -0,0 +1,153 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.ErrorLog;
+import utilities.ErrorSink;
+import utilities.JsonLinesErrorSink;
+import utilities.ParallelValidator;
+import utilities.ReportFormat;
+import utilities.TextErrorSink;
+
+/**
+ * Class Description:
+ * Tests for the TextErrorSink and JsonLinesErrorSink. The error log of a small document
+ * is written through each sink and the output compared with the expected report.
+ */
+public class ErrorSinkTest
+{
+	// Attributes
+	private Path file;
+	private ErrorLog log;
+	private StringWriter out;
+
+	/**
+	 * Validates a document with a quoted line and a tag error before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = Files.createTempFile("sink", ".xml");
+		Files.write(file, "<a>\n<b \"x\">>\n</c>\n".getBytes(StandardCharsets.ISO_8859_1));
+		log = new ParallelValidator(1).validate(file);
+		out = new StringWriter();
+	}
+
+	/**
+	 * Deletes the temporary file after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		Files.deleteIfExists(file);
+		file = null;
+		log = null;
+		out = null;
+	}
+
+	/**
+	 * Writes the log as one document through the sink.
+	 */
+	private void write(ErrorSink sink, String name) throws IOException
+	{
+		sink.startDocument(name);
+		log.writeTo(sink);
+		sink.endDocument(log.size());
+		sink.flush();
+	}
+
+	/**
+	 * Test method for {@link utilities.TextErrorSink#error(utilities.ErrorLog, int)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testTextReport() throws IOException
+	{
+		String newLine = System.lineSeparator();
+		write(new TextErrorSink(out, false), "doc.xml");
+		assertEquals("===========Error Log===========" + newLine + "Invalid close tag at line 2\n<b \"x\">>"
+			+ newLine + "Error at line 3: </c>" + newLine, out.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.TextErrorSink#startDocument(java.lang.String)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testTextReportWithNames() throws IOException
+	{
+		String newLine = System.lineSeparator();
+		ErrorSink sink = new TextErrorSink(out, true);
+		sink.startDocument("good.xml");
+		sink.endDocument(0);
+		sink.startDocument("gone.xml");
+		sink.unreadable("gone.xml");
+		sink.summary(2, 1, 0, 1);
+		assertEquals("== good.xml" + newLine + "XML is well-formed." + newLine + "== gone.xml" + newLine
+			+ "Error reading XML file: gone.xml" + newLine
+			+ "Checked 2 files: 1 well-formed, 0 with errors, 1 unreadable." + newLine, out.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.JsonLinesErrorSink#error(utilities.ErrorLog, int)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testJsonLines() throws IOException
+	{
+		write(new JsonLinesErrorSink(out), "doc.xml");
+		assertEquals("{\"type\":\"error\",\"file\":\"doc.xml\",\"kind\":\"invalid-close-tag\",\"line\":2,"
+			+ "\"column\":0,\"text\":\"<b \\\"x\\\">>\",\"message\":\"Invalid close tag at line 2\\n<b \\\"x\\\">>\"}\n"
+			+ "{\"type\":\"error\",\"file\":\"doc.xml\",\"kind\":\"unexpected-close-tag\",\"line\":3,"
+			+ "\"column\":1,\"tag\":\"c\",\"message\":\"Error at line 3: </c>\"}\n"
+			+ "{\"type\":\"document\",\"file\":\"doc.xml\",\"errors\":2,\"wellFormed\":false}\n", out.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.JsonLinesErrorSink#unreadable(java.lang.String)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testJsonLinesUnreadableAndSummary() throws IOException
+	{
+		ErrorSink sink = new JsonLinesErrorSink(out);
+		sink.startDocument(null);
+		sink.unreadable("no\tsuch\u0001file");
+		sink.summary(1, 0, 0, 1);
+		assertEquals("{\"type\":\"unreadable\",\"file\":null,\"message\":\"no\\tsuch\\u0001file\"}\n"
+			+ "{\"type\":\"summary\",\"documents\":1,\"wellFormed\":0,\"withErrors\":0,\"unreadable\":1}\n",
+			out.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.ReportFormat#forName(java.lang.String)}.
+	 */
+	@Test
+	public void testFormatForName()
+	{
+		assertEquals(ReportFormat.TEXT, ReportFormat.forName("text"));
+		assertEquals(ReportFormat.JSON_LINES, ReportFormat.forName("json"));
+		assertTrue(ReportFormat.JSON_LINES.newSink(out, false) instanceof JsonLinesErrorSink);
+	}
+
+	/**
+	 * Test method for {@link utilities.ReportFormat#forName(java.lang.String)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testFormatForUnknownName()
+	{
+		ReportFormat.forName("xml");
+	}
+}
@@ -0,0 +1,148 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.ErrorLog;
+import utilities.LineIndex;
+import utilities.ValidationResult;
+import utilities.XMLValidator;
+
+/**
+ * Class Description:
+ * Tests for the LineIndex the tokenizer records, checking that every kind of line break
+ * is indexed and that the text of a line can be sliced out of the document.
+ */
+public class LineIndexTest
+{
+	// Attributes
+	private XMLValidator validator;
+
+	/**
+	 * Creates a validator that indexes lines before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		validator = new XMLValidator();
+		validator.setIndexLines(true);
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		validator = null;
+	}
+
+	/**
+	 * Test method for {@link utilities.LineIndex#text(byte[], int)}.
+	 */
+	@Test
+	public void testIndexesEveryLineBreak()
+	{
+		byte[] document = "<a>\r\n<b>\r\r<c>\n\n</b>text\n</a>".getBytes(StandardCharsets.ISO_8859_1);
+		ValidationResult result = validator.validate(document);
+		LineIndex lines = result.getLineIndex();
+		assertEquals(result.getLineCount(), lines.size());
+		assertEquals(7, lines.size());
+		String[] expected = { "<a>", "<b>", "", "<c>", "", "</b>text", "</a>" };
+		long[] starts = { 0, 5, 9, 10, 14, 15, 24 };
+		for (int line = 1; line <= lines.size(); line++)
+		{
+			assertEquals(expected[line - 1], lines.text(document, line));
+			assertEquals(starts[line - 1], lines.start(line));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.LineIndex#text(java.nio.ByteBuffer, int)}.
+	 */
+	@Test
+	public void testSlicesContextOfErrors()
+	{
+		ByteBuffer document = ByteBuffer.wrap("xx<a>\n  <b>\n  </c>\n</a>\n".getBytes(StandardCharsets.ISO_8859_1));
+		document.position(2);
+		ValidationResult result = validator.validate(document);
+		ErrorLog errors = result.getErrors();
+		LineIndex lines = result.getLineIndex();
+		assertEquals(1, errors.size());
+		assertEquals(3, errors.line(0));
+		assertEquals("  </c>", lines.text(document, errors.line(0)));
+		assertEquals(3, errors.column(0));
+		assertEquals(2, document.position());
+	}
+
+	/**
+	 * Test method for {@link utilities.LineIndex#lineOf(long)}.
+	 */
+	@Test
+	public void testLineOf()
+	{
+		LineIndex lines = validator.validate("<a>\n<b/>\n\n</a>\n".getBytes(StandardCharsets.ISO_8859_1)).getLineIndex();
+		assertEquals(4, lines.size());
+		assertEquals(1, lines.lineOf(0));
+		assertEquals(1, lines.lineOf(3));
+		assertEquals(2, lines.lineOf(4));
+		assertEquals(3, lines.lineOf(9));
+		assertEquals(4, lines.lineOf(10));
+		assertEquals(4, lines.lineOf(1000));
+		assertEquals(0, lines.lineOf(-1));
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#setIndexLines(boolean)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testIndexesAcrossBlocks() throws IOException
+	{
+		Path file = Files.createTempFile("lines", ".xml");
+		try
+		{
+			StringBuilder document = new StringBuilder("<root>\n");
+			for (int i = 0; i < 40000; i++)
+			{
+				document.append("<item>").append(i).append("</item>").append(i % 3 == 0 ? "\r\n" : "\n");
+			}
+			document.append("</root>\n");
+			byte[] bytes = document.toString().getBytes(StandardCharsets.ISO_8859_1);
+			Files.write(file, bytes);
+
+			LineIndex lines = validator.validate(file).getLineIndex();
+			assertEquals(40002, lines.size());
+			assertEquals("<root>", lines.text(bytes, 1));
+			for (int i = 0; i < 40000; i++)
+			{
+				assertEquals("<item>" + i + "</item>", lines.text(bytes, i + 2));
+			}
+			assertEquals("</root>", lines.text(bytes, 40002));
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.LineIndex#start(int)}.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testLineOutOfBounds()
+	{
+		validator.validate("<a/>\n".getBytes(StandardCharsets.ISO_8859_1)).getLineIndex().start(2);
+	}
+}
@@ -0,0 +1,187 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.ErrorLog;
+import utilities.ParallelValidator;
+
+/**
+ * Class Description:
+ * Tests for the ParallelValidator. Ranges are made a few bytes long so that every test
+ * document is split many times, including between tags that match each other.
+ */
+public class ParallelValidatorTest
+{
+	// Attributes
+	private Path file;
+
+	/**
+	 * Creates a temporary file for the test document before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = Files.createTempFile("parallel", ".xml");
+	}
+
+	/**
+	 * Deletes the temporary file after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		Files.deleteIfExists(file);
+		file = null;
+	}
+
+	/**
+	 * Writes the document and validates it with ranges of the given size.
+	 */
+	private String validate(String document, long rangeSize) throws IOException
+	{
+		return validate(document, rangeSize, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Writes the document and validates it with ranges of the given size, keeping at
+	 * most the given number of errors.
+	 */
+	private String validate(String document, long rangeSize, int maxErrors) throws IOException
+	{
+		Files.write(file, document.getBytes(StandardCharsets.ISO_8859_1));
+		ErrorLog errors = new ParallelValidator(4, rangeSize).validate(file, maxErrors);
+		StringBuilder log = new StringBuilder();
+		for (int i = 0; i < errors.size(); i++)
+		{
+			log.append(errors.message(i)).append('\n');
+		}
+		return log.toString();
+	}
+
+	/**
+	 * Test method for {@link utilities.ParallelValidator#validate(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateWellFormedAcrossRanges() throws IOException
+	{
+		String document = "<?xml version=\"1.0\"?>\n<a>\n\t<b x=\"1\">\n\t\t<c/>\n\t</b>\r\n\t<b>text</b>\r</a>\n";
+		for (int rangeSize = 1; rangeSize < document.length(); rangeSize++)
+		{
+			assertEquals("", validate(document, rangeSize));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.ParallelValidator#validate(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateReportsErrorsInSerialOrder() throws IOException
+	{
+		String document = "<XMLDATA>\n<Category>>\n<b>x<i>y</b>z</i>\n<d attr=\"1\"\n</Category>\n</XMLDATA>\n</extra>\n<open>";
+		String expected = "Invalid close tag at line 2\n<Category>>\n"
+				+ "Error at line 3: </b>\n"
+				+ "Error at line 3: </i>\n"
+				+ "Error at line 4: Malformed tag\n<d attr=\"1\"\n"
+				+ "Error at line 5: </Category>\n"
+				+ "Error at line 6: </XMLDATA>\n"
+				+ "Error at line 7: </extra>\n"
+				+ "Error at line 8: <open>\n";
+		for (int rangeSize = 1; rangeSize < document.length(); rangeSize++)
+		{
+			assertEquals("range size " + rangeSize, expected, validate(document, rangeSize));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.ParallelValidator#validate(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateMarkupSpanningRanges() throws IOException
+	{
+		String document = "<a>\n<!-- <b>\n</c>\n-->\n<d\n  x=\"1\">\n<![CDATA[\n</e>\n]]>\n</d>\n</f>\n</a>\n";
+		String expected = "Error at line 11: </f>\nError at line 12: </a>\n";
+		for (int rangeSize = 1; rangeSize < document.length(); rangeSize++)
+		{
+			assertEquals("range size " + rangeSize, expected, validate(document, rangeSize));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.ParallelValidator#validate(java.nio.file.Path)}.
+	 * Dropping the results of ranges that start inside a comment must not disturb the
+	 * ranges still being checked.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateRepeatedlyWithCommentAcrossManyRanges() throws IOException
+	{
+		StringBuilder document = new StringBuilder("<r>\n<!--\n");
+		for (int i = 0; i < 20; i++)
+		{
+			document.append("<x>\n");
+		}
+		document.append("-->\n</r>\n</s>\n");
+		for (int run = 0; run < 200; run++)
+		{
+			assertEquals("run " + run, "Error at line 25: </s>\n", validate(document.toString(), 1));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.ParallelValidator#validate(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateEmptyFile() throws IOException
+	{
+		assertEquals("", validate("", 1));
+	}
+
+	/**
+	 * Test method for {@link utilities.ParallelValidator#validate(java.nio.file.Path, int)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateStopsAtErrorLimit() throws IOException
+	{
+		String document = "<r>\n</x>\n<a>\n<b>>\n</a>\n<c\n</y>\n<d>\n</r>\n<e>\n";
+		String[] all = validate(document, 1).split("(?<=\n)(?=Error|Invalid)");
+		assertEquals(6, all.length);
+		for (int limit = 1; limit <= all.length + 1; limit++)
+		{
+			StringBuilder expected = new StringBuilder();
+			for (int i = 0; i < Math.min(limit, all.length); i++)
+			{
+				expected.append(all[i]);
+			}
+			for (long rangeSize = 1; rangeSize <= document.length(); rangeSize += 3)
+			{
+				assertEquals("limit " + limit, expected.toString(), validate(document, rangeSize, limit));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.ParallelValidator#validate(java.nio.file.Path, int)}.
+	 * @throws IOException
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testValidateRejectsZeroErrorLimit() throws IOException
+	{
+		validate("<a/>", 1, 0);
+	}
+}
@@ -0,0 +1,170 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.DocumentTree;
+import utilities.PathQuery;
+import utilities.XMLValidator;
+
+/**
+ * Class Description:
+ * Tests for the PathQuery. Each query is evaluated both over a DocumentTree and over the
+ * event stream, and the two must agree.
+ */
+public class PathQueryTest
+{
+	// Attributes
+	private static final String DOCUMENT = "<XMLDATA>\n"
+		+ "<Submission>\n"
+		+ "<Category name=\"a\">\n"
+		+ "<Driver><Language LanguageName=\"Java\"/></Driver>\n"
+		+ "<Driver><Language LanguageName=\"C\"/><Language/></Driver>\n"
+		+ "</Category>\n"
+		+ "<Category name=\"b\">\n"
+		+ "<Driver>x<Language LanguageName=\"Go\">go</Language>y</Driver>\n"
+		+ "</Category>\n"
+		+ "</Submission>\n"
+		+ "</XMLDATA>\n";
+
+	private XMLValidator validator;
+	private DocumentTree tree;
+
+	/**
+	 * Builds the tree of the test document before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		validator = new XMLValidator();
+		tree = DocumentTree.build(DOCUMENT.getBytes(StandardCharsets.ISO_8859_1), validator);
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		validator = null;
+		tree = null;
+	}
+
+	/**
+	 * Evaluates a query over the tree and the event stream and checks that both give the
+	 * expected values.
+	 */
+	private void assertValues(String expression, String... expected)
+	{
+		PathQuery query = PathQuery.compile(expression);
+		assertEquals(Arrays.asList(expected), query.evaluate(tree));
+		List<String> streamed = query.evaluate(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.ISO_8859_1)), validator);
+		assertEquals(Arrays.asList(expected), streamed);
+	}
+
+	/**
+	 * Test method for {@link utilities.PathQuery#evaluate(utilities.DocumentTree)}.
+	 */
+	@Test
+	public void testChildAndAttributeSteps()
+	{
+		assertValues("/XMLDATA/Submission/Category/Driver/Language/@LanguageName", "Java", "C", "Go");
+		assertValues("/XMLDATA/Submission/Category/@name", "a", "b");
+		assertValues("/XMLDATA/Category");
+		assertValues("/XMLDATA/Submission/Category/Missing/@x");
+	}
+
+	/**
+	 * Test method for {@link utilities.PathQuery#evaluate(utilities.DocumentTree)}.
+	 */
+	@Test
+	public void testDescendantAndWildcardSteps()
+	{
+		assertValues("//Language/@LanguageName", "Java", "C", "Go");
+		assertValues("/XMLDATA//Driver/Language", "", "", "", "go");
+		assertValues("//Category/*/*/@LanguageName", "Java", "C", "Go");
+		assertValues("//@name", "a", "b");
+		assertValues("//Driver", "", "", "xy");
+	}
+
+	/**
+	 * Test method for {@link utilities.PathQuery#evaluate(utilities.DocumentTree)}.
+	 */
+	@Test
+	public void testPositionPredicates()
+	{
+		assertValues("//Category[2]/@name", "b");
+		assertValues("//Driver[2]/Language[1]/@LanguageName", "C");
+		assertValues("//Driver/Language[2]", "");
+		assertValues("/XMLDATA[2]");
+	}
+
+	/**
+	 * Test method for {@link utilities.PathQuery#select(utilities.DocumentTree)}.
+	 */
+	@Test
+	public void testSelectReturnsNodesInDocumentOrder()
+	{
+		int[] nodes = PathQuery.compile("//Language[1]").select(tree);
+		assertEquals(3, nodes.length);
+		assertTrue(nodes[0] < nodes[1] && nodes[1] < nodes[2]);
+		assertEquals("Language", tree.name(nodes[0]));
+		assertEquals("C", tree.attribute(nodes[1], "LanguageName").toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.PathQuery#evaluate(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testEvaluateFileKeepsNestedMatchesInOrder() throws IOException
+	{
+		Path file = Files.createTempFile("query", ".xml");
+		try
+		{
+			Files.write(file, "<a>1<a>2</a>3\n<a>4\n".getBytes(StandardCharsets.ISO_8859_1));
+			PathQuery query = PathQuery.compile("//a");
+			assertEquals(Arrays.asList("13", "2", "4"), query.evaluate(file));
+			assertEquals(query.evaluate(DocumentTree.build(file)), query.evaluate(file));
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.PathQuery#compile(java.lang.String)}.
+	 */
+	@Test
+	public void testCompileRejectsInvalidPaths()
+	{
+		String[] invalid = { "a/b", "/", "/a/", "/a[0]", "/a[x]", "/a[1", "/@id", "/a/@id/b", "/a/@", "/a*b", "/a b" };
+		for (String expression : invalid)
+		{
+			try
+			{
+				PathQuery.compile(expression);
+				fail("Compiled " + expression);
+			}
+			catch (IllegalArgumentException e)
+			{
+				// Expected
+			}
+		}
+		assertEquals("/a//b[2]/@c", PathQuery.compile("/a//b[2]/@c").toString());
+	}
+}
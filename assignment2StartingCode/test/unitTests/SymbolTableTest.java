@@ -0,0 +1,137 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.SymbolTable;
+
+/**
+ * Class Description:
+ * Tests for the SymbolTable that maps tag names to dense int ids.
+ */
+public class SymbolTableTest
+{
+	// Attributes
+	private SymbolTable symbols;
+	private ByteBuffer source;
+
+	/**
+	 * Initializes an empty symbol table and a buffer of names before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		symbols = new SymbolTable();
+		source = ByteBuffer.wrap("Driver Language Driver Languages".getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		symbols = null;
+		source = null;
+	}
+
+	/**
+	 * Test method for {@link utilities.SymbolTable#intern(java.nio.ByteBuffer, int, int)}.
+	 */
+	@Test
+	public void testInternGivesDenseIds()
+	{
+		assertEquals(0, symbols.intern(source, 0, 6));
+		assertEquals(1, symbols.intern(source, 7, 8));
+		assertEquals(2, symbols.size());
+	}
+
+	/**
+	 * Test method for {@link utilities.SymbolTable#intern(java.nio.ByteBuffer, int, int)}.
+	 */
+	@Test
+	public void testInternReturnsSameIdForSameBytes()
+	{
+		int driver = symbols.intern(source, 0, 6);
+		int language = symbols.intern(source, 7, 8);
+		assertEquals(driver, symbols.intern(source, 16, 6));
+		assertEquals(language, symbols.intern(source, 23, 8));
+		assertTrue(language != symbols.intern(source, 23, 9));
+		assertEquals(3, symbols.size());
+	}
+
+	/**
+	 * Test method for {@link utilities.SymbolTable#lookup(java.nio.ByteBuffer, int, int)}.
+	 */
+	@Test
+	public void testLookupDoesNotAdd()
+	{
+		assertEquals(-1, symbols.lookup(source, 0, 6));
+		assertEquals(0, symbols.size());
+		int driver = symbols.intern(source, 0, 6);
+		assertEquals(driver, symbols.lookup(source, 16, 6));
+		assertEquals(driver, symbols.lookup("Driver"));
+		assertEquals(-1, symbols.lookup("Drive"));
+	}
+
+	/**
+	 * Test method for {@link utilities.SymbolTable#name(int)}.
+	 */
+	@Test
+	public void testNameReturnsInternedText()
+	{
+		int language = symbols.intern(source, 7, 8);
+		assertEquals("Language", symbols.name(language));
+		assertSame(symbols.name(language), symbols.name(language));
+	}
+
+	/**
+	 * Test method for {@link utilities.SymbolTable#name(int)}.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testNameUnknownId()
+	{
+		symbols.name(0);
+	}
+
+	/**
+	 * Test method for {@link utilities.SymbolTable#intern(java.nio.ByteBuffer, int, int)}.
+	 */
+	@Test
+	public void testInternManyNamesSurvivesRehash()
+	{
+		for (int i = 0; i < 5000; i++)
+		{
+			ByteBuffer name = ByteBuffer.wrap(("tag" + i).getBytes(StandardCharsets.ISO_8859_1));
+			assertEquals(i, symbols.intern(name, 0, name.capacity()));
+		}
+		for (int i = 0; i < 5000; i++)
+		{
+			assertEquals(i, symbols.lookup("tag" + i));
+		}
+		assertEquals("tag4999", symbols.name(4999));
+	}
+
+	/**
+	 * Test method for {@link utilities.SymbolTable#clear()}.
+	 */
+	@Test
+	public void testClearRestartsIds()
+	{
+		symbols.intern(source, 0, 6);
+		symbols.intern(source, 7, 8);
+		symbols.clear();
+		assertEquals(0, symbols.size());
+		assertEquals(-1, symbols.lookup("Driver"));
+		assertEquals(0, symbols.intern(source, 7, 8));
+		assertEquals("Language", symbols.name(0));
+	}
+}
@@ -0,0 +1,109 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.NoSuchElementException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.TagStack;
+
+/**
+ * Class Description:
+ * Tests for the primitive TagStack used by the Parser's nesting check.
+ */
+public class TagStackTest
+{
+	// Attributes
+	private TagStack stack;
+
+	/**
+	 * Initializes an empty stack before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		stack = new TagStack();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		stack = null;
+	}
+
+	/**
+	 * Test method for {@link utilities.TagStack#isEmpty()}.
+	 */
+	@Test
+	public void testIsEmpty()
+	{
+		assertTrue(stack.isEmpty());
+		stack.push(1, 2, 3);
+		assertFalse(stack.isEmpty());
+		assertEquals(1, stack.size());
+	}
+
+	/**
+	 * Test method for {@link utilities.TagStack#push(int, int, int)}.
+	 */
+	@Test
+	public void testPushKeepsLineAndColumn()
+	{
+		stack.push(7, 10, 4);
+		stack.push(8, 11, 5);
+		assertEquals(8, stack.peekName());
+		assertEquals(11, stack.peekLine());
+		assertEquals(5, stack.peekColumn());
+		assertEquals(8, stack.pop());
+		assertEquals(7, stack.peekName());
+		assertEquals(10, stack.peekLine());
+		assertEquals(4, stack.peekColumn());
+	}
+
+	/**
+	 * Test method for {@link utilities.TagStack#pop()}.
+	 */
+	@Test
+	public void testPopIsLastInFirstOut()
+	{
+		for (int i = 0; i < 1000; i++)
+		{
+			stack.push(i, i + 1, i + 2);
+		}
+		assertEquals(1000, stack.size());
+		for (int i = 999; i >= 0; i--)
+		{
+			assertEquals(i + 1, stack.peekLine());
+			assertEquals(i, stack.pop());
+		}
+		assertTrue(stack.isEmpty());
+	}
+
+	/**
+	 * Test method for {@link utilities.TagStack#pop()}.
+	 */
+	@Test(expected = NoSuchElementException.class)
+	public void testPopEmpty()
+	{
+		stack.pop();
+	}
+
+	/**
+	 * Test method for {@link utilities.TagStack#peekName()}.
+	 */
+	@Test(expected = NoSuchElementException.class)
+	public void testPeekEmpty()
+	{
+		stack.push(1, 1, 1);
+		stack.clear();
+		stack.peekName();
+	}
+}
@@ -0,0 +1,172 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.ValidationClient;
+import utilities.ValidationServer;
+
+/**
+ * Class Description:
+ * Tests for the ValidationServer and ValidationClient. A server is started on a Unix
+ * domain socket in a temporary directory and serves each test on a background thread.
+ */
+public class ValidationServerTest
+{
+	// Attributes
+	private Path directory;
+	private ValidationServer server;
+	private Thread serving;
+
+	/**
+	 * Starts a server on a socket in a new temporary directory before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory("daemon");
+		server = new ValidationServer(UnixDomainSocketAddress.of(directory.resolve("validate.sock")));
+		serving = new Thread(() ->
+		{
+			try
+			{
+				server.serve();
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		});
+		serving.start();
+	}
+
+	/**
+	 * Stops the server and deletes the temporary directory after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		server.close();
+		serving.join();
+		assertFalse(Files.exists(directory.resolve("validate.sock")));
+		Files.deleteIfExists(directory.resolve("doc.xml"));
+		Files.delete(directory);
+		server = null;
+		directory = null;
+	}
+
+	/**
+	 * Test method for {@link utilities.ValidationClient#validate(byte[])}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateDataOnOneConnection() throws IOException
+	{
+		String newLine = System.lineSeparator();
+		try (ValidationClient client = new ValidationClient(server.getAddress()))
+		{
+			assertEquals("XML is well-formed." + newLine,
+				client.validate("<a>\n<b/>\n</a>\n".getBytes(StandardCharsets.ISO_8859_1)));
+			assertEquals("===========Error Log===========" + newLine + "Error at line 3: </a>" + newLine
+				+ "Error at line 1: <a>" + newLine,
+				client.validate("<a>\n<b>\n</a>".getBytes(StandardCharsets.ISO_8859_1)));
+			assertEquals("XML is well-formed." + newLine, client.validate(new byte[0]));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.ValidationClient#validate(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateFile() throws IOException
+	{
+		String newLine = System.lineSeparator();
+		Path file = directory.resolve("doc.xml");
+		Files.write(file, "<a>\n<b>>\n</a>\n".getBytes(StandardCharsets.ISO_8859_1));
+		try (ValidationClient client = new ValidationClient(server.getAddress()))
+		{
+			assertEquals("===========Error Log===========" + newLine + "Invalid close tag at line 2"
+				+ "\n<b>>" + newLine, client.validate(file));
+			assertEquals("Error reading XML file: " + directory.resolve("missing.xml") + " (No such file or directory)"
+				+ newLine, client.validate(directory.resolve("missing.xml")));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.ValidationServer#serve()}.
+	 * @throws Exception
+	 */
+	@Test
+	public void testFileIsNotServedOnPort() throws Exception
+	{
+		String newLine = System.lineSeparator();
+		Path file = directory.resolve("doc.xml");
+		Files.write(file, "<a>\n<b>>\n</a>\n".getBytes(StandardCharsets.ISO_8859_1));
+		ValidationServer portServer = new ValidationServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		Thread portServing = new Thread(() ->
+		{
+			try
+			{
+				portServer.serve();
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		});
+		portServing.start();
+		try
+		{
+			try (SocketChannel channel = SocketChannel.open(portServer.getAddress()))
+			{
+				Channels.newOutputStream(channel).write(("FILE " + file + "\n").getBytes(StandardCharsets.UTF_8));
+				String answer = new String(Channels.newInputStream(channel).readAllBytes(), StandardCharsets.ISO_8859_1);
+				assertTrue(answer, answer.startsWith("ERR "));
+				assertFalse(answer, answer.contains("<b>"));
+			}
+			try (ValidationClient client = new ValidationClient(portServer.getAddress()))
+			{
+				assertEquals("===========Error Log===========" + newLine + "Invalid close tag at line 2"
+					+ "\n<b>>" + newLine, client.validate(file));
+			}
+		}
+		finally
+		{
+			portServer.close();
+			portServing.join();
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.ValidationServer#serve()}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testUnknownRequestIsAnsweredWithError() throws IOException
+	{
+		try (SocketChannel channel = SocketChannel.open(server.getAddress()))
+		{
+			OutputStream out = Channels.newOutputStream(channel);
+			out.write("LIST /\n".getBytes(StandardCharsets.US_ASCII));
+			String answer = new String(Channels.newInputStream(channel).readAllBytes(), StandardCharsets.ISO_8859_1);
+			assertEquals("ERR 23\nUnknown request: LIST /", answer);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.ErrorLog;
+import utilities.XMLEventCursor;
+
+/**
+ * Class Description:
+ * Tests for the XMLEventCursor. Every document is read once from memory and once from a
+ * channel, and both cursors must produce the same events.
+ */
+public class XMLEventCursorTest
+{
+	// Attributes
+	private XMLEventCursor cursor;
+
+	/**
+	 * Nothing to create before each test; each test opens its own cursor.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		cursor = null;
+	}
+
+	/**
+	 * Closes the cursor after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		if (cursor != null)
+		{
+			cursor.close();
+		}
+		cursor = null;
+	}
+
+	/**
+	 * Reads every event of the cursor as a line of text.
+	 */
+	private static String events(XMLEventCursor cursor) throws IOException
+	{
+		StringBuilder events = new StringBuilder();
+		while (cursor.hasNext())
+		{
+			int type = cursor.next();
+			events.append(type).append(' ').append(cursor.getLine()).append(':').append(cursor.getColumn()).append(' ');
+			events.append(type <= XMLEventCursor.EMPTY_ELEMENT ? cursor.getName() : cursor.getText()).append('\n');
+		}
+		return events.toString();
+	}
+
+	/**
+	 * Reads the events of a document from memory and from a channel, checks that they
+	 * agree and returns them.
+	 */
+	private String read(String document) throws IOException
+	{
+		byte[] bytes = document.getBytes(StandardCharsets.ISO_8859_1);
+		String fromArray = events(new XMLEventCursor(bytes));
+		cursor = new XMLEventCursor(Channels.newChannel(new ByteArrayInputStream(bytes)));
+		assertEquals(fromArray, events(cursor));
+		return fromArray;
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventCursor#next()}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testNextReportsEveryEventType() throws IOException
+	{
+		String events = read("<?xml version=\"1.0\"?>\n<a x=\"1\">\n <!-- note --><b/>text</a>");
+		assertEquals("6 1:1 xml version=\"1.0\"\n1 2:1 a\n4 3:0  \n5 3:2  note \n3 3:15 b\n4 3:0 text\n2 3:23 a\n",
+			events);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventCursor#getErrors()}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testErrorsMatchParser() throws IOException
+	{
+		cursor = new XMLEventCursor("<a>\n<b>>\n</c>\n<d\n".getBytes(StandardCharsets.ISO_8859_1));
+		assertEquals("1 1:1 a\n2 3:1 c\n", events(cursor));
+		ErrorLog errors = cursor.getErrors();
+		assertEquals(3, errors.size());
+		assertEquals("Invalid close tag at line 2\n<b>>", errors.message(0));
+		assertEquals("Error at line 3: </c>", errors.message(1));
+		assertEquals("Error at line 4: Malformed tag\n<d", errors.message(2));
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventCursor#hasNext()}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testHasNextReadsLinesLongerThanTheWindow() throws IOException
+	{
+		StringBuilder document = new StringBuilder("<a>");
+		StringBuilder expected = new StringBuilder("1 1:1 a\n");
+		for (int i = 0; i < 20000; i++)
+		{
+			document.append("<b>").append(i).append("</b>");
+			int column = document.length() - String.valueOf(i).length() - 6;
+			expected.append("1 1:").append(column).append(" b\n4 1:0 ").append(i).append("\n2 1:")
+				.append(column + 3 + String.valueOf(i).length()).append(" b\n");
+		}
+		document.append("</a>\n");
+		expected.append("2 1:").append(document.length() - 4).append(" a\n");
+		assertEquals(expected.toString(), read(document.toString()));
+		assertTrue(cursor.getErrors().isEmpty());
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventCursor#XMLEventCursor(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testFileIsReadInItsEncoding() throws IOException
+	{
+		String document = "<caf\u00e9 x=\"\u00bd\">\n<b>\u4e2d</b>\n</caf\u00e9>\n";
+		String expected = events(new XMLEventCursor(document.getBytes(StandardCharsets.UTF_8)));
+		Path file = Files.createTempFile("cursor", ".xml");
+		try
+		{
+			byte[][] encodings = {
+				("\ufeff" + document).getBytes(StandardCharsets.UTF_8),
+				("\ufeff" + document).getBytes(StandardCharsets.UTF_16LE),
+				("\ufeff" + document).getBytes(StandardCharsets.UTF_16BE) };
+			for (int i = 0; i < encodings.length; i++)
+			{
+				Files.write(file, encodings[i]);
+				cursor = new XMLEventCursor(file);
+				assertEquals("encoding " + i, expected, events(cursor));
+				assertTrue("encoding " + i, cursor.getErrors().isEmpty());
+				cursor.close();
+			}
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventCursor#isWhitespace()}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testIsWhitespace() throws IOException
+	{
+		cursor = new XMLEventCursor("<a> \t<b/>x </a>".getBytes(StandardCharsets.ISO_8859_1));
+		cursor.next();
+		assertFalse(cursor.isWhitespace());
+		cursor.next();
+		assertTrue(cursor.isWhitespace());
+		assertEquals(" \t", cursor.getText().toString());
+		cursor.next();
+		cursor.next();
+		assertFalse(cursor.isWhitespace());
+		assertEquals('x', cursor.getText().charAt(0));
+		assertEquals(" ", cursor.getText().subSequence(1, 2).toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventCursor#getName()}.
+	 * @throws IOException
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testGetNameOfText() throws IOException
+	{
+		cursor = new XMLEventCursor("text".getBytes(StandardCharsets.ISO_8859_1));
+		assertEquals(XMLEventCursor.TEXT, cursor.next());
+		cursor.getName();
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventCursor#next()}.
+	 * @throws IOException
+	 */
+	@Test(expected = NoSuchElementException.class)
+	public void testNextAfterLastEvent() throws IOException
+	{
+		cursor = new XMLEventCursor("<a/>".getBytes(StandardCharsets.ISO_8859_1));
+		assertEquals(XMLEventCursor.EMPTY_ELEMENT, cursor.next());
+		assertFalse(cursor.hasNext());
+		cursor.next();
+	}
+}
@@ -0,0 +1,230 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.XMLEventBatch;
+import utilities.XMLEventCursor;
+import utilities.XMLEventPublisher;
+
+/**
+ * Class Description:
+ * Tests for the XMLEventPublisher. A recording subscriber requests batches one at a time
+ * so the tests can check that nothing is delivered beyond the demand.
+ */
+public class XMLEventPublisherTest
+{
+	// Attributes
+	private RecordingSubscriber subscriber;
+
+	/**
+	 * Records the batches and signals it receives, and requests only when told to.
+	 */
+	private static class RecordingSubscriber implements Flow.Subscriber<XMLEventBatch>
+	{
+		private final List<XMLEventBatch> batches = new ArrayList<>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private Flow.Subscription subscription;
+		private Throwable error;
+		private boolean complete;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription)
+		{
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(XMLEventBatch batch)
+		{
+			batches.add(batch);
+		}
+
+		@Override
+		public void onError(Throwable throwable)
+		{
+			error = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete()
+		{
+			complete = true;
+			done.countDown();
+		}
+	}
+
+	/**
+	 * Creates a subscriber before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		subscriber = new RecordingSubscriber();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		subscriber = null;
+	}
+
+	/**
+	 * Creates a publisher of a document that delivers batches on the calling thread.
+	 */
+	private static XMLEventPublisher publisher(String document, int batchSize)
+	{
+		return new XMLEventPublisher(document.getBytes(StandardCharsets.ISO_8859_1), batchSize, Runnable::run);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventPublisher#subscribe(java.util.concurrent.Flow.Subscriber)}.
+	 */
+	@Test
+	public void testSubscribeDeliversOnlyWhatIsRequested()
+	{
+		XMLEventPublisher publisher = publisher("<a>\n<b>x</b>\n<c/>\n</a>\n", 2);
+		publisher.subscribe(subscriber);
+		assertTrue(subscriber.batches.isEmpty());
+
+		subscriber.subscription.request(1);
+		assertEquals(1, subscriber.batches.size());
+		assertFalse(subscriber.complete);
+		assertNull(publisher.getErrors());
+
+		subscriber.subscription.request(10);
+		assertEquals(3, subscriber.batches.size());
+		assertTrue(subscriber.complete);
+		assertTrue(publisher.getErrors().isEmpty());
+
+		XMLEventBatch first = subscriber.batches.get(0);
+		assertEquals(2, first.size());
+		assertEquals(XMLEventCursor.START_ELEMENT, first.type(0));
+		assertEquals("a", first.name(0).toString());
+		assertEquals("b", first.name(1).toString());
+		assertEquals(2, first.line(1));
+		XMLEventBatch second = subscriber.batches.get(1);
+		assertEquals("x", second.text(0).toString());
+		assertNull(second.name(0));
+		assertEquals(XMLEventCursor.END_ELEMENT, second.type(1));
+		assertEquals(XMLEventCursor.EMPTY_ELEMENT, subscriber.batches.get(2).type(0));
+		assertEquals(4, subscriber.batches.get(2).line(1));
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventPublisher#XMLEventPublisher(java.nio.file.Path, int, java.util.concurrent.Executor)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testFileIsReadInItsEncoding() throws IOException
+	{
+		Path file = Files.createTempFile("publisher", ".xml");
+		try
+		{
+			Files.write(file, "\ufeff<r\u00e9>\n<b/>\n</r\u00e9>\n".getBytes(StandardCharsets.UTF_16LE));
+			XMLEventPublisher publisher = new XMLEventPublisher(file, 8, Runnable::run);
+			publisher.subscribe(subscriber);
+			subscriber.subscription.request(1);
+			assertTrue(subscriber.complete);
+			assertTrue(publisher.getErrors().isEmpty());
+			XMLEventBatch batch = subscriber.batches.get(0);
+			assertEquals(3, batch.size());
+			assertEquals(XMLEventCursor.START_ELEMENT, batch.type(0));
+			assertEquals("r\u00e9", batch.name(0).toString());
+			assertEquals("b", batch.name(1).toString());
+			assertEquals(3, batch.line(2));
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventPublisher#getErrors()}.
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testPublishOnPoolReportsErrors() throws InterruptedException
+	{
+		StringBuilder document = new StringBuilder("<root>\n");
+		for (int i = 0; i < 5000; i++)
+		{
+			document.append("<item n=\"").append(i).append("\">").append(i).append("</item>\n");
+		}
+		document.append("</rot>\n");
+		XMLEventPublisher publisher = new XMLEventPublisher(document.toString().getBytes(StandardCharsets.ISO_8859_1),
+			64, ForkJoinPool.commonPool());
+		publisher.subscribe(subscriber);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+
+		int events = 0;
+		for (XMLEventBatch batch : subscriber.batches)
+		{
+			events += batch.size();
+		}
+		assertEquals(15002, events);
+		assertEquals(1, publisher.getErrors().size());
+		assertEquals("Error at line 5002: </rot>", publisher.getErrors().message(0));
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventPublisher#subscribe(java.util.concurrent.Flow.Subscriber)}.
+	 */
+	@Test
+	public void testCancelStopsDelivery()
+	{
+		XMLEventPublisher publisher = publisher("<a>\n<b/>\n</a>\n", 1);
+		publisher.subscribe(subscriber);
+		subscriber.subscription.request(1);
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(5);
+		assertEquals(1, subscriber.batches.size());
+		assertFalse(subscriber.complete);
+		assertNull(subscriber.error);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventPublisher#subscribe(java.util.concurrent.Flow.Subscriber)}.
+	 */
+	@Test
+	public void testInvalidRequestSignalsError()
+	{
+		publisher("<a/>", 1).subscribe(subscriber);
+		subscriber.subscription.request(0);
+		assertTrue(subscriber.error instanceof IllegalArgumentException);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLEventPublisher#subscribe(java.util.concurrent.Flow.Subscriber)}.
+	 */
+	@Test
+	public void testSecondSubscriberIsRejected()
+	{
+		XMLEventPublisher publisher = publisher("<a/>", 1);
+		publisher.subscribe(new RecordingSubscriber());
+		publisher.subscribe(subscriber);
+		assertTrue(subscriber.error instanceof IllegalStateException);
+	}
+}
@@ -0,0 +1,470 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.ChannelReader;
+import utilities.TokenHandler;
+import utilities.XMLTokenizer;
+
+/**
+ * Class Description:
+ * Tests for the resumable XMLTokenizer. Every document is fed once as a whole and once
+ * in small chunks, and both runs must report the same tokens.
+ */
+public class XMLTokenizerTest
+{
+	// Attributes
+	private StringBuilder tokens;
+	private XMLTokenizer tokenizer;
+	private int largestWindow;
+
+	/**
+	 * Records every token as a line of text so runs can be compared.
+	 */
+	private class RecordingHandler implements TokenHandler
+	{
+		@Override
+		public void openTag(ByteBuffer window, int nameStart, int nameLength, int line, int column)
+		{
+			tokens.append("open ").append(text(window, nameStart, nameLength)).append(' ').append(line).append('\n');
+		}
+
+		@Override
+		public void closeTag(ByteBuffer window, int nameStart, int nameLength, int line, int column)
+		{
+			tokens.append("close ").append(text(window, nameStart, nameLength)).append(' ').append(line).append('\n');
+		}
+
+		@Override
+		public void malformedTag(ByteBuffer window, int textStart, int textLength, int line)
+		{
+			tokens.append("malformed ").append(line).append(' ').append(text(window, textStart, textLength)).append('\n');
+		}
+
+		@Override
+		public void invalidCloseTag(ByteBuffer window, int textStart, int textLength, int line)
+		{
+			tokens.append("invalid ").append(line).append(' ').append(text(window, textStart, textLength)).append('\n');
+		}
+
+		@Override
+		public void comment(ByteBuffer window, int textStart, int textLength, int line, int column)
+		{
+			tokens.append("comment ").append(line).append(' ').append(text(window, textStart, textLength)).append('\n');
+		}
+
+		private String text(ByteBuffer window, int start, int length)
+		{
+			byte[] bytes = new byte[length];
+			window.get(start, bytes, 0, length);
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	/**
+	 * Records text, comments and processing instructions, joining the pieces of a line
+	 * that was passed in pieces, and notes the largest window they were passed in.
+	 */
+	private class JoiningHandler extends RecordingHandler
+	{
+		@Override
+		public void text(ByteBuffer window, int textStart, int textLength, int line)
+		{
+			tokens.append("\ntext ").append(line).append(' ');
+			continueText(window, textStart, textLength, line);
+		}
+
+		@Override
+		public void continueText(ByteBuffer window, int textStart, int textLength, int line)
+		{
+			largestWindow = Math.max(largestWindow, window.capacity());
+			tokens.append(new String(bytes(window, textStart, textLength), StandardCharsets.ISO_8859_1));
+		}
+
+		@Override
+		public void comment(ByteBuffer window, int textStart, int textLength, int line, int column)
+		{
+			body("comment", window, textStart, textLength, line, column);
+		}
+
+		@Override
+		public void processingInstruction(ByteBuffer window, int textStart, int textLength, int line, int column)
+		{
+			body("pi", window, textStart, textLength, line, column);
+		}
+
+		private void body(String kind, ByteBuffer window, int textStart, int textLength, int line, int column)
+		{
+			if (column > 0)
+			{
+				tokens.append('\n').append(kind).append(' ').append(line).append(' ');
+			}
+			continueText(window, textStart, textLength, line);
+		}
+
+		private byte[] bytes(ByteBuffer window, int start, int length)
+		{
+			byte[] bytes = new byte[length];
+			window.get(start, bytes, 0, length);
+			return bytes;
+		}
+	}
+
+	/**
+	 * Creates a tokenizer reporting to a recording handler before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tokens = new StringBuilder();
+		tokenizer = new XMLTokenizer(new RecordingHandler());
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		tokens = null;
+		tokenizer = null;
+	}
+
+	/**
+	 * Feeds the document to the tokenizer in chunks of the given size, carrying the
+	 * unconsumed bytes over the same way ChannelReader does.
+	 */
+	private String tokenize(String document, int chunkSize)
+	{
+		return tokenize(document, chunkSize, document.length() + 1);
+	}
+
+	/**
+	 * Feeds the document to the tokenizer in chunks of the given size through a window
+	 * that starts at the given size and, like ChannelReader's block, doubles whenever
+	 * the unconsumed bytes fill it.
+	 */
+	private String tokenize(String document, int chunkSize, int windowSize)
+	{
+		byte[] bytes = document.getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer window = ByteBuffer.allocate(windowSize);
+		int offset = 0;
+		tokens.setLength(0);
+		tokenizer.reset();
+		while (true)
+		{
+			int length = Math.min(Math.min(chunkSize, window.remaining()), bytes.length - offset);
+			window.put(bytes, offset, length);
+			offset += length;
+			boolean endOfInput = offset == bytes.length;
+			window.flip();
+			tokenizer.feed(window, endOfInput);
+			window.compact();
+			if (endOfInput)
+			{
+				return tokens.toString();
+			}
+			if (!window.hasRemaining())
+			{
+				ByteBuffer larger = ByteBuffer.allocate(window.capacity() * 2);
+				window.flip();
+				larger.put(window);
+				window = larger;
+			}
+		}
+	}
+
+	/**
+	 * Asserts that every chunk size produces the same tokens as a single chunk.
+	 */
+	private void assertChunkingIrrelevant(String document)
+	{
+		String whole = tokenize(document, Integer.MAX_VALUE);
+		for (int chunkSize = 1; chunkSize <= document.length(); chunkSize++)
+		{
+			assertEquals("chunk size " + chunkSize, whole, tokenize(document, chunkSize));
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedReportsTagsWithLineNumbers()
+	{
+		String result = tokenize("<?xml version=\"1.0\"?>\n<a>\n\t<b x=\"1\"/>\n\t<c>text</c>\n</a>", 4);
+		assertEquals("open a 2\nopen c 4\nclose c 4\nclose a 5\n", result);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedCountsEveryLineTerminator()
+	{
+		String result = tokenize("<a>\r\n<b>\r<c>\n\n</c>", 3);
+		assertEquals("open a 1\nopen b 2\nopen c 3\nclose c 5\n", result);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedReportsLineErrors()
+	{
+		String result = tokenize("<a>>\n  <b attr=\"x\"\n<c>", 5);
+		assertEquals("invalid 1 <a>>\nmalformed 2 <b attr=\"x\"\nopen c 3\n", result);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedIsIndependentOfChunkBoundaries()
+	{
+		assertChunkingIrrelevant("<XMLDATA>\r\n\t<Submission id=\"1\">\r\n<b>x<i>y</b>z</i>\r\n"
+				+ "<!-- note --><c/>\r\r\n</Submission>>\n<d\n</XMLDATA>");
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedHandlesManyTagsOnOneLine()
+	{
+		StringBuilder document = new StringBuilder("<a>");
+		StringBuilder expected = new StringBuilder("open a 1\n");
+		for (int i = 0; i < 1000; i++)
+		{
+			document.append("<b x=\"").append(i).append("\">text</b><c/>");
+			expected.append("open b 1\nclose b 1\n");
+		}
+		document.append("</a>");
+		expected.append("close a 1\n");
+		assertEquals(expected.toString(), tokenize(document.toString(), 64));
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedOnlyInvalidatesTagFollowedByGreater()
+	{
+		assertEquals("open a 1\nopen b 1\n", tokenize("<a><b>text>> more", 2));
+		assertEquals("open a 1\nopen b 2\n", tokenize("text>> <a>\n<b>", 2));
+		assertEquals("open a 1\ninvalid 1 <b x=\"1\">>\nopen c 2\n", tokenize("<a><b x=\"1\">> text\n<c>", 3));
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedReportsMarkupSpanningLines()
+	{
+		String document = "<a\n  x=\"1\"\r\n  y=\"2\">\n<!-- <b> and\n</c> -->\n</a\n>";
+		assertEquals("open a 1\ncomment 4  <b> and\ncomment 5 </c> \nclose a 6\n", tokenize(document, Integer.MAX_VALUE));
+		assertChunkingIrrelevant(document);
+		assertEquals(8, tokenizer.getLineNumber());
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedReportsCdataAsText()
+	{
+		tokenizer = new XMLTokenizer(new RecordingHandler()
+		{
+			@Override
+			public void text(ByteBuffer window, int textStart, int textLength, int line)
+			{
+				byte[] bytes = new byte[textLength];
+				window.get(textStart, bytes, 0, textLength);
+				tokens.append("text ").append(line).append(' ').append(new String(bytes, StandardCharsets.ISO_8859_1)).append('\n');
+			}
+		});
+		String document = "<a>x<![CDATA[<b>]]</c>\n>]>]]>y</a>";
+		assertEquals("open a 1\ntext 1 x\ntext 1 <b>]]</c>\ntext 2 >]>\ntext 2 y\nclose a 2\n",
+			tokenize(document, Integer.MAX_VALUE));
+		assertChunkingIrrelevant(document);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedSkipsDeclarations()
+	{
+		String document = "<!DOCTYPE a [\n<!ELEMENT a (#PCDATA)>\n]>\n<a><?pi <x> ?></a>";
+		assertEquals("open a 4\nclose a 4\n", tokenize(document, Integer.MAX_VALUE));
+		assertChunkingIrrelevant(document);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#isUnterminated()}.
+	 */
+	@Test
+	public void testFeedReportsUnterminatedMarkup()
+	{
+		assertEquals("open a 1\ncomment 2  <b>\ncomment 3 \nmalformed 2 <!-- <b>\n", tokenize("<a>\n<!-- <b>\n\n", 3));
+		assertTrue(tokenizer.isUnterminated());
+		assertEquals("open a 1\nmalformed 1 <b x=\"1\"\nopen c 3\n", tokenize("<a><b x=\"1\"  \n y=\"2\"\n<c>", 2));
+		assertEquals("malformed 1 <?pi\n", tokenize("<?pi\n<a>\n</a>\n", 4));
+		assertEquals("open a 1\nmalformed 1 <b\n", tokenize("<a><b \n", 1));
+		assertTrue(tokenizer.isUnterminated());
+		assertEquals("open a 1\n", tokenize("<a>\n", 1));
+		assertFalse(tokenizer.isUnterminated());
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedKeepsOnlyCurrentLineOfLongComment()
+	{
+		ByteBuffer window = ByteBuffer.allocate(32);
+		tokenizer.reset();
+		tokens.setLength(0);
+		byte[] line = "a comment line <x>\n".getBytes(StandardCharsets.ISO_8859_1);
+		window.put("<r><!--".getBytes(StandardCharsets.ISO_8859_1));
+		for (int i = 0; i < 1000; i++)
+		{
+			window.put(line);
+			window.flip();
+			tokenizer.feed(window, false);
+			window.compact();
+			assertTrue(window.position() < line.length);
+		}
+		window.flip();
+		tokenizer.feed(window, true);
+		assertTrue(tokens.toString().endsWith("comment 1000 a comment line <x>\nmalformed 1 <!--a comment line <x>\n"));
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedQuotesLongUnterminatedCommentTheSameInAnyChunks()
+	{
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < XMLTokenizer.MAX_QUOTE_LENGTH; i++)
+		{
+			body.append((char) ('a' + i % 26));
+		}
+		String document = "<a>\n<!--" + body + "  <b>\n</a>";
+		String quote = ("<!--" + body).substring(0, XMLTokenizer.MAX_QUOTE_LENGTH);
+		String whole = tokenize(document, Integer.MAX_VALUE);
+		assertTrue(whole.endsWith("malformed 2 " + quote + "\n"));
+		String trimmed = "<a>\n<!--" + body.substring(0, 100) + "   \n</a>";
+		assertTrue(tokenize(trimmed, Integer.MAX_VALUE).endsWith("malformed 2 <!--" + body.substring(0, 100) + "\n"));
+		for (int chunkSize = 1; chunkSize <= 40; chunkSize++)
+		{
+			assertEquals("chunk size " + chunkSize, whole, tokenize(document, chunkSize, 16));
+			assertTrue(tokenize(trimmed, chunkSize, 16).endsWith("malformed 2 <!--" + body.substring(0, 100) + "\n"));
+		}
+	}
+
+	/**
+	 * Builds a document whose text, CDATA sections, comment and processing instruction
+	 * are each longer than the tokenizer holds back.
+	 */
+	private String longBodies()
+	{
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < XMLTokenizer.MAX_KEPT_LENGTH * 3 + 5; i++)
+		{
+			body.append((char) ('a' + i % 26));
+		}
+		return "<r>\n<![CDATA[\n" + body + "]]>\n<![CDATA[" + body + "]]>\n<!--" + body + "-->\n<?pi " + body
+			+ "?>\n" + body + "\n</r>\n";
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#feed(java.nio.ByteBuffer, boolean)}.
+	 */
+	@Test
+	public void testFeedHoldsBackAtMostMaxKeptLength()
+	{
+		tokenizer = new XMLTokenizer(new JoiningHandler());
+		String document = longBodies();
+		String whole = tokenize(document, Integer.MAX_VALUE);
+		byte[] bytes = document.getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer window = ByteBuffer.allocate(XMLTokenizer.MAX_KEPT_LENGTH + 100);
+		tokens.setLength(0);
+		tokenizer.reset();
+		int offset = 0;
+		while (offset < bytes.length)
+		{
+			int length = Math.min(window.remaining(), bytes.length - offset);
+			window.put(bytes, offset, length);
+			offset += length;
+			window.flip();
+			tokenizer.feed(window, offset == bytes.length);
+			window.compact();
+			assertTrue(window.position() <= XMLTokenizer.MAX_KEPT_LENGTH);
+		}
+		assertEquals(whole, tokens.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.ChannelReader#stream(java.nio.file.Path, utilities.XMLTokenizer)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testStreamLongBodiesWithSmallBuffer() throws IOException
+	{
+		tokenizer = new XMLTokenizer(new JoiningHandler());
+		String document = longBodies();
+		String whole = tokenize(document, Integer.MAX_VALUE);
+		Path file = Files.createTempFile("bodies", ".xml");
+		try
+		{
+			Files.write(file, document.getBytes(StandardCharsets.ISO_8859_1));
+			tokens.setLength(0);
+			tokenizer.reset();
+			largestWindow = 0;
+			new ChannelReader(1024).stream(file, tokenizer);
+			assertEquals(whole, tokens.toString());
+			assertTrue(largestWindow <= 2 * XMLTokenizer.MAX_KEPT_LENGTH);
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLTokenizer#isStopped()}.
+	 */
+	@Test
+	public void testFeedStopsWhenHandlerIsFinished()
+	{
+		tokenizer = new XMLTokenizer(new RecordingHandler()
+		{
+			@Override
+			public boolean isFinished()
+			{
+				return tokens.indexOf("malformed") >= 0;
+			}
+		});
+		for (int chunkSize = 1; chunkSize <= 8; chunkSize++)
+		{
+			assertEquals("open a 1\nmalformed 2 <b\n", tokenize("<a>\n<b\n<c>\n<d\n", chunkSize));
+			assertTrue(tokenizer.isStopped());
+		}
+		tokenizer.reset();
+		assertFalse(tokenizer.isStopped());
+	}
+}
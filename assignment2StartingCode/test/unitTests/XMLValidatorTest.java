@@ -0,0 +1,176 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.ReportFormat;
+import utilities.ValidationResult;
+import utilities.XMLValidator;
+
+/**
+ * Class Description:
+ * Tests for the XMLValidator and its ValidationResult. One validator is used for every
+ * document in a test, so each test also checks that nothing is left over from the
+ * document before.
+ */
+public class XMLValidatorTest
+{
+	// Attributes
+	private XMLValidator validator;
+
+	/**
+	 * Creates a validator before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		validator = new XMLValidator();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		validator = null;
+	}
+
+	/**
+	 * Returns the bytes of a test document.
+	 */
+	private static byte[] bytes(String document)
+	{
+		return document.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#validate(byte[])}.
+	 */
+	@Test
+	public void testValidateWellFormedDocument()
+	{
+		ValidationResult result = validator.validate(bytes("<a>\n\t<b x=\"1\"/>\n\t<c>text</c>\n</a>"));
+		assertTrue(result.isWellFormed());
+		assertTrue(result.isComplete());
+		assertEquals(0, result.getErrorCount());
+		assertEquals(4, result.getLineCount());
+		assertEquals(4, result.getTagCount());
+		assertEquals("XML is well-formed." + System.lineSeparator(), result.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#validate(byte[])}.
+	 */
+	@Test
+	public void testValidateReusesResult()
+	{
+		ValidationResult first = validator.validate(bytes("<a>\n<b></a>\n"));
+		assertFalse(first.isWellFormed());
+		assertEquals(2, first.getErrorCount());
+		assertEquals("Error at line 2: </a>", first.getErrors().message(0));
+		assertEquals("Error at line 1: <a>", first.getErrors().message(1));
+
+		ValidationResult second = validator.validate(bytes("<a></a>"));
+		assertSame(first, second);
+		assertTrue(second.isWellFormed());
+		assertEquals(1, second.getLineCount());
+		assertTrue(second.getErrors().isEmpty());
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#validate(java.nio.ByteBuffer, utilities.ErrorSink)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateWritesErrorsToSink() throws IOException
+	{
+		StringWriter out = new StringWriter();
+		ByteBuffer document = ByteBuffer.wrap(bytes("<a>>\n</b>\n"));
+		ValidationResult result = validator.validate(document, ReportFormat.TEXT.newSink(out, false));
+		assertEquals(2, result.getErrorCount());
+		assertTrue(result.getErrors().isEmpty());
+		assertEquals(0, document.position());
+		String newLine = System.lineSeparator();
+		assertEquals("===========Error Log===========" + newLine + "Invalid close tag at line 1\n<a>>" + newLine
+			+ "Error at line 2: </b>" + newLine, out.toString());
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#setMaxErrors(int)}.
+	 */
+	@Test
+	public void testValidateStopsAtErrorLimit()
+	{
+		validator.setMaxErrors(1);
+		ValidationResult result = validator.validate(bytes("<a>\n</b>\n</c>\n<d>\n"));
+		assertFalse(result.isWellFormed());
+		assertFalse(result.isComplete());
+		assertEquals(1, result.getErrorCount());
+		assertEquals(2, result.getLineCount());
+
+		validator.setMaxErrors(Integer.MAX_VALUE);
+		result = validator.validate(bytes("<a>\n</b>\n</c>\n<d>\n"));
+		assertTrue(result.isComplete());
+		assertEquals(3, result.getErrorCount());
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#validate(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test
+	public void testValidateFile() throws IOException
+	{
+		Path file = Files.createTempFile("validator", ".xml");
+		try
+		{
+			Files.write(file, bytes("<a>\n</a>\n"));
+			assertTrue(validator.validate(file).isWellFormed());
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#validate(java.nio.file.Path)}.
+	 * @throws IOException
+	 */
+	@Test(expected = IOException.class)
+	public void testValidateMissingFile() throws IOException
+	{
+		Path directory = Files.createTempDirectory("validator");
+		Files.delete(directory);
+		validator.validate(directory.resolve("missing.xml"));
+	}
+
+	/**
+	 * Test method for {@link utilities.XMLValidator#validate(byte[])}.
+	 */
+	@Test
+	public void testValidateUtf8Names()
+	{
+		String document = "<caf\u00e9>\n<\u540d\u524d \u5c5e\u6027=\"\u5024\">\u30c6\u30ad\u30b9\u30c8</\u540d\u524d>\n"
+			+ "<na\u00efve>>\n</caf\u00e8>\n";
+		ValidationResult result = validator.validate(document.getBytes(StandardCharsets.UTF_8));
+		assertEquals(2, result.getErrorCount());
+		assertEquals("Invalid close tag at line 3\n<na\u00efve>>", result.getErrors().message(0));
+		assertEquals("Error at line 4: </caf\u00e8>", result.getErrors().message(1));
+		assertEquals("caf\u00e8", result.getErrors().name(1));
+		assertEquals(4, result.getTagCount());
+	}
+}